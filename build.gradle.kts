@@ -29,4 +29,11 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+tasks.register<JavaExec>("benchmark") {
+    description = "Ejecuta un benchmark (por defecto FunkoLookupBenchmark). Usar -PbenchmarkClass=... para elegir otro"
+    classpath = sourceSets["test"].runtimeClasspath
+    mainClass.set(providers.gradleProperty("benchmarkClass")
+            .orElse("com.madirex.benchmarks.FunkoLookupBenchmark"))
+}
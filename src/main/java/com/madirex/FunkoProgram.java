@@ -1,52 +1,95 @@
 package com.madirex;
 
 import com.madirex.controllers.FunkoController;
+import com.madirex.controllers.FunkoStatsController;
 import com.madirex.exceptions.FunkoNotFoundException;
 import com.madirex.exceptions.FunkoNotSavedException;
 import com.madirex.exceptions.FunkoNotValidException;
-import com.madirex.exceptions.ReadCSVFailException;
 import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
 import com.madirex.models.Model;
 import com.madirex.repositories.funko.FunkoRepositoryImpl;
-import com.madirex.services.cache.FunkoCacheImpl;
+import com.madirex.repositories.funko.FunkoStatsRepositoryImpl;
+import com.madirex.services.cache.ConcurrentFunkoCacheImpl;
+import com.madirex.services.cache.EvictionPolicy;
+import com.madirex.services.cache.FunkoCache;
+import com.madirex.services.cache.FunkoCacheStats;
+import com.madirex.services.cache.OffHeapFunkoStore;
+import com.madirex.services.cache.TieredFunkoCache;
 import com.madirex.services.crud.funko.FunkoServiceImpl;
+import com.madirex.services.crud.funko.FunkoWriteBehind;
 import com.madirex.services.crud.funko.IdGenerator;
 import com.madirex.services.database.DatabaseManager;
+import com.madirex.services.io.BackupCompression;
 import com.madirex.services.io.BackupService;
+import com.madirex.services.io.CsvImportPipeline;
 import com.madirex.services.io.CsvManager;
+import com.madirex.services.io.FunkoBinaryFormat;
+import com.madirex.services.stats.FunkoStatsServiceImpl;
+import com.madirex.utils.ApplicationProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * Clase FunkoProgram que contiene el programa principal
  */
 public class FunkoProgram {
 
+    private static final int FIND_ALL_PAGE_SIZE = 50;
+    private static final String CACHE_NAME = "funkos";
     private static FunkoProgram funkoProgramInstance;
     private final Logger logger = LoggerFactory.getLogger(FunkoProgram.class);
     private FunkoController controller;
+    private FunkoStatsController statsController;
 
     /**
      * Constructor privado para evitar la creación de instancia
      * SINGLETON
      */
     private FunkoProgram() {
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        Duration expireAfterWrite = Duration.ofSeconds(
+                Long.parseLong(properties.readProperty("cache.expireAfterWriteSeconds", "120")));
+        FunkoCache cache = new ConcurrentFunkoCacheImpl(
+                Integer.parseInt(properties.readProperty("cache.maxSize", "10")),
+                expireAfterWrite,
+                null,
+                EvictionPolicy.valueOf(properties.readProperty("cache.policy", "LRU")));
+        int offHeapMaxEntries = Integer.parseInt(properties.readProperty("cache.offHeap.maxEntries", "0"));
+        if (offHeapMaxEntries > 0) {
+            cache = new TieredFunkoCache(cache, new OffHeapFunkoStore(offHeapMaxEntries, expireAfterWrite));
+        }
+        try {
+            FunkoCacheStats.register(CACHE_NAME, cache);
+        } catch (JMException e) {
+            String str = "No se han podido publicar por JMX las estadísticas de la caché: " + e;
+            logger.error(str);
+        }
+        FunkoRepositoryImpl repository = FunkoRepositoryImpl.getInstance(IdGenerator.getInstance(),
+                DatabaseManager.getInstance());
+        FunkoWriteBehind writeBehind = null;
+        if (Boolean.parseBoolean(properties.readProperty("writeBehind.enabled", "false"))) {
+            writeBehind = new FunkoWriteBehind(repository,
+                    Integer.parseInt(properties.readProperty("db.batchSize", "500")),
+                    Duration.ofMillis(Long.parseLong(properties.readProperty("writeBehind.maxDelayMillis", "500"))));
+        }
         controller = FunkoController.getInstance(FunkoServiceImpl
-                .getInstance(FunkoRepositoryImpl.getInstance(IdGenerator.getInstance(), DatabaseManager.getInstance()),
-                        new FunkoCacheImpl(10, 2 * 60),
-                        BackupService.getInstance()));
+                .getInstance(repository,
+                        cache,
+                        BackupService.getInstance(),
+                        writeBehind));
+        statsController = FunkoStatsController.getInstance(FunkoStatsServiceImpl
+                .getInstance(FunkoStatsRepositoryImpl.getInstance(DatabaseManager.getInstance())));
     }
 
     /**
@@ -66,18 +109,38 @@ public class FunkoProgram {
      */
     public void init() {
         logger.info("Programa de Funkos iniciado.");
-        CompletableFuture<Void> loadFuture = loadFunkosFileAndInsertToDatabase("data" + File.separator + "funkos.csv");
+        CompletableFuture<Void> loadFuture = loadFunkosFile("data" + File.separator + "funkos.csv");
         loadFuture.join();
+        CompletableFuture<Void> warmUpFuture = warmUpCache();
         CompletableFuture<Void> serviceExceptionFuture = callAllServiceExceptionMethods();
         CompletableFuture<Void> serviceFuture = callAllServiceMethods();
         CompletableFuture<Void> queriesFuture = databaseQueries();
         CompletableFuture<Void> combinedFuture = CompletableFuture
-                .allOf(loadFuture, serviceExceptionFuture, serviceFuture, queriesFuture);
+                .allOf(loadFuture, warmUpFuture, serviceExceptionFuture, serviceFuture, queriesFuture);
         combinedFuture.join();
+        logger.info(controller.getCacheStats().toString());
         controller.shutdown();
         logger.info("Programa de Funkos finalizado.");
     }
 
+    /**
+     * Precarga la caché con la instantánea del último cierre si está configurada (cache.snapshotFile)
+     *
+     * @return CompletableFuture
+     */
+    private CompletableFuture<Void> warmUpCache() {
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        String snapshotFile = properties.readProperty("cache.snapshotFile", "");
+        if (snapshotFile.isBlank()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return controller.warmUpCache(Path.of(snapshotFile),
+                        Math.max(Integer.parseInt(properties.readProperty("cache.maxSize", "10")),
+                                Integer.parseInt(properties.readProperty("cache.offHeap.maxEntries", "0"))),
+                        Duration.ofMillis(Long.parseLong(properties.readProperty("cache.warmUpBudgetMillis", "2000"))))
+                .thenApply(ignored -> null);
+    }
+
     /**
      * Lanzar excepciones de los métodos service
      *
@@ -137,16 +200,50 @@ public class FunkoProgram {
     }
 
     /**
-     * Carga una copia de seguridad y la imprime
+     * Devuelve el nombre del fichero de copia de seguridad según el formato configurado (backup.format: JSON o
+     * BINARY) y, en JSON, con la extensión de la compresión configurada (backup.compression)
+     *
+     * @return Nombre del fichero
+     */
+    private String backupFileName() {
+        ApplicationProperties properties = ApplicationProperties.getInstance();
+        if (properties.readProperty("backup.format", "JSON").equals("BINARY")) {
+            return "backup" + FunkoBinaryFormat.EXTENSION;
+        }
+        return "backup.json" + BackupCompression.valueOf(properties.readProperty("backup.compression", "NONE"))
+                .getExtension();
+    }
+
+    /**
+     * Indica si las copias de seguridad son incrementales (backup.incremental): la primera es completa y las
+     * siguientes solo guardan los cambios, y al restaurar se aplican en orden
+     *
+     * @return ¿Copias de seguridad incrementales?
+     */
+    private boolean isIncrementalBackup() {
+        return Boolean.parseBoolean(ApplicationProperties.getInstance().readProperty("backup.incremental", "false"));
+    }
+
+    /**
+     * Restaura una copia de seguridad en la base de datos e imprime el resumen
      *
      * @param rootFolderName Nombre de la carpeta raíz
      * @return CompletableFuture
      */
     private CompletableFuture<Void> loadBackupAndPrint(String rootFolderName) {
-        return controller.importData(System.getProperty("user.dir") + File.separator + rootFolderName,
-                "backup.json").thenAccept(e -> {
-            logger.info("🟢 Copia de seguridad...");
-            e.forEach(f -> logger.info(f.toString()));
+        int batchSize = Integer.parseInt(ApplicationProperties.getInstance().readProperty("db.batchSize", "500"));
+        String path = System.getProperty("user.dir") + File.separator + rootFolderName;
+        Consumer<ImportReport> progress = report -> logger.debug(report.toString());
+        CompletableFuture<ImportReport> restore = isIncrementalBackup()
+                ? controller.restoreIncremental(path, backupFileName(), batchSize, progress)
+                : controller.restoreData(path, backupFileName(), batchSize, progress);
+        return restore.thenAccept(report -> {
+            logger.info("🟢 Copia de seguridad restaurada...");
+            logger.info(report.toString());
+        }).exceptionally(ex -> {
+            String strError = "Error al restaurar la copia de seguridad: " + ex.getMessage();
+            logger.error(strError);
+            return null;
         });
     }
 
@@ -167,26 +264,18 @@ public class FunkoProgram {
     }
 
     /**
-     * Imprime una lista de Funkos que contengan el nombre pasado por parámetro
+     * Imprime una lista de Funkos cuyo nombre empieza por el pasado por parámetro
      *
      * @param name Nombre del Funko
      * @return CompletableFuture
      */
     private CompletableFuture<Object> printListOfFunkosOfName(String name) {
-        try {
-            return controller.findAll()
-                    .thenApplyAsync(funkos -> {
-                        logger.info("🔵 Listado de Funkos de Stitch...");
-                        funkos.stream()
-                                .filter(f -> f.getName().startsWith(name))
-                                .forEach(e -> logger.info(e.toString()));
-                        return null;
-                    });
-        } catch (SQLException | FunkoNotFoundException e) {
-            String str = "Funkos no encontrados: " + e;
-            logger.error(str);
-        }
-        return CompletableFuture.completedFuture(null);
+        return statsController.findByNameStartingWith(name)
+                .thenApplyAsync(funkos -> {
+                    logger.info("🔵 Listado de Funkos de Stitch...");
+                    funkos.forEach(e -> logger.info(e.toString()));
+                    return null;
+                });
     }
 
     /**
@@ -196,18 +285,12 @@ public class FunkoProgram {
      * @return CompletableFuture
      */
     private CompletableFuture<Object> printNumberOfFunkosOfName(String name) {
-        try {
-            return controller.findAll()
-                    .thenApplyAsync(a -> {
-                        logger.info("🔵 Número de Funkos de Stitch...");
-                        logger.info(String.valueOf(a.stream().filter(e -> e.getName().startsWith(name)).count()));
-                        return null;
-                    });
-        } catch (SQLException | FunkoNotFoundException e) {
-            String str = "Funkos no encontrados: " + e;
-            logger.error(str);
-        }
-        return CompletableFuture.completedFuture(null);
+        return statsController.countByNameStartingWith(name)
+                .thenApplyAsync(count -> {
+                    logger.info("🔵 Número de Funkos de Stitch...");
+                    logger.info(String.valueOf(count));
+                    return null;
+                });
     }
 
     /**
@@ -217,19 +300,12 @@ public class FunkoProgram {
      * @return CompletableFuture
      */
     private CompletableFuture<Object> printFunkosReleasedIn(int i) {
-        try {
-            return controller.findAll()
-                    .thenApplyAsync(a -> {
-                        logger.info("🔵 Funkos que han sido lanzados en 2023...");
-                        a.stream().filter(e -> e.getReleaseDate().getYear() == i)
-                                .forEach(e -> logger.info(e.toString()));
-                        return null;
-                    });
-        } catch (SQLException | FunkoNotFoundException e) {
-            String str = "Funkos no encontrados: " + e;
-            logger.error(str);
-        }
-        return CompletableFuture.completedFuture(null);
+        return statsController.findReleasedIn(i)
+                .thenApplyAsync(a -> {
+                    logger.info("🔵 Funkos que han sido lanzados en 2023...");
+                    a.forEach(e -> logger.info(e.toString()));
+                    return null;
+                });
     }
 
     /**
@@ -238,22 +314,15 @@ public class FunkoProgram {
      * @return CompletableFuture
      */
     private CompletableFuture<Object> printNumberOfFunkosByModels() {
-        try {
-            return controller.findAll()
-                    .thenApplyAsync(a -> {
-                        logger.info("🔵 Número de Funkos por modelos...");
-                        a.stream().collect(Collectors.groupingBy(Funko::getModel, Collectors.counting()))
-                                .forEach((model, count) -> {
-                                    String str = "🔵 " + model + " -> " + count;
-                                    logger.info(str);
-                                });
-                        return null;
+        return statsController.countByModel()
+                .thenApplyAsync(a -> {
+                    logger.info("🔵 Número de Funkos por modelos...");
+                    a.forEach(modelCount -> {
+                        String str = "🔵 " + modelCount.getModel() + " -> " + modelCount.getCount();
+                        logger.info(str);
                     });
-        } catch (SQLException | FunkoNotFoundException e) {
-            String str = "Funkos no agrupados: " + e;
-            logger.error(str);
-        }
-        return CompletableFuture.completedFuture(null);
+                    return null;
+                });
     }
 
     /**
@@ -262,23 +331,16 @@ public class FunkoProgram {
      * @return CompletableFuture
      */
     private CompletableFuture<Object> printFunkosGroupedByModels() {
-        try {
-            return controller.findAll()
-                    .thenApplyAsync(a -> {
-                        logger.info("🔵 Funkos agrupados por modelos...");
-                        Map<Model, List<Funko>> s = a.stream().collect(Collectors.groupingBy(Funko::getModel));
-                        s.forEach((model, funkoList) -> {
-                            String str = "\n🔵 Modelo: " + model;
-                            logger.info(str);
-                            funkoList.forEach(funko -> logger.info(funko.toString()));
-                        });
-                        return null;
+        return statsController.findGroupedByModel()
+                .thenApplyAsync(s -> {
+                    logger.info("🔵 Funkos agrupados por modelos...");
+                    s.forEach((model, funkoList) -> {
+                        String str = "\n🔵 Modelo: " + model;
+                        logger.info(str);
+                        funkoList.forEach(funko -> logger.info(funko.toString()));
                     });
-        } catch (SQLException | FunkoNotFoundException e) {
-            String str = "Funkos no agrupados: " + e;
-            logger.error(str);
-        }
-        return CompletableFuture.completedFuture(null);
+                    return null;
+                });
     }
 
     /**
@@ -287,22 +349,12 @@ public class FunkoProgram {
      * @return CompletableFuture
      */
     private CompletableFuture<Object> printAvgPriceOfFunkos() {
-        try {
-            return controller.findAll()
-                    .thenApplyAsync(a -> {
-                        logger.info("🔵 Media de precio de Funkos...");
-                        a.stream().mapToDouble(Funko::getPrice).average()
-                                .ifPresent(e -> logger.info(String.format("%.2f", e)));
-                        return null;
-                    });
-        } catch (SQLException e) {
-            String str = "Fallo SQL: " + e;
-            logger.error(str);
-        } catch (FunkoNotFoundException e) {
-            String str = "No se han encontrado Funkos: " + e;
-            logger.error(str);
-        }
-        return CompletableFuture.completedFuture(null);
+        return statsController.findAveragePrice()
+                .thenApplyAsync(a -> {
+                    logger.info("🔵 Media de precio de Funkos...");
+                    a.ifPresent(e -> logger.info(String.format("%.2f", e)));
+                    return null;
+                });
     }
 
     /**
@@ -311,20 +363,11 @@ public class FunkoProgram {
      * @return CompletableFuture
      */
     private CompletableFuture<Object> printExpensiveFunko() {
-        try {
-            return controller.findAll().thenApplyAsync(a -> {
-                logger.info("🔵 Funko más caro...");
-                a.stream().max(Comparator.comparingDouble(Funko::getPrice)).ifPresent(e -> logger.info(e.toString()));
-                return null;
-            });
-        } catch (SQLException e) {
-            String str = "Fallo SQL: " + e;
-            logger.error(str);
-        } catch (FunkoNotFoundException e) {
-            String str = "No se han encontrado Funkos: " + e;
-            logger.error(str);
-        }
-        return CompletableFuture.completedFuture(null);
+        return statsController.findMostExpensive().thenApplyAsync(a -> {
+            logger.info("🔵 Funko más caro...");
+            a.ifPresent(e -> logger.info(e.toString()));
+            return null;
+        });
     }
 
     /**
@@ -436,9 +479,24 @@ public class FunkoProgram {
      * @return CompletableFuture
      */
     private CompletableFuture<Void> doBackupAndPrint(String rootFolderName) {
+        if (isIncrementalBackup()) {
+            return controller.exportIncremental(System.getProperty("user.dir") + File.separator + rootFolderName,
+                    backupFileName(), false).thenAccept(manifest -> {
+                logger.info("🟢 Copia de seguridad incremental...");
+                String str = manifest.getIncrements().isEmpty()
+                        ? "Copia de seguridad completa realizada: " + manifest.getFullRows() + " Funkos"
+                        : "Incremento realizado: " + manifest.getIncrements().get(manifest.getIncrements().size() - 1).getRows()
+                        + " Funkos modificados";
+                logger.info(str);
+            }).exceptionally(ex -> {
+                String strError = "Error al realizar la copia de seguridad incremental: " + ex.getMessage();
+                logger.error(strError);
+                return null;
+            });
+        }
         return CompletableFuture.runAsync(() -> {
             try {
-                controller.exportData(System.getProperty("user.dir") + File.separator + rootFolderName, "backup.json")
+                controller.exportData(System.getProperty("user.dir") + File.separator + rootFolderName, backupFileName())
                         .thenApplyAsync(a -> {
                             logger.info("🟢 Copia de seguridad...");
                             logger.info("Copia de seguridad realizada.");
@@ -559,64 +617,78 @@ public class FunkoProgram {
     }
 
     /**
-     * Imprime todos los Funkos
+     * Imprime todos los Funkos recorriéndolos página a página para no cargar la tabla completa en memoria
      *
      * @return CompletableFuture
      * @throws SQLException Excepción SQL
      */
     private CompletableFuture<Void> printFindAll() throws SQLException {
-        try {
-            return controller.findAll()
-                    .thenApplyAsync(a -> {
-                                logger.info("🟢 Probando caso correcto de FindAll...");
-                                logger.info("\nFind All:");
-                                a.forEach(e -> logger.info(e.toString()));
-                                return null;
-                            }
-                    );
-        } catch (FunkoNotFoundException e) {
-            String strError = "No se han encontrado Funkos: " + e;
-            logger.error(strError);
+        return CompletableFuture.runAsync(() -> {
+            logger.info("🟢 Probando caso correcto de FindAll...");
+            logger.info("\nFind All:");
+            controller.streamAll(FIND_ALL_PAGE_SIZE).forEach(e -> logger.info(e.toString()));
+        });
+    }
+
+    /**
+     * Carga el CSV de Funkos en la base de datos. Con csv.parallelParse el fichero se mapea en memoria y se analiza
+     * por trozos en paralelo; si no, se lee línea a línea en streaming. En ambos casos se guarda por lotes
+     *
+     * @param path Ruta del archivo CSV
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> loadFunkosFile(String path) {
+        if (Boolean.parseBoolean(ApplicationProperties.getInstance().readProperty("csv.parallelParse", "false"))) {
+            return parallelFunkosFileToDatabase(path);
         }
-        return CompletableFuture.completedFuture(null);
+        return streamFunkosFileToDatabase(path);
     }
 
     /**
-     * Lee un archivo CSV y lo inserta en la base de datos de manera asíncrona
+     * Lee un archivo CSV analizando trozos del fichero en paralelo y lo inserta en la base de datos
+     * en lotes de db.batchSize a medida que se analiza. Las filas no válidas se cuentan como rechazadas
      *
      * @param path Ruta del archivo CSV
      * @return CompletableFuture
      */
-    public CompletableFuture<Void> loadFunkosFileAndInsertToDatabase(String path) {
-        return CompletableFuture.runAsync(() -> {
-            AtomicBoolean failed = new AtomicBoolean(false);
-            CsvManager csvManager = CsvManager.getInstance();
+    public CompletableFuture<Void> parallelFunkosFileToDatabase(String path) {
+        int batchSize = Integer.parseInt(ApplicationProperties.getInstance().readProperty("db.batchSize", "500"));
+        return CsvManager.getInstance().importFileParallel(path, batchSize, funkos -> {
+                    try {
+                        return controller.saveAll(funkos);
+                    } catch (SQLException | FunkoNotValidException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                })
+                .thenAccept(report -> logger.info(report.toString()))
+                .exceptionally(ex -> {
+                    String strError = "Error al importar el CSV: " + ex.getMessage();
+                    logger.error(strError);
+                    return null;
+                });
+    }
+
+    /**
+     * Lee un archivo CSV en streaming y lo inserta en la base de datos por lotes a medida que se lee,
+     * con una cola acotada entre la lectura y la escritura
+     *
+     * @param path Ruta del archivo CSV
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> streamFunkosFileToDatabase(String path) {
+        CsvImportPipeline pipeline = new CsvImportPipeline(funkos -> {
             try {
-                List<Funko> funkoList = csvManager.fileToFunkoList(path)
-                        .thenApplyAsync(optionalFunkoList -> optionalFunkoList.orElse(Collections.emptyList()))
-                        .join();
-                CompletableFuture<Void> insertionFuture = CompletableFuture.allOf(
-                        funkoList.stream()
-                                .map(funko -> CompletableFuture.runAsync(() -> {
-                                    try {
-                                        controller.save(funko);
-                                    } catch (SQLException throwables) {
-                                        String strError = "Error: " + throwables;
-                                        logger.error(strError);
-                                    } catch (FunkoNotValidException | FunkoNotSavedException ex) {
-                                        String strError = "El Funko no es válido: " + ex;
-                                        logger.error(strError);
-                                    }
-                                }))
-                                .toArray(CompletableFuture[]::new)
-                );
-                insertionFuture.join();
-                if (failed.get()) {
-                    logger.error("Error al insertar los datos en la base de datos");
-                }
-            } catch (ReadCSVFailException | RuntimeException e) {
-                logger.error("Error al leer el CSV");
+                return controller.saveAll(funkos);
+            } catch (SQLException | FunkoNotValidException e) {
+                return CompletableFuture.failedFuture(e);
             }
-        });
+        }, 2_000, 500, 2);
+        return pipeline.importFile(path)
+                .thenAccept(report -> logger.info(report.toString()))
+                .exceptionally(ex -> {
+                    String strError = "Error al importar el CSV: " + ex.getMessage();
+                    logger.error(strError);
+                    return null;
+                });
     }
 }
@@ -4,18 +4,25 @@ import com.madirex.exceptions.FunkoNotFoundException;
 import com.madirex.exceptions.FunkoNotRemovedException;
 import com.madirex.exceptions.FunkoNotSavedException;
 import com.madirex.exceptions.FunkoNotValidException;
+import com.madirex.models.BackupManifest;
+import com.madirex.models.CacheStats;
 import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
 import com.madirex.services.crud.funko.FunkoServiceImpl;
 import com.madirex.validators.FunkoValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Controlador de Funko
@@ -60,6 +67,46 @@ public class FunkoController implements BaseController<Funko> {
         return funkoService.findAll();
     }
 
+    /**
+     * Busca una página de Funkos ordenados por cod, empezando tras el cod indicado
+     *
+     * @param afterCod último cod de la página anterior o null para la primera página
+     * @param pageSize número máximo de Funkos de la página
+     * @return Funkos de la página
+     * @throws IllegalArgumentException si el tamaño de página no es positivo
+     */
+    public CompletableFuture<List<Funko>> findAll(String afterCod, int pageSize) {
+        String msg = "FindAll tras " + afterCod + " (" + pageSize + ")";
+        logger.debug(msg);
+        checkPageSize(pageSize);
+        return funkoService.findAll(afterCod, pageSize);
+    }
+
+    /**
+     * Recorre todos los Funkos ordenados por cod leyéndolos página a página bajo demanda
+     *
+     * @param pageSize número de Funkos que se leen de cada vez
+     * @return Stream de todos los Funkos
+     * @throws IllegalArgumentException si el tamaño de página no es positivo
+     */
+    public Stream<Funko> streamAll(int pageSize) {
+        String msg = "StreamAll " + pageSize;
+        logger.debug(msg);
+        checkPageSize(pageSize);
+        return funkoService.streamAll(pageSize);
+    }
+
+    /**
+     * Comprueba que el tamaño de página sea positivo
+     *
+     * @param pageSize tamaño de página
+     */
+    private void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que 0: " + pageSize);
+        }
+    }
+
     /**
      * Busca un Funko por id
      *
@@ -88,6 +135,30 @@ public class FunkoController implements BaseController<Funko> {
         return funkoService.findByName(name);
     }
 
+    /**
+     * Busca Funkos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix prefijo del nombre
+     * @return Funkos encontrados
+     */
+    public CompletableFuture<List<Funko>> findByNameStartingWith(String prefix) {
+        String msg = "FindByNameStartingWith " + prefix;
+        logger.debug(msg);
+        return funkoService.findByNameStartingWith(prefix);
+    }
+
+    /**
+     * Busca Funkos cuyo nombre contiene el texto indicado
+     *
+     * @param text texto contenido en el nombre
+     * @return Funkos encontrados
+     */
+    public CompletableFuture<List<Funko>> findByNameContaining(String text) {
+        String msg = "FindByNameContaining " + text;
+        logger.debug(msg);
+        return funkoService.findByNameContaining(text);
+    }
+
     /**
      * Guarda un Funko
      *
@@ -104,6 +175,23 @@ public class FunkoController implements BaseController<Funko> {
         return funkoService.save(funko);
     }
 
+    /**
+     * Guarda una lista de Funkos por lotes
+     *
+     * @param funkos Funkos a guardar
+     * @return Funkos guardados
+     * @throws SQLException           si hay un error en la base de datos
+     * @throws FunkoNotValidException si algún Funko no es válido
+     */
+    public CompletableFuture<List<Funko>> saveAll(List<Funko> funkos) throws SQLException, FunkoNotValidException {
+        String msg = "SaveAll " + funkos.size();
+        logger.debug(msg);
+        for (Funko funko : funkos) {
+            FunkoValidator.validate(funko);
+        }
+        return funkoService.saveAll(funkos);
+    }
+
     /**
      * Actualiza un Funko
      *
@@ -162,14 +250,7 @@ public class FunkoController implements BaseController<Funko> {
      * @throws IOException  si hay un error en el archivo
      */
     public CompletableFuture<Void> exportData(String url, String fileName) throws SQLException, IOException, FunkoNotFoundException {
-        return findAll().thenComposeAsync(data -> {
-            try {
-                return funkoService.exportData(url, fileName, data);
-            } catch (SQLException e) {
-                logger.error("Error al exportar los datos: ", e);
-                return null;
-            }
-        });
+        return funkoService.exportData(url, fileName);
     }
 
     /**
@@ -185,7 +266,84 @@ public class FunkoController implements BaseController<Funko> {
     }
 
     /**
-     * Cierra el caché
+     * Restaura un backup JSON en la base de datos por lotes
+     *
+     * @param url       url del directorio del backup
+     * @param fileName  nombre del archivo
+     * @param batchSize número de Funkos por lote
+     * @param progress  se llama tras cada lote con el resumen acumulado (puede ser null)
+     * @return Resumen de la restauración
+     */
+    public CompletableFuture<ImportReport> restoreData(String url, String fileName, int batchSize,
+                                                       Consumer<ImportReport> progress) {
+        String msg = "RestoreData " + fileName;
+        logger.debug(msg);
+        return funkoService.restoreData(url, fileName, batchSize, progress);
+    }
+
+    /**
+     * Realiza un backup incremental: completo la primera vez (o si full es true) y después solo los cambios
+     * desde el anterior
+     *
+     * @param url      url del directorio de los backups
+     * @param fileName nombre del backup completo
+     * @param full     ¿empezar una cadena nueva con un backup completo?
+     * @return Manifiesto de la cadena de backups
+     */
+    public CompletableFuture<BackupManifest> exportIncremental(String url, String fileName, boolean full) {
+        String msg = "ExportIncremental " + fileName;
+        logger.debug(msg);
+        return funkoService.exportIncremental(url, fileName, full);
+    }
+
+    /**
+     * Restaura una cadena de backups incrementales: el backup completo y después sus incrementos en orden
+     *
+     * @param url       url del directorio de los backups
+     * @param fileName  nombre del backup completo
+     * @param batchSize número de Funkos por lote
+     * @param progress  se llama tras cada lote con el resumen acumulado (puede ser null)
+     * @return Resumen de la restauración
+     */
+    public CompletableFuture<ImportReport> restoreIncremental(String url, String fileName, int batchSize,
+                                                              Consumer<ImportReport> progress) {
+        String msg = "RestoreIncremental " + fileName;
+        logger.debug(msg);
+        return funkoService.restoreIncremental(url, fileName, batchSize, progress);
+    }
+
+    /**
+     * Devuelve las estadísticas de la caché de Funkos
+     *
+     * @return Estadísticas de la caché
+     */
+    public CacheStats getCacheStats() {
+        return funkoService.getCacheStats();
+    }
+
+    /**
+     * Escribe en la base de datos los cambios pendientes de la escritura diferida
+     *
+     * @return Future que se completa cuando los cambios anteriores son duraderos
+     */
+    public CompletableFuture<Void> flush() {
+        return funkoService.flush();
+    }
+
+    /**
+     * Precarga en segundo plano la caché con los Funkos de la instantánea guardada en el último cierre
+     *
+     * @param snapshotFile Fichero de la instantánea
+     * @param maxKeys      Número máximo de Funkos a precargar y a guardar al cerrar
+     * @param budget       Tiempo máximo de la precarga
+     * @return Número de Funkos precargados
+     */
+    public CompletableFuture<Integer> warmUpCache(Path snapshotFile, int maxKeys, Duration budget) {
+        return funkoService.warmUpCache(snapshotFile, maxKeys, budget);
+    }
+
+    /**
+     * Escribe los cambios pendientes, guarda la instantánea de la caché si está configurada y cierra el caché
      */
     public void shutdown() {
         funkoService.shutdown();
@@ -0,0 +1,121 @@
+package com.madirex.controllers;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.ModelCount;
+import com.madirex.services.stats.FunkoStatsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Controlador de las estadísticas de Funko
+ */
+public class FunkoStatsController {
+    private static FunkoStatsController funkoStatsControllerInstance;
+    private final Logger logger = LoggerFactory.getLogger(FunkoStatsController.class);
+
+    private final FunkoStatsService statsService;
+
+    /**
+     * Constructor
+     *
+     * @param statsService servicio de estadísticas de Funko
+     */
+    private FunkoStatsController(FunkoStatsService statsService) {
+        this.statsService = statsService;
+    }
+
+    /**
+     * Devuelve la instancia de la clase
+     *
+     * @param statsService servicio de estadísticas de Funko
+     * @return Instancia de la clase
+     */
+    public static synchronized FunkoStatsController getInstance(FunkoStatsService statsService) {
+        if (funkoStatsControllerInstance == null) {
+            funkoStatsControllerInstance = new FunkoStatsController(statsService);
+        }
+        return funkoStatsControllerInstance;
+    }
+
+    /**
+     * Busca el Funko más caro
+     *
+     * @return Funko más caro
+     */
+    public CompletableFuture<Optional<Funko>> findMostExpensive() {
+        logger.debug("FindMostExpensive");
+        return statsService.findMostExpensive();
+    }
+
+    /**
+     * Calcula el precio medio de los Funkos
+     *
+     * @return Precio medio
+     */
+    public CompletableFuture<Optional<Double>> findAveragePrice() {
+        logger.debug("FindAveragePrice");
+        return statsService.findAveragePrice();
+    }
+
+    /**
+     * Agrupa los Funkos por modelo
+     *
+     * @return Funkos de cada modelo
+     */
+    public CompletableFuture<Map<Model, List<Funko>>> findGroupedByModel() {
+        logger.debug("FindGroupedByModel");
+        return statsService.findGroupedByModel();
+    }
+
+    /**
+     * Cuenta los Funkos de cada modelo
+     *
+     * @return Número de Funkos por modelo
+     */
+    public CompletableFuture<List<ModelCount>> countByModel() {
+        logger.debug("CountByModel");
+        return statsService.countByModel();
+    }
+
+    /**
+     * Busca los Funkos lanzados en un año
+     *
+     * @param year año de lanzamiento
+     * @return Funkos lanzados en ese año
+     */
+    public CompletableFuture<List<Funko>> findReleasedIn(int year) {
+        String msg = "FindReleasedIn " + year;
+        logger.debug(msg);
+        return statsService.findReleasedIn(year);
+    }
+
+    /**
+     * Cuenta los Funkos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix prefijo del nombre
+     * @return Número de Funkos
+     */
+    public CompletableFuture<Long> countByNameStartingWith(String prefix) {
+        String msg = "CountByNameStartingWith " + prefix;
+        logger.debug(msg);
+        return statsService.countByNameStartingWith(prefix);
+    }
+
+    /**
+     * Busca los Funkos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix prefijo del nombre
+     * @return Funkos encontrados
+     */
+    public CompletableFuture<List<Funko>> findByNameStartingWith(String prefix) {
+        String msg = "FindByNameStartingWith " + prefix;
+        logger.debug(msg);
+        return statsService.findByNameStartingWith(prefix);
+    }
+}
@@ -0,0 +1,22 @@
+package com.madirex.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Backup incremental: los Funkos modificados desde since, guardados en fileName, y los cods de los borrados
+ */
+@Data
+@Builder
+public class BackupIncrement {
+    private String fileName;
+    private LocalDateTime since;
+    private LocalDateTime watermark;
+    private long rows;
+    @Builder.Default
+    private List<String> deleted = new ArrayList<>();
+}
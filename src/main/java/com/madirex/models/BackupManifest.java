@@ -0,0 +1,23 @@
+package com.madirex.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cadena de backups incrementales: un backup completo seguido de los incrementos que se han hecho después.
+ * La marca de agua es el instante del último backup de la cadena; el siguiente incremento exporta lo
+ * modificado y borrado desde entonces
+ */
+@Data
+@Builder
+public class BackupManifest {
+    private String fullBackup;
+    private long fullRows;
+    private LocalDateTime watermark;
+    @Builder.Default
+    private List<BackupIncrement> increments = new ArrayList<>();
+}
@@ -0,0 +1,67 @@
+package com.madirex.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Estadísticas de una caché en un instante dado
+ */
+@Data
+@Builder
+public class CacheStats {
+    private long hitCount;
+    private long missCount;
+    private long putCount;
+    private long sizeEvictionCount;
+    private long expiryEvictionCount;
+    private long loadCount;
+    private long totalLoadNanos;
+    private long size;
+    private long maxSize;
+
+    /**
+     * Devuelve la proporción de consultas que se han resuelto desde la caché
+     *
+     * @return Tasa de aciertos entre 0 y 1 (1 si no ha habido consultas)
+     */
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * Devuelve el tiempo medio de carga desde la base de datos tras un fallo de caché
+     *
+     * @return Milisegundos por carga
+     */
+    public double getAverageLoadMillis() {
+        return loadCount == 0 ? 0.0 : totalLoadNanos / 1_000_000.0 / loadCount;
+    }
+
+    /**
+     * Devuelve el número total de elementos desalojados
+     *
+     * @return Elementos desalojados por tamaño o por caducidad
+     */
+    public long getEvictionCount() {
+        return sizeEvictionCount + expiryEvictionCount;
+    }
+
+    /**
+     * Devuelve las estadísticas en formato texto
+     */
+    @Override
+    public String toString() {
+        return "Caché:" +
+                "\n\tAciertos=" + hitCount +
+                "\n\tFallos=" + missCount +
+                "\n\tTasa de aciertos=" + String.format("%.2f", getHitRate()) +
+                "\n\tInserciones=" + putCount +
+                "\n\tDesalojos por tamaño=" + sizeEvictionCount +
+                "\n\tDesalojos por caducidad=" + expiryEvictionCount +
+                "\n\tCargas=" + loadCount +
+                "\n\tTiempo medio de carga (ms)=" + String.format("%.3f", getAverageLoadMillis()) +
+                "\n\tTamaño=" + size + "/" + maxSize +
+                '\n';
+    }
+}
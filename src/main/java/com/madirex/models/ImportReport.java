@@ -0,0 +1,39 @@
+package com.madirex.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Resumen de una importación de Funkos
+ */
+@Data
+@Builder
+public class ImportReport {
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private long elapsedMillis;
+
+    /**
+     * Devuelve el número de filas importadas por segundo
+     *
+     * @return Filas por segundo
+     */
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rowsImported : rowsImported * 1000.0 / elapsedMillis;
+    }
+
+    /**
+     * Devuelve el resumen de la importación en formato texto
+     */
+    @Override
+    public String toString() {
+        return "Importación:" +
+                "\n\tFilas leídas=" + rowsRead +
+                "\n\tFilas importadas=" + rowsImported +
+                "\n\tFilas rechazadas=" + rowsRejected +
+                "\n\tTiempo (ms)=" + elapsedMillis +
+                "\n\tFilas/segundo=" + String.format("%.2f", getRowsPerSecond()) +
+                '\n';
+    }
+}
@@ -0,0 +1,14 @@
+package com.madirex.models;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Número de Funkos de un modelo
+ */
+@Data
+@Builder
+public class ModelCount {
+    private Model model;
+    private long count;
+}
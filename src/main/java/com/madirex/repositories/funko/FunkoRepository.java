@@ -4,13 +4,51 @@ import com.madirex.models.Funko;
 import com.madirex.repositories.CRUDRepository;
 
 import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 /**
  * Interfaz que define las operaciones CRUD de FunkoRepository
  */
 public interface FunkoRepository extends CRUDRepository<Funko, String> {
+    /**
+     * Devuelve una página de elementos ordenados por cod, empezando tras el cod indicado
+     *
+     * @param afterCod Último cod de la página anterior o null para la primera página
+     * @param pageSize Número máximo de elementos de la página
+     * @return Elementos de la página
+     */
+    CompletableFuture<List<Funko>> findAll(String afterCod, int pageSize);
+
+    /**
+     * Devuelve todos los elementos ordenados por cod, leyéndolos página a página bajo demanda
+     *
+     * @param pageSize Número de elementos que se leen de cada vez
+     * @return Stream de todos los elementos
+     */
+    Stream<Funko> streamAll(int pageSize);
+
+    /**
+     * Devuelve los elementos modificados desde la fecha indicada, ordenados por fecha de modificación y cod,
+     * leyéndolos página a página bajo demanda
+     *
+     * @param since    Fecha de modificación mínima (incluida)
+     * @param pageSize Número de elementos que se leen de cada vez
+     * @return Stream de los elementos modificados
+     */
+    Stream<Funko> streamUpdatedSince(LocalDateTime since, int pageSize);
+
+    /**
+     * Devuelve los cods de los elementos borrados desde la fecha indicada que no se han vuelto a dar de alta
+     *
+     * @param since Fecha de borrado mínima (incluida)
+     * @return Cods de los elementos borrados
+     */
+    CompletableFuture<List<String>> findDeletedSince(LocalDateTime since);
+
     /**
      * Busca un elemento en el repositorio por su nombre
      *
@@ -18,4 +56,63 @@ public interface FunkoRepository extends CRUDRepository<Funko, String> {
      * @return Lista de elementos encontrados
      */
     CompletableFuture<List<Funko>> findByName(String name) throws SQLException;
+
+    /**
+     * Busca los elementos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix Prefijo del nombre
+     * @return Lista de elementos encontrados
+     */
+    CompletableFuture<List<Funko>> findByNameStartingWith(String prefix);
+
+    /**
+     * Busca los elementos cuyo nombre contiene el texto indicado
+     *
+     * @param text Texto contenido en el nombre
+     * @return Lista de elementos encontrados
+     */
+    CompletableFuture<List<Funko>> findByNameContaining(String text);
+
+    /**
+     * Guarda una lista de elementos en el repositorio en una única transacción usando lotes JDBC.
+     * Los elementos cuyo cod ya existe se descartan
+     *
+     * @param entities Elementos a guardar
+     * @return Lista de elementos guardados
+     */
+    CompletableFuture<List<Funko>> saveAll(List<Funko> entities);
+
+    /**
+     * Guarda una lista de elementos en el repositorio en una única transacción usando lotes JDBC.
+     * Los elementos cuyo cod ya existe se sobrescriben
+     *
+     * @param entities Elementos a guardar
+     * @return Lista de elementos guardados
+     */
+    CompletableFuture<List<Funko>> upsertAll(List<Funko> entities);
+
+    /**
+     * Busca los elementos con los cods indicados en una única consulta
+     *
+     * @param ids Cods de los elementos a buscar
+     * @return Lista de elementos encontrados
+     */
+    CompletableFuture<List<Funko>> findAllById(List<String> ids);
+
+    /**
+     * Borra los elementos con los cods indicados en una única transacción usando lotes JDBC
+     *
+     * @param ids Cods de los elementos a borrar
+     * @return Número de elementos borrados
+     */
+    CompletableFuture<Integer> deleteAllById(List<String> ids);
+
+    /**
+     * Escribe en una única transacción, con lotes JDBC, altas y modificaciones acumuladas
+     *
+     * @param inserts Elementos a dar de alta por su cod
+     * @param updates Elementos a modificar por el cod de la fila que modifican
+     * @return Cods de las altas y modificaciones no aplicadas
+     */
+    CompletableFuture<List<String>> writeAll(Map<String, Funko> inserts, Map<String, Funko> updates);
 }
@@ -7,13 +7,23 @@ import com.madirex.services.database.DatabaseManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementación de la interfaz FunkoRepository
@@ -23,6 +33,27 @@ public class FunkoRepositoryImpl implements FunkoRepository {
     private final IdGenerator idGenerator;
     private final DatabaseManager database;
     private final Logger logger = LoggerFactory.getLogger(FunkoRepositoryImpl.class);
+    private static final String INSERT_SQL = "INSERT INTO funko (cod, myId, nombre, modelo, precio, " +
+            "fecha_lanzamiento, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_IF_ABSENT_SQL = "MERGE INTO funko t USING (VALUES (CAST(? AS UUID), " +
+            "CAST(? AS BIGINT), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(6)), CAST(? AS DECIMAL(10, 2)), " +
+            "CAST(? AS DATE), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP))) " +
+            "s(cod, myId, nombre, modelo, precio, fecha_lanzamiento, created_at, updated_at) ON t.cod = s.cod " +
+            "WHEN NOT MATCHED THEN INSERT (cod, myId, nombre, modelo, precio, fecha_lanzamiento, created_at, updated_at) " +
+            "VALUES (s.cod, s.myId, s.nombre, s.modelo, s.precio, s.fecha_lanzamiento, s.created_at, s.updated_at)";
+    private static final String UPSERT_SQL = "MERGE INTO funko t USING (VALUES (CAST(? AS UUID), " +
+            "CAST(? AS BIGINT), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(6)), CAST(? AS DECIMAL(10, 2)), " +
+            "CAST(? AS DATE), CAST(? AS TIMESTAMP), CAST(? AS TIMESTAMP))) " +
+            "s(cod, myId, nombre, modelo, precio, fecha_lanzamiento, created_at, updated_at) ON t.cod = s.cod " +
+            "WHEN MATCHED THEN UPDATE SET myId = s.myId, nombre = s.nombre, modelo = s.modelo, precio = s.precio, " +
+            "fecha_lanzamiento = s.fecha_lanzamiento, updated_at = s.updated_at " +
+            "WHEN NOT MATCHED THEN INSERT (cod, myId, nombre, modelo, precio, fecha_lanzamiento, created_at, updated_at) " +
+            "VALUES (s.cod, s.myId, s.nombre, s.modelo, s.precio, s.fecha_lanzamiento, s.created_at, s.updated_at)";
+    private static final String UPDATE_SQL = "UPDATE funko SET myId = ?, nombre = ?, modelo = ?, precio = ?, " +
+            "fecha_lanzamiento = ?, updated_at = ? WHERE cod = ?";
+    private static final String DELETE_SQL = "DELETE FROM funko WHERE cod = ?";
+    private static final String TOMBSTONE_SQL = "MERGE INTO funko_borrado KEY (cod) VALUES (CAST(? AS UUID), " +
+            "CAST(? AS TIMESTAMP))";
 
     /**
      * Constructor de la clase
@@ -47,6 +78,123 @@ public class FunkoRepositoryImpl implements FunkoRepository {
         return funkoRepositoryImplInstance;
     }
 
+    /**
+     * Convierte la fila actual del ResultSet en un Funko
+     *
+     * @param res ResultSet posicionado en la fila a convertir
+     * @return Funko de la fila
+     * @throws SQLException Si no se puede leer la fila
+     */
+    static Funko mapFunko(ResultSet res) throws SQLException {
+        return Funko.builder()
+                .cod(UUID.fromString(res.getString("cod")))
+                .myId(res.getLong("myId"))
+                .name(res.getString("nombre"))
+                .model(Model.valueOf(res.getString("modelo")))
+                .price(res.getDouble("precio"))
+                .releaseDate(res.getDate("fecha_lanzamiento").toLocalDate())
+                .updateAt(res.getTimestamp("updated_at").toLocalDateTime())
+                .build();
+    }
+
+    /**
+     * Devuelve los elementos que cumplen la consulta indicada de forma síncrona
+     *
+     * @param sql    Consulta SQL de tipo select
+     * @param params Parámetros de la consulta parametrizada
+     * @return Lista de elementos encontrados
+     * @throws SQLException Si no se puede realizar la consulta
+     */
+    private List<Funko> selectList(String sql, Object... params) throws SQLException {
+        return database.inTransaction(connection -> database.select(connection, sql, res -> {
+            List<Funko> list = new ArrayList<>();
+            while (res.next()) {
+                list.add(mapFunko(res));
+            }
+            return list;
+        }, params));
+    }
+
+    /**
+     * Devuelve los elementos que cumplen la consulta indicada
+     *
+     * @param sql       Consulta SQL de tipo select
+     * @param operation Nombre de la operación para el log de errores
+     * @param params    Parámetros de la consulta parametrizada
+     * @return Lista de elementos encontrados
+     */
+    private CompletableFuture<List<Funko>> findAllWhere(String sql, String operation, Object... params) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return selectList(sql, params);
+            } catch (SQLException e) {
+                String str = "Error en el " + operation + ": " + e;
+                logger.error(str);
+            }
+            return new ArrayList<>();
+        });
+    }
+
+    /**
+     * Devuelve una página de elementos ordenados por cod, empezando tras el cod indicado (paginación por clave).
+     * Recorre el índice único de cod desde la última clave leída, por lo que el coste de cada página no depende
+     * de cuántas se hayan leído antes, a diferencia de LIMIT/OFFSET
+     *
+     * @param afterCod Último cod de la página anterior o null para la primera página
+     * @param pageSize Número máximo de elementos de la página
+     * @return Elementos de la página
+     * @throws SQLException Si no se puede realizar la consulta
+     */
+    private List<Funko> findPage(String afterCod, int pageSize) throws SQLException {
+        if (afterCod == null) {
+            return selectList("SELECT * FROM funko ORDER BY cod LIMIT ?", pageSize);
+        }
+        return selectList("SELECT * FROM funko WHERE cod > ? ORDER BY cod LIMIT ?", afterCod, pageSize);
+    }
+
+    /**
+     * Devuelve una página de los elementos modificados desde la fecha indicada, ordenados por fecha de modificación
+     * y cod, empezando tras el último elemento leído (paginación por clave sobre el índice de updated_at)
+     *
+     * @param since    Fecha de modificación mínima
+     * @param after    Último elemento de la página anterior o null para la primera página
+     * @param pageSize Número máximo de elementos de la página
+     * @return Elementos de la página
+     * @throws SQLException Si no se puede realizar la consulta
+     */
+    private List<Funko> findUpdatedPage(LocalDateTime since, Funko after, int pageSize) throws SQLException {
+        if (after == null) {
+            return selectList("SELECT * FROM funko WHERE updated_at >= ? ORDER BY updated_at, cod LIMIT ?",
+                    since, pageSize);
+        }
+        return selectList("SELECT * FROM funko WHERE updated_at > ? OR (updated_at = ? AND cod > ?) " +
+                        "ORDER BY updated_at, cod LIMIT ?", after.getUpdateAt(), after.getUpdateAt(),
+                after.getCod().toString(), pageSize);
+    }
+
+    /**
+     * Escapa los comodines de LIKE del texto indicado y lo pasa a minúsculas
+     *
+     * @param text Texto a buscar
+     * @return Texto escapado
+     */
+    private String likeLiteral(String text) {
+        return escapeLike(text.toLowerCase());
+    }
+
+    /**
+     * Escapa los comodines de LIKE del texto indicado usando la barra invertida como carácter de escape
+     *
+     * @param text Texto a buscar
+     * @return Texto escapado
+     */
+    static String escapeLike(String text) {
+        return text
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
     /**
      * Devuelve todos los elementos del repositorio
      *
@@ -54,37 +202,142 @@ public class FunkoRepositoryImpl implements FunkoRepository {
      */
     @Override
     public CompletableFuture<List<Funko>> findAll() {
+        return findAllWhere("SELECT * FROM funko", "findAll");
+    }
+
+    /**
+     * Devuelve una página de elementos ordenados por cod, empezando tras el cod indicado
+     *
+     * @param afterCod Último cod de la página anterior o null para la primera página
+     * @param pageSize Número máximo de elementos de la página
+     * @return Elementos de la página
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findAll(String afterCod, int pageSize) {
         return CompletableFuture.supplyAsync(() -> {
-            List<Funko> list = new ArrayList<>();
-            var sql = "SELECT * FROM funko";
             try {
-                database.beginTransaction();
-                var res = database.select(sql);
-                if (res.isPresent()) {
-                    var resGet = res.get();
-                    while (resGet.next()) {
-                        list.add(Funko.builder()
-                                .cod(UUID.fromString(resGet.getString("cod")))
-                                .myId(resGet.getLong("myId"))
-                                .name(resGet.getString("nombre"))
-                                .model(Model.valueOf(resGet.getString("modelo")))
-                                .price(resGet.getDouble("precio"))
-                                .releaseDate(resGet.getDate("fecha_lanzamiento").toLocalDate())
-                                .updateAt(resGet.getTimestamp("updated_at").toLocalDateTime())
-                                .build());
+                return findPage(afterCod, pageSize);
+            } catch (SQLException e) {
+                String str = "Error en el findAll paginado: " + e;
+                logger.error(str);
+            }
+            return new ArrayList<>();
+        });
+    }
+
+    /**
+     * Devuelve todos los elementos ordenados por cod como un Stream perezoso que lee la tabla página a página.
+     * Solo hay una página en memoria a la vez y la conexión se devuelve al pool entre páginas, por lo que
+     * el consumidor puede tardar lo que necesite sin retener conexiones ni transacciones abiertas.
+     * Si falla la lectura de una página se registra el error y el Stream lanza IllegalStateException, para que
+     * un backup no se dé por bueno con solo parte de la tabla
+     *
+     * @param pageSize Número de elementos que se leen de cada vez
+     * @return Stream de todos los elementos
+     */
+    @Override
+    public Stream<Funko> streamAll(int pageSize) {
+        return streamPages("streamAll", pageSize,
+                last -> findPage(last == null ? null : last.getCod().toString(), pageSize));
+    }
+
+    /**
+     * Devuelve los elementos modificados (dados de alta, modificados o restaurados) desde la fecha indicada,
+     * ordenados por fecha de modificación y cod, como un Stream perezoso que lee la tabla página a página
+     * igual que streamAll
+     *
+     * @param since    Fecha de modificación mínima (incluida)
+     * @param pageSize Número de elementos que se leen de cada vez
+     * @return Stream de los elementos modificados
+     */
+    @Override
+    public Stream<Funko> streamUpdatedSince(LocalDateTime since, int pageSize) {
+        return streamPages("streamUpdatedSince", pageSize, last -> findUpdatedPage(since, last, pageSize));
+    }
+
+    /**
+     * Crea un Stream perezoso que pide a loader cada página a partir del último elemento de la anterior.
+     * La última página es la primera con menos de pageSize elementos
+     *
+     * @param operation Nombre de la operación para el log de errores
+     * @param pageSize  Número de elementos que se leen de cada vez
+     * @param loader    Lectura de la página que sigue al último elemento leído (null en la primera)
+     * @return Stream de los elementos de todas las páginas
+     */
+    private Stream<Funko> streamPages(String operation, int pageSize, PageLoader loader) {
+        Spliterator<Funko> pages = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT) {
+            private Iterator<Funko> page = Collections.emptyIterator();
+            private Funko last = null;
+            private boolean lastPage = false;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Funko> action) {
+                if (!page.hasNext()) {
+                    if (lastPage) {
+                        return false;
+                    }
+                    List<Funko> next;
+                    try {
+                        next = loader.load(last);
+                    } catch (SQLException e) {
+                        String str = "Error en el " + operation + ": " + e;
+                        logger.error(str);
+                        throw new IllegalStateException(str, e);
                     }
+                    lastPage = next.size() < pageSize;
+                    if (next.isEmpty()) {
+                        return false;
+                    }
+                    last = next.get(next.size() - 1);
+                    page = next.iterator();
                 }
-                database.commit();
+                action.accept(page.next());
+                return true;
+            }
+        };
+        return StreamSupport.stream(pages, false);
+    }
+
+    /**
+     * Lectura de una página de streamPages
+     */
+    @FunctionalInterface
+    private interface PageLoader {
+        List<Funko> load(Funko last) throws SQLException;
+    }
+
+    /**
+     * Devuelve los cods de los elementos borrados desde la fecha indicada que no se han vuelto a dar de alta.
+     * Cada borrado deja una marca en la tabla funko_borrado con su fecha
+     *
+     * @param since Fecha de borrado mínima (incluida)
+     * @return Cods de los elementos borrados
+     */
+    @Override
+    public CompletableFuture<List<String>> findDeletedSince(LocalDateTime since) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return database.inTransaction(connection -> database.select(connection,
+                        "SELECT b.cod FROM funko_borrado b WHERE b.deleted_at >= ? AND NOT EXISTS " +
+                                "(SELECT 1 FROM funko f WHERE f.cod = b.cod) ORDER BY b.deleted_at, b.cod", res -> {
+                            List<String> cods = new ArrayList<>();
+                            while (res.next()) {
+                                cods.add(res.getString(1));
+                            }
+                            return cods;
+                        }, since));
             } catch (SQLException e) {
-                String str = "Error en el findAll: " + e;
+                String str = "Error en el findDeletedSince: " + e;
                 logger.error(str);
+                throw new CompletionException(e);
             }
-            return list;
         });
     }
 
     /**
-     * Busca un elemento en el repositorio por su id
+     * Busca un elemento en el repositorio por su id. Si falla la consulta el futuro termina con error,
+     * para no confundir un fallo de la base de datos con un elemento inexistente
      *
      * @param id Id del elemento a buscar
      * @return Optional del elemento encontrado
@@ -92,28 +345,15 @@ public class FunkoRepositoryImpl implements FunkoRepository {
     @Override
     public CompletableFuture<Optional<Funko>> findById(String id) {
         return CompletableFuture.supplyAsync(() -> {
-            Optional<Funko> optReturn = Optional.empty();
             try {
-                database.beginTransaction();
                 var sql = "SELECT * FROM funko WHERE cod = ?";
-                var res = database.select(sql, id).orElseThrow();
-                if (res.next()) {
-                    optReturn = Optional.of(Funko.builder()
-                            .cod(UUID.fromString(res.getString("cod")))
-                            .myId(res.getLong("myId"))
-                            .name(res.getString("nombre"))
-                            .model(Model.valueOf(res.getString("modelo")))
-                            .price(res.getDouble("precio"))
-                            .releaseDate(res.getDate("fecha_lanzamiento").toLocalDate())
-                            .updateAt(res.getTimestamp("updated_at").toLocalDateTime())
-                            .build());
-                }
-                database.commit();
+                return database.inTransaction(connection -> database.select(connection, sql,
+                        res -> res.next() ? Optional.of(mapFunko(res)) : Optional.<Funko>empty(), id));
             } catch (SQLException e) {
                 String str = "Error en el findById: " + e;
                 logger.error(str);
+                throw new CompletionException(e);
             }
-            return optReturn;
         });
     }
 
@@ -121,33 +361,179 @@ public class FunkoRepositoryImpl implements FunkoRepository {
      * Guarda un elemento en el repositorio
      *
      * @param entity Elemento a guardar
-     * @return Optional del elemento guardado
+     * @return Optional del elemento guardado, vacío si no se ha podido guardar (por ejemplo, con un cod repetido)
      */
     @Override
     public CompletableFuture<Optional<Funko>> save(Funko entity) {
         return CompletableFuture.supplyAsync(() -> {
             entity.setUpdateAt(LocalDateTime.now());
-            var sql = "INSERT INTO funko (cod, myId, nombre, modelo, precio, fecha_lanzamiento, created_at, updated_at) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
             try {
-                database.beginTransaction();
-                database.insertAndGetKey(sql, entity.getCod().toString(),
+                database.inTransaction(connection -> database.insertAndGetKey(connection, INSERT_SQL, entity.getCod().toString(),
                         idGenerator.newId(),
                         entity.getName(),
                         entity.getModel().toString(),
                         entity.getPrice(),
                         entity.getReleaseDate(),
                         LocalDateTime.now(),
-                        entity.getUpdateAt());
-                database.commit();
+                        entity.getUpdateAt()));
             } catch (SQLException e) {
                 String str = "Error en el save: " + e;
                 logger.error(str);
+                return Optional.empty();
             }
             return Optional.of(entity);
         });
     }
 
+    /**
+     * Guarda una lista de elementos en el repositorio en una única transacción usando lotes JDBC.
+     * Los elementos cuyo cod ya existe (en la tabla o antes en la misma lista) se descartan sin invalidar
+     * la carga completa y no se incluyen en el resultado.
+     * Si falla algún lote se deshace la transacción completa y se devuelve una lista vacía
+     *
+     * @param entities Elementos a guardar
+     * @return Lista de elementos guardados (sin los descartados por cod repetido)
+     */
+    @Override
+    public CompletableFuture<List<Funko>> saveAll(List<Funko> entities) {
+        return CompletableFuture.supplyAsync(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> rows = new ArrayList<>(entities.size());
+            for (Funko entity : entities) {
+                entity.setUpdateAt(now);
+                rows.add(new Object[]{entity.getCod().toString(),
+                        idGenerator.newId(),
+                        entity.getName(),
+                        entity.getModel().toString(),
+                        entity.getPrice(),
+                        entity.getReleaseDate(),
+                        now,
+                        entity.getUpdateAt()});
+            }
+            try {
+                int[] applied = database.inTransaction(connection -> database.batch(connection, INSERT_IF_ABSENT_SQL, rows));
+                List<Funko> saved = new ArrayList<>(entities.size());
+                for (int i = 0; i < applied.length; i++) {
+                    if (applied[i] > 0) {
+                        saved.add(entities.get(i));
+                    }
+                }
+                return saved;
+            } catch (SQLException e) {
+                String str = "Error en el saveAll: " + e;
+                logger.error(str);
+            }
+            return List.of();
+        });
+    }
+
+    /**
+     * Guarda una lista de elementos en el repositorio en una única transacción usando lotes JDBC.
+     * Los elementos cuyo cod ya existe se sobrescriben y el resto se dan de alta, conservando su myId
+     * y su fecha de modificación. Si falla algún lote se deshace la transacción completa y se devuelve una lista vacía
+     *
+     * @param entities Elementos a guardar
+     * @return Lista de elementos guardados
+     */
+    @Override
+    public CompletableFuture<List<Funko>> upsertAll(List<Funko> entities) {
+        return CompletableFuture.supplyAsync(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> rows = new ArrayList<>(entities.size());
+            for (Funko entity : entities) {
+                rows.add(new Object[]{entity.getCod().toString(),
+                        entity.getMyId() == null ? idGenerator.newId() : entity.getMyId(),
+                        entity.getName(),
+                        entity.getModel().toString(),
+                        entity.getPrice(),
+                        entity.getReleaseDate(),
+                        now,
+                        entity.getUpdateAt() == null ? now : entity.getUpdateAt()});
+            }
+            try {
+                database.inTransaction(connection -> database.batch(connection, UPSERT_SQL, rows));
+                return entities;
+            } catch (SQLException e) {
+                String str = "Error en el upsertAll: " + e;
+                logger.error(str);
+            }
+            return List.of();
+        });
+    }
+
+    /**
+     * Escribe en una única transacción, con lotes JDBC, altas y modificaciones acumuladas.
+     * Las altas cuyo cod ya existe se descartan como en saveAll y las modificaciones de un cod que no existe
+     * no modifican nada; ambas se devuelven como no aplicadas. Las modificaciones siguen a las altas.
+     * Si falla la transacción se deshace completa y el futuro termina con error
+     *
+     * @param inserts Elementos a dar de alta por su cod
+     * @param updates Elementos a modificar por el cod de la fila que modifican
+     * @return Cods de las altas y modificaciones no aplicadas
+     */
+    @Override
+    public CompletableFuture<List<String>> writeAll(Map<String, Funko> inserts, Map<String, Funko> updates) {
+        return CompletableFuture.supplyAsync(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<String> insertIds = new ArrayList<>(inserts.keySet());
+            List<Object[]> insertRows = new ArrayList<>(inserts.size());
+            for (String id : insertIds) {
+                Funko entity = inserts.get(id);
+                insertRows.add(new Object[]{id,
+                        idGenerator.newId(),
+                        entity.getName(),
+                        entity.getModel().toString(),
+                        entity.getPrice(),
+                        entity.getReleaseDate(),
+                        now,
+                        entity.getUpdateAt()});
+            }
+            List<String> updateIds = new ArrayList<>(updates.keySet());
+            List<Object[]> updateRows = new ArrayList<>(updates.size());
+            for (String id : updateIds) {
+                Funko entity = updates.get(id);
+                updateRows.add(new Object[]{entity.getMyId(),
+                        entity.getName(),
+                        entity.getModel().toString(),
+                        entity.getPrice(),
+                        entity.getReleaseDate(),
+                        entity.getUpdateAt(),
+                        id});
+            }
+            try {
+                return database.inTransaction(connection -> {
+                    List<String> notApplied = new ArrayList<>();
+                    if (!insertRows.isEmpty()) {
+                        notApplied(database.batch(connection, INSERT_IF_ABSENT_SQL, insertRows), insertIds, notApplied);
+                    }
+                    if (!updateRows.isEmpty()) {
+                        notApplied(database.batch(connection, UPDATE_SQL, updateRows), updateIds, notApplied);
+                    }
+                    return notApplied;
+                });
+            } catch (SQLException e) {
+                String str = "Error en el writeAll: " + e;
+                logger.error(str);
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * Añade a la lista los cods de las filas de un lote que no han modificado ningún registro
+     *
+     * @param applied    Registros aplicados por cada fila del lote
+     * @param ids        Cods de las filas del lote, en el mismo orden
+     * @param notApplied Lista de cods no aplicados
+     */
+    private static void notApplied(int[] applied, List<String> ids, List<String> notApplied) {
+        for (int i = 0; i < applied.length; i++) {
+            if (applied[i] == 0) {
+                notApplied.add(ids.get(i));
+            }
+        }
+    }
+
     /**
      * Borra un elemento del repositorio
      *
@@ -157,11 +543,15 @@ public class FunkoRepositoryImpl implements FunkoRepository {
     @Override
     public CompletableFuture<Boolean> delete(String id) throws SQLException {
         return CompletableFuture.supplyAsync(() -> {
-            var sql = "DELETE FROM funko WHERE cod= ?";
+            LocalDateTime now = LocalDateTime.now();
             try {
-                database.beginTransaction();
-                var rs = database.delete(sql, id);
-                database.commit();
+                var rs = database.inTransaction(connection -> {
+                    int deleted = database.delete(connection, DELETE_SQL, id);
+                    if (deleted == 1) {
+                        database.update(connection, TOMBSTONE_SQL, id, now);
+                    }
+                    return deleted;
+                });
                 return (rs == 1);
             } catch (SQLException e) {
                 String str = "Error en el delete: " + e;
@@ -171,6 +561,44 @@ public class FunkoRepositoryImpl implements FunkoRepository {
         });
     }
 
+    /**
+     * Borra los elementos con los cods indicados en una única transacción usando lotes JDBC, dejando la marca
+     * de borrado de los que existían. Los cods que no existen se omiten
+     *
+     * @param ids Cods de los elementos a borrar
+     * @return Número de elementos borrados
+     */
+    @Override
+    public CompletableFuture<Integer> deleteAllById(List<String> ids) {
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> rows = new ArrayList<>(ids.size());
+            ids.forEach(id -> rows.add(new Object[]{id}));
+            try {
+                return database.inTransaction(connection -> {
+                    int[] applied = database.batch(connection, DELETE_SQL, rows);
+                    List<Object[]> tombstones = new ArrayList<>();
+                    for (int i = 0; i < applied.length; i++) {
+                        if (applied[i] > 0) {
+                            tombstones.add(new Object[]{ids.get(i), now});
+                        }
+                    }
+                    if (!tombstones.isEmpty()) {
+                        database.batch(connection, TOMBSTONE_SQL, tombstones);
+                    }
+                    return tombstones.size();
+                });
+            } catch (SQLException e) {
+                String str = "Error en el deleteAllById: " + e;
+                logger.error(str);
+            }
+            return 0;
+        });
+    }
+
     /**
      * Actualiza un elemento del repositorio
      *
@@ -182,19 +610,15 @@ public class FunkoRepositoryImpl implements FunkoRepository {
     public CompletableFuture<Optional<Funko>> update(String id, Funko entity) throws SQLException {
         return CompletableFuture.supplyAsync(() -> {
             entity.setUpdateAt(LocalDateTime.now());
-            var sql = "UPDATE funko SET myId = ?, nombre = ?, modelo = ?, precio = ?, fecha_lanzamiento = ?, " +
-                    "updated_at = ? WHERE cod = ?";
             try {
-                database.beginTransaction();
-                database.update(sql,
+                database.inTransaction(connection -> database.update(connection, UPDATE_SQL,
                         entity.getMyId(),
                         entity.getName(),
                         entity.getModel().toString(),
                         entity.getPrice(),
                         entity.getReleaseDate(),
                         entity.getUpdateAt(),
-                        id);
-                database.commit();
+                        id));
             } catch (SQLException e) {
                 String str = "Error en el update: " + e;
                 logger.error(str);
@@ -204,15 +628,55 @@ public class FunkoRepositoryImpl implements FunkoRepository {
     }
 
     /**
-     * Busca un elemento en el repositorio por su nombre
+     * Busca un elemento en el repositorio por su nombre, sin distinguir mayúsculas y minúsculas.
+     * Usa el índice sobre la columna nombre_busqueda (nombre en minúsculas)
      *
      * @param name Nombre del elemento a buscar
      * @return Lista de elementos encontrados
      */
     @Override
     public CompletableFuture<List<Funko>> findByName(String name) {
-        return findAll().thenApplyAsync(allFunkos -> allFunkos.stream()
-                .filter(p -> p.getName().equalsIgnoreCase(name.toLowerCase()))
-                .toList());
+        return findAllWhere("SELECT * FROM funko WHERE nombre_busqueda = ? ORDER BY id",
+                "findByName", name.toLowerCase());
+    }
+
+    /**
+     * Busca los elementos cuyo nombre empieza por el prefijo indicado, sin distinguir mayúsculas y minúsculas.
+     * Usa un rango del índice sobre nombre_busqueda
+     *
+     * @param prefix Prefijo del nombre
+     * @return Lista de elementos encontrados
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findByNameStartingWith(String prefix) {
+        return findAllWhere("SELECT * FROM funko WHERE nombre_busqueda LIKE ? ESCAPE '\\' ORDER BY nombre_busqueda, id",
+                "findByNameStartingWith", likeLiteral(prefix) + "%");
+    }
+
+    /**
+     * Busca los elementos cuyo nombre contiene el texto indicado, sin distinguir mayúsculas y minúsculas
+     *
+     * @param text Texto contenido en el nombre
+     * @return Lista de elementos encontrados
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findByNameContaining(String text) {
+        return findAllWhere("SELECT * FROM funko WHERE nombre_busqueda LIKE ? ESCAPE '\\' ORDER BY id",
+                "findByNameContaining", "%" + likeLiteral(text) + "%");
+    }
+
+    /**
+     * Busca los elementos con los cods indicados en una única consulta. Los cods que no existen se omiten
+     *
+     * @param ids Cods de los elementos a buscar
+     * @return Lista de elementos encontrados, sin orden garantizado
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findAllById(List<String> ids) {
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+        return findAllWhere("SELECT * FROM funko WHERE cod IN (" + String.join(", ", Collections.nCopies(ids.size(), "?"))
+                + ")", "findAllById", ids.toArray());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package com.madirex.repositories.funko;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.ModelCount;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interfaz que define las consultas de agregación sobre los Funkos
+ */
+public interface FunkoStatsRepository {
+    /**
+     * Devuelve el Funko de mayor precio
+     *
+     * @return Optional del Funko más caro
+     */
+    CompletableFuture<Optional<Funko>> findMostExpensive();
+
+    /**
+     * Devuelve el precio medio de los Funkos
+     *
+     * @return Optional del precio medio (vacío si no hay Funkos)
+     */
+    CompletableFuture<Optional<Double>> findAveragePrice();
+
+    /**
+     * Devuelve los Funkos agrupados por modelo
+     *
+     * @return Funkos de cada modelo
+     */
+    CompletableFuture<Map<Model, List<Funko>>> findGroupedByModel();
+
+    /**
+     * Devuelve el número de Funkos de cada modelo
+     *
+     * @return Número de Funkos por modelo
+     */
+    CompletableFuture<List<ModelCount>> countByModel();
+
+    /**
+     * Devuelve los Funkos lanzados en el año indicado
+     *
+     * @param year Año de lanzamiento
+     * @return Funkos lanzados en ese año
+     */
+    CompletableFuture<List<Funko>> findReleasedIn(int year);
+
+    /**
+     * Devuelve el número de Funkos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix Prefijo del nombre (distingue mayúsculas y minúsculas)
+     * @return Número de Funkos
+     */
+    CompletableFuture<Long> countByNameStartingWith(String prefix);
+
+    /**
+     * Devuelve los Funkos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix Prefijo del nombre (distingue mayúsculas y minúsculas)
+     * @return Funkos encontrados
+     */
+    CompletableFuture<List<Funko>> findByNameStartingWith(String prefix);
+}
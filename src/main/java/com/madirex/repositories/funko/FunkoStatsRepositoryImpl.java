@@ -0,0 +1,207 @@
+package com.madirex.repositories.funko;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.ModelCount;
+import com.madirex.services.database.DatabaseManager;
+import com.madirex.services.database.ResultSetHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Implementación de la interfaz FunkoStatsRepository.
+ * Las agregaciones se calculan en la base de datos, de forma que cada consulta solo transfiere su resultado
+ * en lugar de la tabla completa
+ */
+public class FunkoStatsRepositoryImpl implements FunkoStatsRepository {
+    private static FunkoStatsRepositoryImpl funkoStatsRepositoryImplInstance;
+    private final DatabaseManager database;
+    private final Logger logger = LoggerFactory.getLogger(FunkoStatsRepositoryImpl.class);
+    private static final String NAME_PREFIX_WHERE = " WHERE nombre_busqueda LIKE ? ESCAPE '\\' AND nombre LIKE ? ESCAPE '\\'";
+
+    /**
+     * Constructor de la clase
+     *
+     * @param database Instancia de la clase DatabaseManager
+     */
+    private FunkoStatsRepositoryImpl(DatabaseManager database) {
+        this.database = database;
+    }
+
+    /**
+     * Devuelve la instancia de la clase
+     *
+     * @param database Instancia de la clase DatabaseManager
+     * @return Instancia de la clase
+     */
+    public static synchronized FunkoStatsRepositoryImpl getInstance(DatabaseManager database) {
+        if (funkoStatsRepositoryImplInstance == null) {
+            funkoStatsRepositoryImplInstance = new FunkoStatsRepositoryImpl(database);
+        }
+        return funkoStatsRepositoryImplInstance;
+    }
+
+    /**
+     * Ejecuta una consulta de forma asíncrona. Si falla, registra el error y devuelve el valor por defecto
+     *
+     * @param operation Nombre de la operación para el log de errores
+     * @param fallback  Valor devuelto si la consulta falla
+     * @param sql       Consulta SQL de tipo select
+     * @param handler   Transforma el ResultSet en el resultado
+     * @param params    Parámetros de la consulta parametrizada
+     * @param <T>       Tipo del resultado
+     * @return Resultado de la consulta
+     */
+    private <T> CompletableFuture<T> query(String operation, T fallback, String sql, ResultSetHandler<T> handler,
+                                           Object... params) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return database.select(sql, handler, params);
+            } catch (SQLException e) {
+                String str = "Error en el " + operation + ": " + e;
+                logger.error(str);
+            }
+            return fallback;
+        });
+    }
+
+    /**
+     * Convierte todas las filas del ResultSet en Funkos
+     *
+     * @param res ResultSet a recorrer
+     * @return Lista de Funkos
+     * @throws SQLException Si no se puede leer alguna fila
+     */
+    private List<Funko> mapFunkos(ResultSet res) throws SQLException {
+        List<Funko> list = new ArrayList<>();
+        while (res.next()) {
+            list.add(FunkoRepositoryImpl.mapFunko(res));
+        }
+        return list;
+    }
+
+    /**
+     * Devuelve los parámetros de la condición por prefijo de nombre: el primero acota un rango del índice sobre
+     * nombre_busqueda y el segundo mantiene la distinción entre mayúsculas y minúsculas
+     *
+     * @param prefix Prefijo del nombre
+     * @return Parámetros de NAME_PREFIX_WHERE
+     */
+    private Object[] namePrefixParams(String prefix) {
+        return new Object[]{FunkoRepositoryImpl.escapeLike(prefix.toLowerCase()) + "%",
+                FunkoRepositoryImpl.escapeLike(prefix) + "%"};
+    }
+
+    /**
+     * Devuelve el Funko de mayor precio
+     *
+     * @return Optional del Funko más caro
+     */
+    @Override
+    public CompletableFuture<Optional<Funko>> findMostExpensive() {
+        return query("findMostExpensive", Optional.empty(), "SELECT * FROM funko ORDER BY precio DESC, id LIMIT 1",
+                res -> res.next() ? Optional.of(FunkoRepositoryImpl.mapFunko(res)) : Optional.empty());
+    }
+
+    /**
+     * Devuelve el precio medio de los Funkos
+     *
+     * @return Optional del precio medio (vacío si no hay Funkos)
+     */
+    @Override
+    public CompletableFuture<Optional<Double>> findAveragePrice() {
+        return query("findAveragePrice", Optional.empty(), "SELECT AVG(precio) FROM funko", res -> {
+            res.next();
+            double avg = res.getDouble(1);
+            return res.wasNull() ? Optional.empty() : Optional.of(avg);
+        });
+    }
+
+    /**
+     * Devuelve los Funkos agrupados por modelo. La base de datos los entrega ordenados por modelo,
+     * por lo que cada grupo se completa en una sola pasada
+     *
+     * @return Funkos de cada modelo
+     */
+    @Override
+    public CompletableFuture<Map<Model, List<Funko>>> findGroupedByModel() {
+        return query("findGroupedByModel", new EnumMap<>(Model.class), "SELECT * FROM funko ORDER BY modelo, id", res -> {
+            Map<Model, List<Funko>> groups = new EnumMap<>(Model.class);
+            while (res.next()) {
+                Funko funko = FunkoRepositoryImpl.mapFunko(res);
+                groups.computeIfAbsent(funko.getModel(), model -> new ArrayList<>()).add(funko);
+            }
+            return groups;
+        });
+    }
+
+    /**
+     * Devuelve el número de Funkos de cada modelo
+     *
+     * @return Número de Funkos por modelo
+     */
+    @Override
+    public CompletableFuture<List<ModelCount>> countByModel() {
+        return query("countByModel", new ArrayList<>(),
+                "SELECT modelo, COUNT(*) AS total FROM funko GROUP BY modelo ORDER BY modelo", res -> {
+                    List<ModelCount> counts = new ArrayList<>();
+                    while (res.next()) {
+                        counts.add(ModelCount.builder()
+                                .model(Model.valueOf(res.getString("modelo")))
+                                .count(res.getLong("total"))
+                                .build());
+                    }
+                    return counts;
+                });
+    }
+
+    /**
+     * Devuelve los Funkos lanzados en el año indicado.
+     * Se filtra por rango de fechas en lugar de YEAR(fecha_lanzamiento) para poder usar su índice
+     *
+     * @param year Año de lanzamiento
+     * @return Funkos lanzados en ese año
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findReleasedIn(int year) {
+        return query("findReleasedIn", new ArrayList<>(),
+                "SELECT * FROM funko WHERE fecha_lanzamiento >= ? AND fecha_lanzamiento < ? ORDER BY fecha_lanzamiento, id",
+                this::mapFunkos, LocalDate.of(year, 1, 1), LocalDate.of(year + 1, 1, 1));
+    }
+
+    /**
+     * Devuelve el número de Funkos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix Prefijo del nombre (distingue mayúsculas y minúsculas)
+     * @return Número de Funkos
+     */
+    @Override
+    public CompletableFuture<Long> countByNameStartingWith(String prefix) {
+        return query("countByNameStartingWith", 0L, "SELECT COUNT(*) FROM funko" + NAME_PREFIX_WHERE, res -> {
+            res.next();
+            return res.getLong(1);
+        }, namePrefixParams(prefix));
+    }
+
+    /**
+     * Devuelve los Funkos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix Prefijo del nombre (distingue mayúsculas y minúsculas)
+     * @return Funkos encontrados
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findByNameStartingWith(String prefix) {
+        return query("findByNameStartingWith", new ArrayList<>(),
+                "SELECT * FROM funko" + NAME_PREFIX_WHERE + " ORDER BY id", this::mapFunkos, namePrefixParams(prefix));
+    }
+}
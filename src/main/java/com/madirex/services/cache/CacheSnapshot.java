@@ -0,0 +1,80 @@
+package com.madirex.services.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Instantánea de las claves más usadas de una FunkoCache para precargarla al arrancar.
+ * Formato binario: cabecera "FKC1", número de claves y cada cod como dos long (16 bytes por clave),
+ * de la clave más usada a la menos usada. Solo se guardan las claves: los valores se vuelven a leer
+ * de la base de datos para no servir Funkos modificados mientras la aplicación estaba parada
+ */
+public final class CacheSnapshot {
+    private static final int MAGIC = 0x464B4331;
+
+    /**
+     * Constructor privado: clase de utilidades
+     */
+    private CacheSnapshot() {
+    }
+
+    /**
+     * Guarda las claves en el fichero. Se escribe en un fichero temporal que sustituye al anterior al terminar,
+     * así que un cierre a medias no deja una instantánea corrupta
+     *
+     * @param file Fichero de la instantánea
+     * @param keys Cods ordenados de más a menos usado
+     * @throws IOException Si no se puede escribir el fichero
+     */
+    public static void write(Path file, List<String> keys) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(keys.size());
+            for (String key : keys) {
+                UUID cod = UUID.fromString(key);
+                out.writeLong(cod.getMostSignificantBits());
+                out.writeLong(cod.getLeastSignificantBits());
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lee las claves del fichero
+     *
+     * @param file Fichero de la instantánea
+     * @return Cods ordenados de más a menos usado (vacío si el fichero no existe)
+     * @throws IOException Si el fichero no se puede leer o no es una instantánea
+     */
+    public static List<String> read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("El fichero no es una instantánea de caché: " + file);
+            }
+            int count = in.readInt();
+            List<String> keys = new ArrayList<>(Math.max(0, Math.min(count, 1 << 16)));
+            for (int i = 0; i < count; i++) {
+                keys.add(new UUID(in.readLong(), in.readLong()).toString());
+            }
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,630 @@
+package com.madirex.services.cache;
+
+import com.madirex.models.CacheStats;
+import com.madirex.models.Funko;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementación de la interfaz FunkoCache segura entre hilos.
+ * Los datos se guardan en un ConcurrentHashMap, de forma que las lecturas no bloquean. El orden LRU se mantiene
+ * en una lista doblemente enlazada que solo se modifica con el cerrojo de desalojo: las lecturas anotan el acceso
+ * en unos buffers por hilo con pérdida (si están llenos el acceso se descarta) que se vacían en la lista al
+ * tomar el cerrojo, y las escrituras toman el cerrojo para enlazar el nuevo elemento y desalojar los sobrantes.
+ * La caducidad la controla la propia caché con la hora de escritura y de último acceso de cada elemento.
+ * Como los tiempos de vida son fijos, la cola en orden de escritura y la lista LRU están también ordenadas por
+ * caducidad: la limpieza solo recorre sus cabezas mientras estén caducadas (coste proporcional a lo caducado,
+ * no al tamaño de la caché) y las lecturas descartan al momento los elementos caducados.
+ * Con la política W_TINY_LFU el orden LRU se reparte en tres listas (ventana, periodo de prueba y protegida)
+ * y un FrequencySketch decide qué elemento se queda cuando uno nuevo sale de la ventana; en ese caso las listas
+ * no siguen estrictamente el orden de último acceso y algunos caducados por acceso solo se descartan al leerlos
+ */
+public class ConcurrentFunkoCacheImpl implements FunkoCache {
+    private static final int READ_BUFFER_SIZE = 32;
+    private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+    private static final int READ_BUFFER_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+    private static final long MIN_CLEAN_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private final Logger logger = LoggerFactory.getLogger(ConcurrentFunkoCacheImpl.class);
+    private final int maxSize;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final ConcurrentHashMap<String, Node> data;
+    private final ReadBuffer[] readBuffers;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder putCount = new LongAdder();
+    private final LongAdder sizeEvictionCount = new LongAdder();
+    private final LongAdder expiryEvictionCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+    private final EvictionPolicy policy;
+    private final FrequencySketch sketch;
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    private final AccessDeque window = new AccessDeque();
+    private final AccessDeque probation = new AccessDeque();
+    private final AccessDeque protectedDeque = new AccessDeque();
+    private Node writeHead;
+    private Node writeTail;
+    @Getter
+    private final ScheduledExecutorService cleaner;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param maxSize        tamaño máximo de la caché
+     * @param secondsToClear segundos desde que se añade un Funko tras los que caduca
+     */
+    public ConcurrentFunkoCacheImpl(int maxSize, long secondsToClear) {
+        this(maxSize, Duration.ofSeconds(secondsToClear), null);
+    }
+
+    /**
+     * Constructor de la clase. La limpieza periódica se programa con el menor de los tiempos de vida
+     *
+     * @param maxSize           tamaño máximo de la caché
+     * @param expireAfterWrite  tiempo desde que se añade un Funko tras el que caduca (null para no caducar)
+     * @param expireAfterAccess tiempo sin consultar un Funko tras el que caduca (null para no caducar)
+     */
+    public ConcurrentFunkoCacheImpl(int maxSize, Duration expireAfterWrite, Duration expireAfterAccess) {
+        this(maxSize, expireAfterWrite, expireAfterAccess, EvictionPolicy.LRU);
+    }
+
+    /**
+     * Constructor de la clase. La limpieza periódica se programa con el menor de los tiempos de vida
+     *
+     * @param maxSize           tamaño máximo de la caché
+     * @param expireAfterWrite  tiempo desde que se añade un Funko tras el que caduca (null para no caducar)
+     * @param expireAfterAccess tiempo sin consultar un Funko tras el que caduca (null para no caducar)
+     * @param policy            política de desalojo
+     */
+    public ConcurrentFunkoCacheImpl(int maxSize, Duration expireAfterWrite, Duration expireAfterAccess,
+                                    EvictionPolicy policy) {
+        this.maxSize = maxSize;
+        this.policy = policy;
+        this.sketch = policy == EvictionPolicy.W_TINY_LFU ? new FrequencySketch(maxSize) : null;
+        this.windowMax = policy == EvictionPolicy.W_TINY_LFU ? Math.max(1, maxSize / 100) : maxSize;
+        this.mainMax = maxSize - windowMax;
+        this.protectedMax = mainMax * 4 / 5;
+        this.expireAfterWriteNanos = toNanos(expireAfterWrite);
+        this.expireAfterAccessNanos = toNanos(expireAfterAccess);
+        this.data = new ConcurrentHashMap<>(maxSize);
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        this.readBuffers = new ReadBuffer[stripes];
+        for (int i = 0; i < stripes; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+        this.cleaner = Executors.newSingleThreadScheduledExecutor();
+        long period = Math.min(expireAfterWriteNanos, expireAfterAccessNanos);
+        if (period != Long.MAX_VALUE) {
+            period = Math.max(period, MIN_CLEAN_PERIOD_NANOS);
+            this.cleaner.scheduleAtFixedRate(this::clear, period, period, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Convierte un tiempo de vida a nanosegundos. Sin tiempo de vida se usa Long.MAX_VALUE
+     *
+     * @param duration tiempo de vida o null
+     * @return nanosegundos
+     */
+    private static long toNanos(Duration duration) {
+        return duration == null || duration.isZero() || duration.isNegative() ? Long.MAX_VALUE : duration.toNanos();
+    }
+
+    /**
+     * Asigna un Funko a la caché. Si se supera el tamaño máximo se desaloja el usado hace más tiempo
+     *
+     * @param key   Id
+     * @param value Funko
+     */
+    @Override
+    public void put(String key, Funko value) {
+        String str = "Añadiendo Funko a caché con ID: " + key + " y valor: " + value;
+        logger.debug(str);
+        putCount.increment();
+        Node node = new Node(key, value, System.nanoTime());
+        Node old = data.put(key, node);
+        if (old != null) {
+            old.alive = false;
+        }
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            if (old != null) {
+                unlink(old);
+            }
+            if (node.alive) {
+                linkLast(node);
+            }
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+            expireEntries(System.nanoTime());
+            evictOverflow();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve el Funko de la caché sin bloquear. El acceso se anota para el orden LRU.
+     * Si el Funko ha caducado se saca del mapa y se devuelve null; se desenlaza en la siguiente limpieza
+     *
+     * @param key Id
+     * @return Funko o null si no está en la caché o ha caducado
+     */
+    @Override
+    public Funko get(String key) {
+        String str = "Obteniendo Funko de caché con ID: " + key;
+        logger.debug(str);
+        Node node = data.get(key);
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        long now = System.nanoTime();
+        if (isExpired(node, now)) {
+            missCount.increment();
+            if (data.remove(key, node)) {
+                node.alive = false;
+                expiryEvictionCount.increment();
+                logger.debug("Eliminado por caducidad Funko de caché con ID: " + key);
+            }
+            return null;
+        }
+        if (expireAfterAccessNanos != Long.MAX_VALUE) {
+            node.accessTime = now;
+        }
+        hitCount.increment();
+        ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId() & (readBuffers.length - 1)];
+        if (buffer.offer(node) >= READ_BUFFER_DRAIN_THRESHOLD && evictionLock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return node.value;
+    }
+
+    /**
+     * Elimina el Funko de la caché
+     *
+     * @param key Id
+     */
+    @Override
+    public void remove(String key) {
+        String str = "Eliminando Funko de caché con ID: " + key;
+        logger.debug(str);
+        Node node = data.remove(key);
+        if (node != null) {
+            node.alive = false;
+            evictionLock.lock();
+            try {
+                unlink(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Elimina los Funkos de la caché que hayan caducado. Solo recorre los elementos caducados
+     */
+    @Override
+    public void clear() {
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            expireEntries(System.nanoTime());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Registra el tiempo que se ha tardado en cargar un Funko tras un fallo de caché
+     *
+     * @param loadNanos Nanosegundos de la carga
+     */
+    @Override
+    public void recordLoad(long loadNanos) {
+        loadCount.increment();
+        totalLoadNanos.add(loadNanos);
+    }
+
+    /**
+     * Devuelve una instantánea de las estadísticas de la caché
+     *
+     * @return Estadísticas de la caché
+     */
+    @Override
+    public CacheStats getStats() {
+        return CacheStats.builder()
+                .hitCount(hitCount.sum())
+                .missCount(missCount.sum())
+                .putCount(putCount.sum())
+                .sizeEvictionCount(sizeEvictionCount.sum())
+                .expiryEvictionCount(expiryEvictionCount.sum())
+                .loadCount(loadCount.sum())
+                .totalLoadNanos(totalLoadNanos.sum())
+                .size(data.size())
+                .maxSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Devuelve las claves de la caché de la más usada a la menos usada: en LRU por último acceso y en
+     * W_TINY_LFU primero la lista protegida, después el periodo de prueba y por último la ventana
+     *
+     * @param limit Número máximo de claves
+     * @return Claves ordenadas por uso
+     */
+    @Override
+    public List<String> hottestKeys(int limit) {
+        List<String> keys = new ArrayList<>(Math.min(limit, data.size()));
+        evictionLock.lock();
+        try {
+            drainReadBuffers();
+            for (AccessDeque deque : new AccessDeque[]{protectedDeque, probation, window}) {
+                for (Node node = deque.tail; node != null && keys.size() < limit; node = node.prev) {
+                    if (node.alive) {
+                        keys.add(node.key);
+                    }
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        return keys;
+    }
+
+    /**
+     * Detiene la limpieza periódica de la caché
+     */
+    @Override
+    public void shutdown() {
+        cleaner.shutdown();
+    }
+
+    /**
+     * Devuelve el número de Funkos en la caché
+     *
+     * @return Número de Funkos
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * Aplica al orden LRU los accesos anotados en los buffers de lectura. Requiere el cerrojo de desalojo
+     */
+    private void drainReadBuffers() {
+        for (ReadBuffer buffer : readBuffers) {
+            buffer.drainTo(this);
+        }
+    }
+
+    /**
+     * Indica si un elemento ha caducado por tiempo desde su escritura o desde su último acceso
+     *
+     * @param node Elemento a comprobar
+     * @param now  Instante actual en nanosegundos
+     * @return ¿Caducado?
+     */
+    private boolean isExpired(Node node, long now) {
+        return now - node.writeTime >= expireAfterWriteNanos || now - node.accessTime >= expireAfterAccessNanos;
+    }
+
+    /**
+     * Elimina los elementos caducados de las cabezas de la cola de escritura y de las listas LRU.
+     * Todas están ordenadas por caducidad, así que se detiene en el primer elemento vigente.
+     * Requiere el cerrojo de desalojo
+     *
+     * @param now Instante actual en nanosegundos
+     */
+    private void expireEntries(long now) {
+        if (expireAfterWriteNanos != Long.MAX_VALUE) {
+            while (writeHead != null && (!writeHead.alive || now - writeHead.writeTime >= expireAfterWriteNanos)) {
+                expire(writeHead);
+            }
+        }
+        if (expireAfterAccessNanos != Long.MAX_VALUE) {
+            for (AccessDeque deque : new AccessDeque[]{window, probation, protectedDeque}) {
+                while (deque.head != null && (!deque.head.alive || now - deque.head.accessTime >= expireAfterAccessNanos)) {
+                    expire(deque.head);
+                }
+            }
+        }
+    }
+
+    /**
+     * Desenlaza un elemento caducado y lo saca del mapa si sigue en él. Requiere el cerrojo de desalojo
+     *
+     * @param node Elemento caducado
+     */
+    private void expire(Node node) {
+        unlink(node);
+        if (data.remove(node.key, node)) {
+            node.alive = false;
+            expiryEvictionCount.increment();
+            logger.debug("Eliminado por caducidad Funko de caché con ID: " + node.key);
+        }
+    }
+
+    /**
+     * Aplica un acceso a un elemento si sigue en la caché. Requiere el cerrojo de desalojo.
+     * En LRU y en las listas ventana y protegida lo mueve al final (más reciente) de su lista; en W_TINY_LFU
+     * un acceso en periodo de prueba lo asciende a la lista protegida, que si se llena devuelve su elemento
+     * usado hace más tiempo al periodo de prueba
+     *
+     * @param node Elemento accedido
+     */
+    private void onAccess(Node node) {
+        if (sketch != null) {
+            sketch.increment(node.key);
+        }
+        if (!node.linked) {
+            return;
+        }
+        if (node.deque != probation) {
+            node.deque.moveToBack(node);
+            return;
+        }
+        probation.unlink(node);
+        protectedDeque.linkLast(node);
+        if (protectedDeque.size > protectedMax) {
+            Node demoted = protectedDeque.head;
+            protectedDeque.unlink(demoted);
+            probation.linkLast(demoted);
+        }
+    }
+
+    /**
+     * Desaloja elementos mientras se supere el tamaño máximo. Requiere el cerrojo de desalojo.
+     * En LRU sale el usado hace más tiempo. En W_TINY_LFU, mientras la ventana supere su tamaño, su elemento
+     * más antiguo (candidato) pasa a periodo de prueba si la zona principal tiene sitio; si no, compite con el
+     * elemento más antiguo del periodo de prueba (víctima) y solo entra si su frecuencia estimada es mayor
+     */
+    private void evictOverflow() {
+        if (policy == EvictionPolicy.W_TINY_LFU) {
+            while (window.size > windowMax) {
+                Node candidate = window.head;
+                if (probation.size + protectedDeque.size < mainMax) {
+                    window.unlink(candidate);
+                    probation.linkLast(candidate);
+                    continue;
+                }
+                Node victim = probation.head != null ? probation.head : protectedDeque.head;
+                if (victim != null && !victim.alive) {
+                    evict(victim);
+                } else if (victim == null || !candidate.alive
+                        || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+                    evict(candidate);
+                } else {
+                    evict(victim);
+                    window.unlink(candidate);
+                    probation.linkLast(candidate);
+                }
+            }
+        }
+        while (data.size() > maxSize) {
+            Node victim = window.head;
+            if (policy == EvictionPolicy.W_TINY_LFU) {
+                victim = probation.head != null ? probation.head : protectedDeque.head != null ? protectedDeque.head : victim;
+            }
+            if (victim == null) {
+                return;
+            }
+            evict(victim);
+        }
+    }
+
+    /**
+     * Desenlaza un elemento desalojado por tamaño y lo saca del mapa si sigue en él. Requiere el cerrojo de desalojo
+     *
+     * @param victim Elemento desalojado
+     */
+    private void evict(Node victim) {
+        unlink(victim);
+        if (data.remove(victim.key, victim)) {
+            victim.alive = false;
+            sizeEvictionCount.increment();
+            logger.debug("Desalojado de caché Funko con ID: " + victim.key);
+        }
+    }
+
+    /**
+     * Enlaza un elemento nuevo al final de la ventana (la única lista en LRU) y de la cola de escritura.
+     * Requiere el cerrojo de desalojo
+     *
+     * @param node Elemento a enlazar
+     */
+    private void linkLast(Node node) {
+        window.linkLast(node);
+        node.writePrev = writeTail;
+        node.writeNext = null;
+        if (writeTail == null) {
+            writeHead = node;
+        } else {
+            writeTail.writeNext = node;
+        }
+        writeTail = node;
+        node.linked = true;
+    }
+
+    /**
+     * Desenlaza un elemento de su lista LRU y de la cola de escritura si estaba enlazado.
+     * Requiere el cerrojo de desalojo
+     *
+     * @param node Elemento a desenlazar
+     */
+    private void unlink(Node node) {
+        if (!node.linked) {
+            return;
+        }
+        node.deque.unlink(node);
+        if (node.writePrev == null) {
+            writeHead = node.writeNext;
+        } else {
+            node.writePrev.writeNext = node.writeNext;
+        }
+        if (node.writeNext == null) {
+            writeTail = node.writePrev;
+        } else {
+            node.writeNext.writePrev = node.writePrev;
+        }
+        node.writePrev = null;
+        node.writeNext = null;
+        node.linked = false;
+    }
+
+    /**
+     * Lista doblemente enlazada en orden de acceso (la cabeza es el usado hace más tiempo).
+     * Solo se modifica con el cerrojo de desalojo
+     */
+    private static final class AccessDeque {
+        private Node head;
+        private Node tail;
+        private int size;
+
+        /**
+         * Enlaza un elemento al final de la lista
+         *
+         * @param node Elemento a enlazar
+         */
+        private void linkLast(Node node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            node.deque = this;
+            size++;
+        }
+
+        /**
+         * Desenlaza un elemento de la lista
+         *
+         * @param node Elemento a desenlazar
+         */
+        private void unlink(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.deque = null;
+            size--;
+        }
+
+        /**
+         * Mueve un elemento de la lista a su final
+         *
+         * @param node Elemento accedido
+         */
+        private void moveToBack(Node node) {
+            if (node != tail) {
+                unlink(node);
+                linkLast(node);
+            }
+        }
+    }
+
+    /**
+     * Elemento de la caché. Los enlaces de las listas y linked solo se modifican con el cerrojo de desalojo;
+     * alive pasa a false cuando el elemento sale del mapa, para que no se vuelva a enlazar
+     */
+    private static final class Node {
+        private final String key;
+        private final Funko value;
+        private final long writeTime;
+        private volatile long accessTime;
+        private volatile boolean alive = true;
+        private boolean linked;
+        private AccessDeque deque;
+        private Node prev;
+        private Node next;
+        private Node writePrev;
+        private Node writeNext;
+
+        private Node(String key, Funko value, long writeTime) {
+            this.key = key;
+            this.value = value;
+            this.writeTime = writeTime;
+            this.accessTime = writeTime;
+        }
+    }
+
+    /**
+     * Buffer circular de accesos con pérdida: varios hilos escriben sin bloquear y un único hilo
+     * (el que tiene el cerrojo de desalojo) lo vacía
+     */
+    private static final class ReadBuffer {
+        private final AtomicReferenceArray<Node> slots = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private final AtomicLong readCounter = new AtomicLong();
+
+        /**
+         * Anota un acceso. Si el buffer está lleno o hay contención el acceso se descarta
+         *
+         * @param node Elemento accedido
+         * @return Número de accesos pendientes de aplicar
+         */
+        private long offer(Node node) {
+            long write = writeCounter.get();
+            long pending = write - readCounter.get();
+            if (pending < READ_BUFFER_SIZE && writeCounter.compareAndSet(write, write + 1)) {
+                slots.lazySet((int) (write & READ_BUFFER_MASK), node);
+                return pending + 1;
+            }
+            return pending;
+        }
+
+        /**
+         * Aplica los accesos anotados. Requiere el cerrojo de desalojo
+         *
+         * @param cache Caché a la que pertenece el buffer
+         */
+        private void drainTo(ConcurrentFunkoCacheImpl cache) {
+            long read = readCounter.get();
+            long write = writeCounter.get();
+            for (; read < write; read++) {
+                int index = (int) (read & READ_BUFFER_MASK);
+                Node node = slots.get(index);
+                if (node == null) {
+                    break;
+                }
+                slots.lazySet(index, null);
+                cache.onAccess(node);
+            }
+            readCounter.lazySet(read);
+        }
+    }
+}
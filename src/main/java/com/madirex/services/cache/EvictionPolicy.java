@@ -0,0 +1,17 @@
+package com.madirex.services.cache;
+
+/**
+ * Política de desalojo de la caché cuando se supera su tamaño máximo
+ */
+public enum EvictionPolicy {
+    /**
+     * Desaloja el elemento usado hace más tiempo
+     */
+    LRU,
+    /**
+     * Window TinyLFU: los elementos nuevos entran en una ventana LRU pequeña (1%) y, al salir de ella, solo
+     * sustituyen a un elemento de la zona principal (LRU segmentada) si se han consultado con más frecuencia.
+     * Resiste los recorridos y ráfagas de elementos que se consultan una sola vez
+     */
+    W_TINY_LFU
+}
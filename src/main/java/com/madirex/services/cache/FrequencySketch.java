@@ -0,0 +1,117 @@
+package com.madirex.services.cache;
+
+/**
+ * Estimador de la frecuencia de acceso de las claves (count-min sketch) con contadores de 4 bits.
+ * Cada clave se reparte en 4 contadores y su frecuencia es el menor de ellos, de forma que las colisiones
+ * solo pueden sobreestimarla. Cuando se han anotado 10 accesos por elemento de la caché todos los contadores
+ * se dividen entre 2, para que la frecuencia refleje la popularidad reciente.
+ * No es seguro entre hilos: la caché solo lo usa con su cerrojo de desalojo
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param maximumSize tamaño máximo de la caché
+     */
+    FrequencySketch(int maximumSize) {
+        int size = Math.max(maximumSize, 8);
+        int length = Integer.highestOneBit(size - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * Math.max(maximumSize, 1);
+    }
+
+    /**
+     * Devuelve la frecuencia estimada de la clave
+     *
+     * @param key clave
+     * @return frecuencia entre 0 y 15
+     */
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xfL));
+        }
+        return frequency;
+    }
+
+    /**
+     * Anota un acceso a la clave
+     *
+     * @param key clave
+     */
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            int offset = offsetOf(hash, i);
+            if (((table[index] >>> offset) & 0xfL) < MAX_COUNT) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Divide entre 2 todos los contadores
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    /**
+     * Devuelve la posición en la tabla del contador i de la clave
+     *
+     * @param hash hash de la clave
+     * @param i    número de contador
+     * @return posición en la tabla
+     */
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    /**
+     * Devuelve el desplazamiento en bits del contador i de la clave dentro de su long (16 contadores de 4 bits)
+     *
+     * @param hash hash de la clave
+     * @param i    número de contador
+     * @return desplazamiento en bits
+     */
+    private int offsetOf(int hash, int i) {
+        return ((hash >>> (i << 3)) & 0xf) << 2;
+    }
+
+    /**
+     * Mezcla los bits del hash de la clave
+     *
+     * @param x hash de la clave
+     * @return hash mezclado
+     */
+    private static int spread(int x) {
+        x ^= x >>> 17;
+        x *= 0xed5ad4bb;
+        x ^= x >>> 11;
+        x *= 0xac4c1b51;
+        x ^= x >>> 15;
+        return x;
+    }
+}
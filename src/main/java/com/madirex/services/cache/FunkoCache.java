@@ -1,9 +1,33 @@
 package com.madirex.services.cache;
 
+import com.madirex.models.CacheStats;
 import com.madirex.models.Funko;
 
+import java.util.List;
+
 /**
  * Interfaz para la implementación de una caché
  */
 public interface FunkoCache extends Cache<String, Funko> {
-}
\ No newline at end of file
+    /**
+     * Registra el tiempo que se ha tardado en cargar un Funko tras un fallo de caché
+     *
+     * @param loadNanos Nanosegundos de la carga
+     */
+    void recordLoad(long loadNanos);
+
+    /**
+     * Devuelve una instantánea de las estadísticas de la caché
+     *
+     * @return Estadísticas de la caché
+     */
+    CacheStats getStats();
+
+    /**
+     * Devuelve las claves de la caché de la más usada a la menos usada
+     *
+     * @param limit Número máximo de claves
+     * @return Claves ordenadas por uso
+     */
+    List<String> hottestKeys(int limit);
+}
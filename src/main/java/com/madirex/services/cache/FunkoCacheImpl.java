@@ -1,25 +1,39 @@
 package com.madirex.services.cache;
 
+import com.madirex.models.CacheStats;
 import com.madirex.models.Funko;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Implementación de la interfaz FunkoCache
+ * No es segura entre hilos: incluso get modifica el orden de acceso del LinkedHashMap.
+ * Para compartirla entre hilos usar ConcurrentFunkoCacheImpl
  */
 public class FunkoCacheImpl implements FunkoCache {
     private final Logger logger = LoggerFactory.getLogger(FunkoCacheImpl.class);
     private final int maxSize;
     private final long secondsToClear;
     private final Map<String, Funko> cache;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder putCount = new LongAdder();
+    private final LongAdder sizeEvictionCount = new LongAdder();
+    private final LongAdder expiryEvictionCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
     @Getter
     private final ScheduledExecutorService cleaner;
 
@@ -36,7 +50,11 @@ public class FunkoCacheImpl implements FunkoCache {
         this.cache = new LinkedHashMap<String, Funko>(maxSize, 0.75f, true) {
             @Override
             protected boolean removeEldestEntry(Map.Entry<String, Funko> eldest) {
-                return size() > maxSize;
+                boolean evict = size() > maxSize;
+                if (evict) {
+                    sizeEvictionCount.increment();
+                }
+                return evict;
             }
         };
         this.cleaner = Executors.newSingleThreadScheduledExecutor();
@@ -53,6 +71,7 @@ public class FunkoCacheImpl implements FunkoCache {
     public void put(String key, Funko value) {
         String str = "Añadiendo Funko a caché con ID: " + key + " y valor: " + value;
         logger.debug(str);
+        putCount.increment();
         cache.put(key, value);
     }
 
@@ -66,7 +85,9 @@ public class FunkoCacheImpl implements FunkoCache {
     public Funko get(String key) {
         String str = "Obteniendo Funko de caché con ID: " + key;
         logger.debug(str);
-        return cache.get(key);
+        Funko funko = cache.get(key);
+        (funko == null ? missCount : hitCount).increment();
+        return funko;
     }
 
     /**
@@ -89,12 +110,57 @@ public class FunkoCacheImpl implements FunkoCache {
         cache.entrySet().removeIf(entry -> {
             boolean shouldRemove = entry.getValue().getUpdateAt().plusSeconds(secondsToClear).isBefore(LocalDateTime.now());
             if (shouldRemove) {
+                expiryEvictionCount.increment();
                 logger.debug("Eliminado por caducidad Funko de caché con ID: " + entry.getKey());
             }
             return shouldRemove;
         });
     }
 
+    /**
+     * Registra el tiempo que se ha tardado en cargar un Funko tras un fallo de caché
+     *
+     * @param loadNanos Nanosegundos de la carga
+     */
+    @Override
+    public void recordLoad(long loadNanos) {
+        loadCount.increment();
+        totalLoadNanos.add(loadNanos);
+    }
+
+    /**
+     * Devuelve una instantánea de las estadísticas de la caché
+     *
+     * @return Estadísticas de la caché
+     */
+    @Override
+    public CacheStats getStats() {
+        return CacheStats.builder()
+                .hitCount(hitCount.sum())
+                .missCount(missCount.sum())
+                .putCount(putCount.sum())
+                .sizeEvictionCount(sizeEvictionCount.sum())
+                .expiryEvictionCount(expiryEvictionCount.sum())
+                .loadCount(loadCount.sum())
+                .totalLoadNanos(totalLoadNanos.sum())
+                .size(cache.size())
+                .maxSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Devuelve las claves de la caché de la usada más recientemente a la usada hace más tiempo
+     *
+     * @param limit Número máximo de claves
+     * @return Claves ordenadas por uso
+     */
+    @Override
+    public List<String> hottestKeys(int limit) {
+        List<String> keys = new ArrayList<>(cache.keySet());
+        Collections.reverse(keys);
+        return keys.subList(0, Math.min(limit, keys.size()));
+    }
+
     /**
      * Elimina todos los Funkos de la caché
      */
@@ -0,0 +1,123 @@
+package com.madirex.services.cache;
+
+import com.madirex.models.CacheStats;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * MXBean que publica por JMX las estadísticas de una FunkoCache con el nombre com.madirex:type=FunkoCache,name=...
+ * Cada atributo lee una instantánea nueva de la caché
+ */
+public class FunkoCacheStats implements FunkoCacheStatsMXBean {
+    private final FunkoCache cache;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param cache caché cuyas estadísticas se publican
+     */
+    private FunkoCacheStats(FunkoCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Registra las estadísticas de la caché en el servidor de MBeans de la plataforma.
+     * Si ya había un MBean con ese nombre se sustituye
+     *
+     * @param name  nombre de la caché
+     * @param cache caché cuyas estadísticas se publican
+     * @return nombre del MBean registrado
+     * @throws JMException si no se puede registrar el MBean
+     */
+    public static ObjectName register(String name, FunkoCache cache) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(new FunkoCacheStats(cache), objectName);
+        return objectName;
+    }
+
+    /**
+     * Elimina del servidor de MBeans de la plataforma las estadísticas de la caché
+     *
+     * @param name nombre de la caché
+     * @throws JMException si no se puede eliminar el MBean
+     */
+    public static void unregister(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    /**
+     * Devuelve el nombre JMX de las estadísticas de la caché
+     *
+     * @param name nombre de la caché
+     * @return nombre del MBean
+     * @throws JMException si el nombre no es válido
+     */
+    public static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("com.madirex:type=FunkoCache,name=" + ObjectName.quote(name));
+    }
+
+    private CacheStats stats() {
+        return cache.getStats();
+    }
+
+    @Override
+    public long getHitCount() {
+        return stats().getHitCount();
+    }
+
+    @Override
+    public long getMissCount() {
+        return stats().getMissCount();
+    }
+
+    @Override
+    public double getHitRate() {
+        return stats().getHitRate();
+    }
+
+    @Override
+    public long getPutCount() {
+        return stats().getPutCount();
+    }
+
+    @Override
+    public long getSizeEvictionCount() {
+        return stats().getSizeEvictionCount();
+    }
+
+    @Override
+    public long getExpiryEvictionCount() {
+        return stats().getExpiryEvictionCount();
+    }
+
+    @Override
+    public long getLoadCount() {
+        return stats().getLoadCount();
+    }
+
+    @Override
+    public double getAverageLoadMillis() {
+        return stats().getAverageLoadMillis();
+    }
+
+    @Override
+    public long getSize() {
+        return stats().getSize();
+    }
+
+    @Override
+    public long getMaxSize() {
+        return stats().getMaxSize();
+    }
+}
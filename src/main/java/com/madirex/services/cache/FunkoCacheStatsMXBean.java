@@ -0,0 +1,26 @@
+package com.madirex.services.cache;
+
+/**
+ * Estadísticas de una FunkoCache publicadas por JMX
+ */
+public interface FunkoCacheStatsMXBean {
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getPutCount();
+
+    long getSizeEvictionCount();
+
+    long getExpiryEvictionCount();
+
+    long getLoadCount();
+
+    double getAverageLoadMillis();
+
+    long getSize();
+
+    long getMaxSize();
+}
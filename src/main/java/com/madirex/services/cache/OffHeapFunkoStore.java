@@ -0,0 +1,583 @@
+package com.madirex.services.cache;
+
+import com.madirex.models.CacheStats;
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Almacén de Funkos fuera del heap pensado como segundo nivel de una caché grande (ver TieredFunkoCache).
+ * Cada Funko se serializa en una ranura de tamaño fijo (SLOT_SIZE bytes) dentro de bloques de memoria directa
+ * (ByteBuffer.allocateDirect) que se reservan según se van necesitando, así que los Funkos guardados no son
+ * objetos del heap y no engordan la generación vieja ni alargan las pausas del GC.
+ * El índice es una tabla hash de direccionamiento abierto sobre un int[] con el número de ranura; la clave
+ * (el cod) se guarda en la propia ranura, por lo que el heap solo ocupa 4 bytes por hueco de la tabla.
+ * Las claves deben ser cods (UUID) y los nombres caber en la ranura (MAX_NAME_BYTES en UTF-8): el resto no
+ * se guarda. Al llenarse se desaloja con el algoritmo del reloj (segunda oportunidad).
+ * No hay limpieza periódica: los Funkos caducados se liberan al consultarlos o cuando el reloj pasa por ellos,
+ * que los desaloja antes que a cualquier Funko vigente.
+ * La memoria directa está limitada por -XX:MaxDirectMemorySize y se libera al detener el almacén
+ */
+public class OffHeapFunkoStore implements Cache<String, Funko> {
+    public static final int SLOT_SIZE = 128;
+    private static final int SLOTS_PER_SLAB = 8192;
+    private static final int COD_MSB = 0;
+    private static final int COD_LSB = 8;
+    private static final int WRITE_MILLIS = 16;
+    private static final int MY_ID = 24;
+    private static final int PRICE = 32;
+    private static final int RELEASE_DATE = 40;
+    private static final int UPDATE_AT_SECONDS = 48;
+    private static final int UPDATE_AT_NANOS = 56;
+    private static final int MODEL = 60;
+    private static final int FLAGS = 61;
+    private static final int NAME_LENGTH = 62;
+    private static final int NAME = 64;
+    public static final int MAX_NAME_BYTES = SLOT_SIZE - NAME;
+    private static final byte USED = 1;
+    private static final byte REFERENCED = 2;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private final Logger logger = LoggerFactory.getLogger(OffHeapFunkoStore.class);
+    private final int capacity;
+    private final long expireAfterWriteMillis;
+    private final ByteBuffer[] slabs;
+    private final int[] table;
+    private final int tableMask;
+    private final int[] freeSlots;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder putCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder sizeEvictionCount = new LongAdder();
+    private final LongAdder expiryEvictionCount = new LongAdder();
+    private int freeCount;
+    private int nextUnusedSlot;
+    private int size;
+    private int clockHand;
+
+    /**
+     * Constructor de la clase. Los bloques de memoria directa se reservan según se llenan, no al construir
+     *
+     * @param capacity         número máximo de Funkos
+     * @param expireAfterWrite tiempo desde que se añade un Funko tras el que caduca (null para no caducar)
+     */
+    public OffHeapFunkoStore(int capacity, Duration expireAfterWrite) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad del almacén fuera del heap debe ser positiva: " + capacity);
+        }
+        this.capacity = capacity;
+        this.expireAfterWriteMillis = expireAfterWrite == null || expireAfterWrite.isZero()
+                || expireAfterWrite.isNegative() ? Long.MAX_VALUE : expireAfterWrite.toMillis();
+        this.slabs = new ByteBuffer[(capacity + SLOTS_PER_SLAB - 1) / SLOTS_PER_SLAB];
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) * 2;
+        this.table = new int[tableSize];
+        this.tableMask = tableSize - 1;
+        this.freeSlots = new int[capacity];
+    }
+
+    /**
+     * Guarda un Funko serializado en una ranura. Si ya estaba se sobrescribe su ranura; si el almacén está lleno
+     * se desaloja otro con el algoritmo del reloj. Si la clave no es un cod o el nombre no cabe no se guarda,
+     * y se elimina la versión anterior del Funko si la había para no seguir sirviéndola
+     *
+     * @param key   Cod del Funko
+     * @param value Funko
+     */
+    @Override
+    public void put(String key, Funko value) {
+        UUID cod = parseCod(key);
+        byte[] name = value.getName() == null ? null : value.getName().getBytes(StandardCharsets.UTF_8);
+        if (cod == null || (name != null && name.length > MAX_NAME_BYTES)) {
+            rejectedCount.increment();
+            logger.debug("Funko no admitido en el almacén fuera del heap con ID: " + key);
+            if (cod != null) {
+                remove(key);
+            }
+            return;
+        }
+        putCount.increment();
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(cod);
+            int slot = index >= 0 ? table[index] - 1 : allocateSlot();
+            write(slot, cod, value, name);
+            if (index < 0) {
+                insert(cod, slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve una copia del Funko guardado. No bloquea a otras lecturas salvo si ha caducado,
+     * en cuyo caso se libera su ranura con el cerrojo de escritura
+     *
+     * @param key Cod del Funko
+     * @return Funko o null si no está, ha caducado o la clave no es un cod
+     */
+    @Override
+    public Funko get(String key) {
+        UUID cod = parseCod(key);
+        if (cod == null) {
+            missCount.increment();
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            int index = indexOf(cod);
+            if (index < 0) {
+                missCount.increment();
+                return null;
+            }
+            int slot = table[index] - 1;
+            ByteBuffer slab = slab(slot);
+            int base = offset(slot);
+            if (!isExpired(slab, base, System.currentTimeMillis())) {
+                slab.put(base + FLAGS, (byte) (USED | REFERENCED));
+                hitCount.increment();
+                return read(slab, base, cod);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        missCount.increment();
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(cod);
+            if (index >= 0) {
+                int slot = table[index] - 1;
+                if (isExpired(slab(slot), offset(slot), System.currentTimeMillis())) {
+                    release(index);
+                    expiryEvictionCount.increment();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return null;
+    }
+
+    /**
+     * Elimina un Funko del almacén
+     *
+     * @param key Cod del Funko
+     */
+    @Override
+    public void remove(String key) {
+        UUID cod = parseCod(key);
+        if (cod == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int index = indexOf(cod);
+            if (index >= 0) {
+                release(index);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Elimina los Funkos caducados. No se llama periódicamente (los caducados se liberan al consultarlos o al
+     * desalojar); si se llama, recorre las ranuras bloque a bloque soltando el cerrojo de escritura entre bloques
+     * para no detener las lecturas durante todo el recorrido
+     */
+    @Override
+    public void clear() {
+        if (expireAfterWriteMillis == Long.MAX_VALUE) {
+            return;
+        }
+        for (int from = 0; ; from += SLOTS_PER_SLAB) {
+            lock.writeLock().lock();
+            try {
+                if (from >= nextUnusedSlot) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                for (int slot = from; slot < Math.min(from + SLOTS_PER_SLAB, nextUnusedSlot); slot++) {
+                    ByteBuffer slab = slab(slot);
+                    int base = offset(slot);
+                    if ((slab.get(base + FLAGS) & USED) != 0 && isExpired(slab, base, now)) {
+                        release(indexOf(codAt(slab, base)));
+                        expiryEvictionCount.increment();
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Suelta los bloques de memoria directa para que se puedan liberar
+     */
+    @Override
+    public void shutdown() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(slabs, null);
+            Arrays.fill(table, 0);
+            size = 0;
+            freeCount = 0;
+            nextUnusedSlot = 0;
+            clockHand = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve hasta limit claves vigentes del almacén, sin un orden concreto
+     *
+     * @param limit Número máximo de claves
+     * @return Cods guardados
+     */
+    public List<String> keys(int limit) {
+        lock.readLock().lock();
+        try {
+            List<String> keys = new ArrayList<>(Math.min(limit, size));
+            long now = System.currentTimeMillis();
+            for (int slot = 0; slot < nextUnusedSlot && keys.size() < limit; slot++) {
+                ByteBuffer slab = slab(slot);
+                int base = offset(slot);
+                if ((slab.get(base + FLAGS) & USED) != 0 && !isExpired(slab, base, now)) {
+                    keys.add(codAt(slab, base).toString());
+                }
+            }
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve el número de Funkos guardados, incluidos los caducados que aún no se han liberado
+     *
+     * @return Número de Funkos
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve el número máximo de Funkos
+     *
+     * @return Capacidad
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Devuelve los bytes de memoria directa reservados
+     *
+     * @return Bytes fuera del heap
+     */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (ByteBuffer slab : slabs) {
+                bytes += slab == null ? 0 : slab.capacity();
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve una instantánea de las estadísticas del almacén. Los Funkos no admitidos no cuentan como inserciones
+     *
+     * @return Estadísticas del almacén
+     */
+    public CacheStats getStats() {
+        return CacheStats.builder()
+                .hitCount(hitCount.sum())
+                .missCount(missCount.sum())
+                .putCount(putCount.sum())
+                .sizeEvictionCount(sizeEvictionCount.sum())
+                .expiryEvictionCount(expiryEvictionCount.sum())
+                .size(size())
+                .maxSize(capacity)
+                .build();
+    }
+
+    /**
+     * Devuelve el número de Funkos que no se han guardado por no tener un cod como clave o por no caber
+     *
+     * @return Funkos no admitidos
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Convierte una clave en cod
+     *
+     * @param key Clave
+     * @return Cod o null si la clave no es un UUID
+     */
+    private static UUID parseCod(String key) {
+        try {
+            return key == null ? null : UUID.fromString(key);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Posición inicial de búsqueda de un cod en la tabla
+     *
+     * @param cod Cod
+     * @return Posición en la tabla
+     */
+    private int hash(UUID cod) {
+        long h = cod.getMostSignificantBits() ^ cod.getLeastSignificantBits();
+        h *= 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+
+    /**
+     * Busca un cod en la tabla con sondeo lineal. Requiere el cerrojo (de lectura o escritura)
+     *
+     * @param cod Cod
+     * @return Posición en la tabla o -1 si no está
+     */
+    private int indexOf(UUID cod) {
+        for (int i = hash(cod); table[i] != 0; i = (i + 1) & tableMask) {
+            int slot = table[i] - 1;
+            ByteBuffer slab = slab(slot);
+            int base = offset(slot);
+            if (slab.getLong(base + COD_MSB) == cod.getMostSignificantBits()
+                    && slab.getLong(base + COD_LSB) == cod.getLeastSignificantBits()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Añade un cod a la tabla. Requiere el cerrojo de escritura
+     *
+     * @param cod  Cod
+     * @param slot Ranura donde está guardado
+     */
+    private void insert(UUID cod, int slot) {
+        int i = hash(cod);
+        while (table[i] != 0) {
+            i = (i + 1) & tableMask;
+        }
+        table[i] = slot + 1;
+        size++;
+    }
+
+    /**
+     * Saca de la tabla el elemento de una posición y libera su ranura. Los elementos siguientes del mismo grupo
+     * se desplazan hacia atrás para que el sondeo lineal no necesite marcas de borrado.
+     * Requiere el cerrojo de escritura
+     *
+     * @param index Posición en la tabla
+     */
+    private void release(int index) {
+        int slot = table[index] - 1;
+        slab(slot).put(offset(slot) + FLAGS, (byte) 0);
+        freeSlots[freeCount++] = slot;
+        size--;
+        int hole = index;
+        for (int i = (index + 1) & tableMask; table[i] != 0; i = (i + 1) & tableMask) {
+            int moved = table[i] - 1;
+            int home = hash(codAt(slab(moved), offset(moved)));
+            if (((i - home) & tableMask) >= ((i - hole) & tableMask)) {
+                table[hole] = table[i];
+                hole = i;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    /**
+     * Devuelve una ranura libre: una liberada, una sin usar todavía o, si el almacén está lleno, la de un
+     * Funko desalojado. Requiere el cerrojo de escritura
+     *
+     * @return Número de ranura
+     */
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextUnusedSlot < capacity) {
+            int slot = nextUnusedSlot++;
+            if (slabs[slot / SLOTS_PER_SLAB] == null) {
+                int slots = Math.min(SLOTS_PER_SLAB, capacity - slot);
+                slabs[slot / SLOTS_PER_SLAB] = ByteBuffer.allocateDirect(slots * SLOT_SIZE);
+            }
+            return slot;
+        }
+        evictOne();
+        return freeSlots[--freeCount];
+    }
+
+    /**
+     * Desaloja un Funko con el algoritmo del reloj: la manecilla da una segunda oportunidad (borra la marca de
+     * referencia) a los consultados desde la última vuelta y desaloja el primero sin marca. Un Funko caducado
+     * se desaloja en cuanto la manecilla pasa por él aunque tenga la marca.
+     * Requiere el cerrojo de escritura
+     */
+    private void evictOne() {
+        long now = System.currentTimeMillis();
+        while (true) {
+            int slot = clockHand;
+            clockHand = (clockHand + 1) % nextUnusedSlot;
+            ByteBuffer slab = slab(slot);
+            int base = offset(slot);
+            byte flags = slab.get(base + FLAGS);
+            if ((flags & USED) == 0) {
+                continue;
+            }
+            if (isExpired(slab, base, now)) {
+                UUID cod = codAt(slab, base);
+                release(indexOf(cod));
+                expiryEvictionCount.increment();
+                logger.debug("Liberado por caducidad del almacén fuera del heap Funko con ID: " + cod);
+                return;
+            }
+            if ((flags & REFERENCED) != 0) {
+                slab.put(base + FLAGS, USED);
+                continue;
+            }
+            UUID cod = codAt(slab, base);
+            release(indexOf(cod));
+            sizeEvictionCount.increment();
+            logger.debug("Desalojado del almacén fuera del heap Funko con ID: " + cod);
+            return;
+        }
+    }
+
+    /**
+     * Indica si el Funko de una ranura ha caducado. Requiere el cerrojo (de lectura o escritura)
+     *
+     * @param slab Bloque de la ranura
+     * @param base Posición de la ranura en el bloque
+     * @param now  Instante actual en milisegundos
+     * @return ¿Ha caducado?
+     */
+    private boolean isExpired(ByteBuffer slab, int base, long now) {
+        return now - slab.getLong(base + WRITE_MILLIS) >= expireAfterWriteMillis;
+    }
+
+    /**
+     * Serializa un Funko en una ranura. Requiere el cerrojo de escritura
+     *
+     * @param slot  Ranura
+     * @param cod   Cod
+     * @param funko Funko
+     * @param name  Nombre en UTF-8 o null
+     */
+    private void write(int slot, UUID cod, Funko funko, byte[] name) {
+        ByteBuffer slab = slab(slot);
+        int base = offset(slot);
+        slab.putLong(base + COD_MSB, cod.getMostSignificantBits());
+        slab.putLong(base + COD_LSB, cod.getLeastSignificantBits());
+        slab.putLong(base + WRITE_MILLIS, System.currentTimeMillis());
+        slab.putLong(base + MY_ID, funko.getMyId() == null ? NULL_LONG : funko.getMyId());
+        slab.putDouble(base + PRICE, funko.getPrice());
+        slab.putLong(base + RELEASE_DATE, funko.getReleaseDate() == null ? NULL_LONG
+                : funko.getReleaseDate().toEpochDay());
+        LocalDateTime updateAt = funko.getUpdateAt();
+        slab.putLong(base + UPDATE_AT_SECONDS, updateAt == null ? NULL_LONG : updateAt.toEpochSecond(ZoneOffset.UTC));
+        slab.putInt(base + UPDATE_AT_NANOS, updateAt == null ? 0 : updateAt.getNano());
+        slab.put(base + MODEL, (byte) (funko.getModel() == null ? -1 : funko.getModel().ordinal()));
+        slab.put(base + FLAGS, USED);
+        slab.putShort(base + NAME_LENGTH, (short) (name == null ? -1 : name.length));
+        if (name != null) {
+            slab.put(base + NAME, name);
+        }
+    }
+
+    /**
+     * Deserializa el Funko de una ranura. Requiere el cerrojo (de lectura o escritura)
+     *
+     * @param slab Bloque de la ranura
+     * @param base Posición de la ranura en el bloque
+     * @param cod  Cod
+     * @return Funko nuevo con los datos de la ranura
+     */
+    private static Funko read(ByteBuffer slab, int base, UUID cod) {
+        long myId = slab.getLong(base + MY_ID);
+        long releaseDate = slab.getLong(base + RELEASE_DATE);
+        long updateAtSeconds = slab.getLong(base + UPDATE_AT_SECONDS);
+        byte model = slab.get(base + MODEL);
+        short nameLength = slab.getShort(base + NAME_LENGTH);
+        String name = null;
+        if (nameLength >= 0) {
+            byte[] bytes = new byte[nameLength];
+            slab.get(base + NAME, bytes);
+            name = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return Funko.builder()
+                .cod(cod)
+                .myId(myId == NULL_LONG ? null : myId)
+                .name(name)
+                .model(model < 0 ? null : Model.values()[model])
+                .price(slab.getDouble(base + PRICE))
+                .releaseDate(releaseDate == NULL_LONG ? null : LocalDate.ofEpochDay(releaseDate))
+                .updateAt(updateAtSeconds == NULL_LONG ? null : LocalDateTime.ofEpochSecond(updateAtSeconds,
+                        slab.getInt(base + UPDATE_AT_NANOS), ZoneOffset.UTC))
+                .build();
+    }
+
+    /**
+     * Lee el cod de una ranura
+     *
+     * @param slab Bloque de la ranura
+     * @param base Posición de la ranura en el bloque
+     * @return Cod
+     */
+    private static UUID codAt(ByteBuffer slab, int base) {
+        return new UUID(slab.getLong(base + COD_MSB), slab.getLong(base + COD_LSB));
+    }
+
+    /**
+     * Devuelve el bloque de memoria directa de una ranura
+     *
+     * @param slot Ranura
+     * @return Bloque
+     */
+    private ByteBuffer slab(int slot) {
+        return slabs[slot / SLOTS_PER_SLAB];
+    }
+
+    /**
+     * Devuelve la posición de una ranura dentro de su bloque
+     *
+     * @param slot Ranura
+     * @return Posición en bytes
+     */
+    private static int offset(int slot) {
+        return (slot % SLOTS_PER_SLAB) * SLOT_SIZE;
+    }
+}
@@ -0,0 +1,189 @@
+package com.madirex.services.cache;
+
+import com.madirex.models.CacheStats;
+import com.madirex.models.Funko;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché de dos niveles: una FunkoCache pequeña en el heap para los Funkos más consultados y un
+ * OffHeapFunkoStore grande fuera del heap con el que se puede guardar el catálogo completo.
+ * Las escrituras van a los dos niveles, así que lo que el primer nivel desaloja sigue en el segundo; un fallo
+ * del primer nivel que acierta en el segundo sube el Funko al primero.
+ * Las escrituras, los borrados y las subidas de un mismo id se serializan con un cerrojo por franja de ids,
+ * para que una subida que ha leído la versión anterior no la deje en el primer nivel tras un put o un remove
+ */
+public class TieredFunkoCache implements FunkoCache {
+    private static final int LOCK_STRIPES = 64;
+    private final Logger logger = LoggerFactory.getLogger(TieredFunkoCache.class);
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final FunkoCache front;
+    private final OffHeapFunkoStore store;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+
+    /**
+     * Constructor de la clase
+     *
+     * @param front Caché en el heap (primer nivel)
+     * @param store Almacén fuera del heap (segundo nivel)
+     */
+    public TieredFunkoCache(FunkoCache front, OffHeapFunkoStore store) {
+        this.front = front;
+        this.store = store;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Devuelve el cerrojo de la franja del id
+     *
+     * @param key Id
+     * @return Cerrojo
+     */
+    private ReentrantLock lockFor(String key) {
+        int h = key.hashCode();
+        return locks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Asigna un Funko a los dos niveles de la caché
+     *
+     * @param key   Id
+     * @param value Funko
+     */
+    @Override
+    public void put(String key, Funko value) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            front.put(key, value);
+            store.put(key, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Devuelve el Funko del primer nivel o, si no está, del segundo, subiéndolo al primero
+     *
+     * @param key Id
+     * @return Funko o null si no está en ningún nivel
+     */
+    @Override
+    public Funko get(String key) {
+        Funko funko = front.get(key);
+        if (funko == null) {
+            ReentrantLock lock = lockFor(key);
+            lock.lock();
+            try {
+                funko = store.get(key);
+                if (funko != null) {
+                    logger.debug("Funko subido a la caché en el heap desde fuera del heap con ID: " + key);
+                    front.put(key, funko);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        (funko == null ? missCount : hitCount).increment();
+        return funko;
+    }
+
+    /**
+     * Elimina el Funko de los dos niveles
+     *
+     * @param key Id
+     */
+    @Override
+    public void remove(String key) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            front.remove(key);
+            store.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Elimina los Funkos caducados de los dos niveles
+     */
+    @Override
+    public void clear() {
+        front.clear();
+        store.clear();
+    }
+
+    /**
+     * Registra el tiempo que se ha tardado en cargar un Funko tras un fallo de caché
+     *
+     * @param loadNanos Nanosegundos de la carga
+     */
+    @Override
+    public void recordLoad(long loadNanos) {
+        loadCount.increment();
+        totalLoadNanos.add(loadNanos);
+    }
+
+    /**
+     * Devuelve las estadísticas de la caché en conjunto: un acierto en cualquier nivel es un acierto y los
+     * desalojos y el tamaño son los del segundo nivel, que es el que decide qué Funkos dejan de estar en caché
+     *
+     * @return Estadísticas de la caché
+     */
+    @Override
+    public CacheStats getStats() {
+        CacheStats storeStats = store.getStats();
+        return CacheStats.builder()
+                .hitCount(hitCount.sum())
+                .missCount(missCount.sum())
+                .putCount(storeStats.getPutCount())
+                .sizeEvictionCount(storeStats.getSizeEvictionCount())
+                .expiryEvictionCount(storeStats.getExpiryEvictionCount())
+                .loadCount(loadCount.sum())
+                .totalLoadNanos(totalLoadNanos.sum())
+                .size(storeStats.getSize())
+                .maxSize(storeStats.getMaxSize())
+                .build();
+    }
+
+    /**
+     * Devuelve primero las claves del primer nivel en su orden de uso y después las del segundo
+     *
+     * @param limit Número máximo de claves
+     * @return Claves ordenadas por uso
+     */
+    @Override
+    public List<String> hottestKeys(int limit) {
+        Set<String> keys = new LinkedHashSet<>(front.hottestKeys(limit));
+        if (keys.size() < limit) {
+            for (String key : store.keys(limit)) {
+                keys.add(key);
+                if (keys.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return List.copyOf(keys);
+    }
+
+    /**
+     * Detiene los dos niveles y libera la memoria fuera del heap
+     */
+    @Override
+    public void shutdown() {
+        front.shutdown();
+        store.shutdown();
+    }
+}
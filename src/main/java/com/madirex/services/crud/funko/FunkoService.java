@@ -2,21 +2,43 @@ package com.madirex.services.crud.funko;
 
 import com.madirex.exceptions.FunkoException;
 import com.madirex.exceptions.FunkoNotFoundException;
+import com.madirex.models.BackupManifest;
 import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
 import com.madirex.services.crud.BaseCRUDService;
 
 import java.sql.SQLException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Interfaz que define las operaciones CRUD de FunkoService
  */
 public interface FunkoService<T> extends BaseCRUDService<Funko> {
 
+    CompletableFuture<List<Funko>> findAll(String afterCod, int pageSize);
+
+    Stream<Funko> streamAll(int pageSize);
+
     CompletableFuture<List<Funko>> findByName(String nombre) throws SQLException, FunkoNotFoundException;
 
-    CompletableFuture<Void> exportData(String path, String fileName, T data) throws SQLException;
+    CompletableFuture<List<Funko>> findByNameStartingWith(String prefix);
+
+    CompletableFuture<List<Funko>> findByNameContaining(String text);
+
+    CompletableFuture<List<Funko>> saveAll(List<Funko> items) throws SQLException;
+
+    CompletableFuture<Void> exportData(String path, String fileName) throws SQLException;
 
     CompletableFuture<T> importData(String path, String fileName);
+
+    CompletableFuture<ImportReport> restoreData(String path, String fileName, int batchSize,
+                                                Consumer<ImportReport> progress);
+
+    CompletableFuture<BackupManifest> exportIncremental(String path, String fileName, boolean full);
+
+    CompletableFuture<ImportReport> restoreIncremental(String path, String fileName, int batchSize,
+                                                       Consumer<ImportReport> progress);
 }
\ No newline at end of file
@@ -4,28 +4,63 @@ import com.madirex.exceptions.DirectoryException;
 import com.madirex.exceptions.FunkoNotFoundException;
 import com.madirex.exceptions.FunkoNotRemovedException;
 import com.madirex.exceptions.FunkoNotValidException;
+import com.madirex.models.BackupIncrement;
+import com.madirex.models.BackupManifest;
+import com.madirex.models.CacheStats;
 import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
 import com.madirex.repositories.funko.FunkoRepositoryImpl;
+import com.madirex.services.cache.CacheSnapshot;
 import com.madirex.services.cache.FunkoCache;
 import com.madirex.services.io.BackupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 /**
  * Implementación de la interfaz FunkoService
  */
 public class FunkoServiceImpl implements FunkoService<List<Funko>> {
+    private static final long MISSING_TTL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final int MISSING_MAX_SIZE = 10_000;
+    private static final int QUERY_CACHE_MAX_SIZE = 256;
+    private static final int WARM_UP_BATCH_SIZE = 100;
+    private static final int EXPORT_PAGE_SIZE = 500;
+    private static final Duration INCREMENTAL_OVERLAP = Duration.ofSeconds(30);
     private static FunkoServiceImpl funkoServiceImplInstance;
 
     private final FunkoCache cache;
     private final Logger logger = LoggerFactory.getLogger(FunkoServiceImpl.class);
     private final FunkoRepositoryImpl funkoRepository;
     private final BackupService<List<Funko>> backupService;
+    private final FunkoWriteBehind writeBehind;
+    private final Map<String, CompletableFuture<Optional<Funko>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Long> missingIds = new ConcurrentHashMap<>();
+    private final Map<String, QueryResult> queryCache = new ConcurrentHashMap<>();
+    private final AtomicLong dataVersion = new AtomicLong();
+    private volatile Path cacheSnapshotFile;
+    private volatile int cacheSnapshotSize;
 
     /**
      * Constructor de la clase
@@ -33,11 +68,18 @@ public class FunkoServiceImpl implements FunkoService<List<Funko>> {
      * @param funkoRepository Instancia de la clase FunkoRepository
      * @param cache           Instancia de la clase FunkoCache
      * @param backupService   Instancia de la clase BackupService
+     * @param writeBehind     Cola de escritura diferida o null para escribir cada cambio al momento.
+     *                        Los Funkos que descarta sin guardar salen de la caché
      */
-    private FunkoServiceImpl(FunkoRepositoryImpl funkoRepository, FunkoCache cache, BackupService<List<Funko>> backupService) {
+    private FunkoServiceImpl(FunkoRepositoryImpl funkoRepository, FunkoCache cache,
+                             BackupService<List<Funko>> backupService, FunkoWriteBehind writeBehind) {
         this.funkoRepository = funkoRepository;
         this.cache = cache;
         this.backupService = backupService;
+        this.writeBehind = writeBehind;
+        if (writeBehind != null) {
+            writeBehind.setRejectionListener(this::evict);
+        }
     }
 
     /**
@@ -51,26 +93,71 @@ public class FunkoServiceImpl implements FunkoService<List<Funko>> {
     public static synchronized FunkoServiceImpl getInstance(FunkoRepositoryImpl funkoRepository,
                                                             FunkoCache cache,
                                                             BackupService<List<Funko>> backupService) {
+        return getInstance(funkoRepository, cache, backupService, null);
+    }
+
+    /**
+     * Devuelve la instancia de la clase. Con cola de escritura diferida, save y update se confirman en cuanto
+     * se guardan en la caché y en la cola; las consultas a la base de datos ven los cambios tras el flush
+     *
+     * @param funkoRepository Instancia de la clase FunkoRepository
+     * @param cache           Instancia de la clase FunkoCache
+     * @param backupService   Instancia de la clase BackupService
+     * @param writeBehind     Cola de escritura diferida o null para escribir cada cambio al momento
+     * @return Instancia de la clase
+     */
+    public static synchronized FunkoServiceImpl getInstance(FunkoRepositoryImpl funkoRepository,
+                                                            FunkoCache cache,
+                                                            BackupService<List<Funko>> backupService,
+                                                            FunkoWriteBehind writeBehind) {
         if (funkoServiceImplInstance == null) {
-            funkoServiceImplInstance = new FunkoServiceImpl(funkoRepository, cache, backupService);
+            funkoServiceImplInstance = new FunkoServiceImpl(funkoRepository, cache, backupService, writeBehind);
         }
         return funkoServiceImplInstance;
     }
 
 
     /**
-     * Devuelve todos los elementos del repositorio
+     * Devuelve todos los elementos del repositorio. El resultado se guarda en la caché de consultas
+     * hasta la siguiente escritura
      *
      * @return Optional de la lista de elementos
      */
     @Override
     public CompletableFuture<List<Funko>> findAll() {
         logger.debug("Obteniendo todos los Funkos");
-        return funkoRepository.findAll();
+        return cachedQuery("findAll", funkoRepository::findAll);
+    }
+
+    /**
+     * Devuelve una página de elementos ordenados por cod, empezando tras el cod indicado
+     *
+     * @param afterCod Último cod de la página anterior o null para la primera página
+     * @param pageSize Número máximo de elementos de la página
+     * @return Elementos de la página
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findAll(String afterCod, int pageSize) {
+        logger.debug("Obteniendo página de " + pageSize + " Funkos tras el cod: " + afterCod);
+        return funkoRepository.findAll(afterCod, pageSize);
+    }
+
+    /**
+     * Devuelve todos los elementos leyéndolos página a página bajo demanda.
+     * No pasan por la caché para que un recorrido completo no desplace a los Funkos más consultados
+     *
+     * @param pageSize Número de elementos que se leen de cada vez
+     * @return Stream de todos los elementos
+     */
+    @Override
+    public Stream<Funko> streamAll(int pageSize) {
+        logger.debug("Recorriendo todos los Funkos en páginas de " + pageSize);
+        return funkoRepository.streamAll(pageSize);
     }
 
     /**
-     * Busca un elemento en el repositorio por su nombre
+     * Busca un elemento en el repositorio por su nombre. El resultado se guarda en la caché de consultas
+     * hasta la siguiente escritura
      *
      * @param name Nombre del elemento a buscar
      * @return Lista de elementos encontrados
@@ -78,7 +165,7 @@ public class FunkoServiceImpl implements FunkoService<List<Funko>> {
     @Override
     public CompletableFuture<List<Funko>> findByName(String name) {
         logger.debug("Obteniendo todos los Funkos ordenados por nombre");
-        return funkoRepository.findByName(name)
+        return cachedQuery("findByName:" + name.toLowerCase(), () -> funkoRepository.findByName(name))
                 .thenComposeAsync(list -> {
                     if (list.isEmpty()) {
                         CompletableFuture<List<Funko>> future = new CompletableFuture<>();
@@ -91,17 +178,44 @@ public class FunkoServiceImpl implements FunkoService<List<Funko>> {
     }
 
     /**
-     * Realiza un backup de los datos del repositorio
+     * Busca los elementos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix Prefijo del nombre
+     * @return Lista de elementos encontrados (vacía si no hay coincidencias)
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findByNameStartingWith(String prefix) {
+        logger.debug("Obteniendo Funkos cuyo nombre empieza por: " + prefix);
+        return funkoRepository.findByNameStartingWith(prefix);
+    }
+
+    /**
+     * Busca los elementos cuyo nombre contiene el texto indicado
+     *
+     * @param text Texto contenido en el nombre
+     * @return Lista de elementos encontrados (vacía si no hay coincidencias)
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findByNameContaining(String text) {
+        logger.debug("Obteniendo Funkos cuyo nombre contiene: " + text);
+        return funkoRepository.findByNameContaining(text);
+    }
+
+    /**
+     * Realiza un backup de los datos del repositorio. Los Funkos se leen página a página y se escriben en el
+     * fichero según llegan, así que la memoria necesaria no depende del tamaño del catálogo.
+     * Si falla la lectura de una página el futuro termina con error y no se sustituye el backup anterior
      *
      * @param path     Ruta del directorio donde se guardará el backup
      * @param fileName Nombre del archivo del backup
-     * @param data     Datos a guardar
      * @throws SQLException       Si hay un error en la base de datos
      * @throws DirectoryException El directorio no existe
      */
     @Override
-    public CompletableFuture<Void> exportData(String path, String fileName, List<Funko> data) throws SQLException {
-        return findAll().thenComposeAsync(s -> backupService.exportData(path, fileName, s));
+    public CompletableFuture<Void> exportData(String path, String fileName) throws SQLException {
+        return flush().thenComposeAsync(v -> backupService.exportStream(path, fileName,
+                        funkoRepository.streamAll(EXPORT_PAGE_SIZE)))
+                .thenAccept(count -> logger.debug("Exportados " + count + " Funkos"));
     }
 
     /**
@@ -117,7 +231,165 @@ public class FunkoServiceImpl implements FunkoService<List<Funko>> {
     }
 
     /**
-     * Devuelve un elemento del repositorio
+     * Restaura un backup JSON en la base de datos: se lee en streaming y los Funkos se guardan por lotes,
+     * sobrescribiendo los que ya existen. Antes se escriben los cambios pendientes de la escritura diferida
+     * para que no pisen lo restaurado
+     *
+     * @param path      Ruta del directorio del backup
+     * @param fileName  Nombre del archivo del backup
+     * @param batchSize Número de Funkos por lote
+     * @param progress  Se llama tras cada lote con el resumen acumulado (puede ser null)
+     * @return Resumen de la restauración
+     */
+    @Override
+    public CompletableFuture<ImportReport> restoreData(String path, String fileName, int batchSize,
+                                                       Consumer<ImportReport> progress) {
+        logger.debug("Restaurando backup " + fileName + " en lotes de " + batchSize);
+        return flush().thenComposeAsync(v -> backupService.importStream(path, fileName, batchSize,
+                this::upsertAll, progress));
+    }
+
+    /**
+     * Realiza un backup incremental. La primera vez (o si full es true) se hace un backup completo en fileName
+     * y se empieza una cadena nueva; las siguientes se exportan solo los Funkos modificados desde la marca de agua
+     * del manifiesto de la cadena, en backup-inc-NNNN con la extensión de fileName, junto con los cods de los
+     * borrados. La marca de agua es el instante anterior a leer la tabla y cada incremento repite los últimos
+     * segundos del anterior (INCREMENTAL_OVERLAP) para no perder escrituras que se confirmaron tarde: restaurar
+     * dos veces un Funko no cambia el resultado. El manifiesto solo se actualiza si el backup termina bien
+     *
+     * @param path     Ruta del directorio de los backups
+     * @param fileName Nombre del backup completo
+     * @param full     ¿Empezar una cadena nueva con un backup completo?
+     * @return Manifiesto de la cadena actualizado
+     */
+    @Override
+    public CompletableFuture<BackupManifest> exportIncremental(String path, String fileName, boolean full) {
+        String manifestName = BackupService.manifestFileName(fileName);
+        return flush().thenComposeAsync(v -> full
+                        ? CompletableFuture.completedFuture(Optional.<BackupManifest>empty())
+                        : backupService.readManifest(path, manifestName))
+                .thenComposeAsync(previous -> {
+                    LocalDateTime watermark = LocalDateTime.now();
+                    if (previous.isEmpty()) {
+                        return backupService.exportStream(path, fileName, funkoRepository.streamAll(EXPORT_PAGE_SIZE))
+                                .thenApply(count -> BackupManifest.builder()
+                                        .fullBackup(fileName)
+                                        .fullRows(count)
+                                        .watermark(watermark)
+                                        .build());
+                    }
+                    BackupManifest manifest = previous.get();
+                    LocalDateTime since = manifest.getWatermark().minus(INCREMENTAL_OVERLAP);
+                    String incrementName = BackupService.incrementFileName(fileName, manifest.getIncrements().size() + 1);
+                    return funkoRepository.findDeletedSince(since).thenCompose(deleted -> backupService
+                            .exportStream(path, incrementName, funkoRepository.streamUpdatedSince(since, EXPORT_PAGE_SIZE))
+                            .thenApply(count -> {
+                                manifest.getIncrements().add(BackupIncrement.builder()
+                                        .fileName(incrementName)
+                                        .since(since)
+                                        .watermark(watermark)
+                                        .rows(count)
+                                        .deleted(deleted)
+                                        .build());
+                                manifest.setWatermark(watermark);
+                                return manifest;
+                            }));
+                })
+                .thenComposeAsync(manifest -> backupService.writeManifest(path, manifestName, manifest)
+                        .thenApply(v -> {
+                            logger.debug("Backup incremental realizado: " + manifest.getIncrements().size() + " incrementos");
+                            return manifest;
+                        }));
+    }
+
+    /**
+     * Restaura una cadena de backups incrementales: primero el backup completo y después cada incremento en orden,
+     * borrando sus Funkos borrados antes de guardar sus Funkos modificados (un Funko borrado y vuelto a crear en el
+     * mismo incremento acaba existiendo). Si no hay manifiesto se restaura fileName como un backup normal.
+     * El resumen suma los de todos los ficheros; progress recibe el de cada fichero
+     *
+     * @param path      Ruta del directorio de los backups
+     * @param fileName  Nombre del backup completo
+     * @param batchSize Número de Funkos por lote
+     * @param progress  Se llama tras cada lote con el resumen acumulado del fichero (puede ser null)
+     * @return Resumen de la restauración
+     */
+    @Override
+    public CompletableFuture<ImportReport> restoreIncremental(String path, String fileName, int batchSize,
+                                                              Consumer<ImportReport> progress) {
+        long start = System.currentTimeMillis();
+        return backupService.readManifest(path, BackupService.manifestFileName(fileName)).thenComposeAsync(previous -> {
+            if (previous.isEmpty()) {
+                return restoreData(path, fileName, batchSize, progress);
+            }
+            BackupManifest manifest = previous.get();
+            CompletableFuture<ImportReport> chain = restoreData(path, manifest.getFullBackup(), batchSize, progress);
+            for (BackupIncrement increment : manifest.getIncrements()) {
+                chain = chain.thenCompose(total -> deleteAll(increment.getDeleted())
+                        .thenCompose(deleted -> backupService.importStream(path, increment.getFileName(), batchSize,
+                                this::upsertAll, progress))
+                        .thenApply(report -> ImportReport.builder()
+                                .rowsRead(total.getRowsRead() + report.getRowsRead())
+                                .rowsImported(total.getRowsImported() + report.getRowsImported())
+                                .rowsRejected(total.getRowsRejected() + report.getRowsRejected())
+                                .elapsedMillis(System.currentTimeMillis() - start)
+                                .build()));
+            }
+            return chain;
+        });
+    }
+
+    /**
+     * Borra los Funkos de un incremento. Como en upsertAll, salen de la caché antes y después de borrarlos
+     *
+     * @param ids Cods de los Funkos a borrar
+     * @return Número de Funkos borrados
+     */
+    private CompletableFuture<Integer> deleteAll(List<String> ids) {
+        ids.forEach(this::evict);
+        return funkoRepository.deleteAllById(ids).thenApply(deleted -> {
+            ids.forEach(this::evict);
+            if (deleted > 0) {
+                invalidateQueries();
+            }
+            logger.debug("Borrados " + deleted + " Funkos del incremento");
+            return deleted;
+        });
+    }
+
+    /**
+     * Guarda un lote de la restauración. Los Funkos del lote salen de la caché antes y después de escribirlos,
+     * para que una carga que se cruce con la escritura no deje en caché la versión anterior
+     *
+     * @param funkos Funkos a guardar
+     * @return Funkos guardados
+     */
+    private CompletableFuture<List<Funko>> upsertAll(List<Funko> funkos) {
+        funkos.forEach(funko -> evict(funko.getCod().toString()));
+        return funkoRepository.upsertAll(funkos).thenApply(saved -> {
+            saved.forEach(funko -> evict(funko.getCod().toString()));
+            if (!saved.isEmpty()) {
+                invalidateQueries();
+            }
+            return saved;
+        });
+    }
+
+    /**
+     * Saca un id de la caché, de las cargas en curso y de los ids inexistentes
+     *
+     * @param id Id del elemento
+     */
+    private void evict(String id) {
+        discardLoad(id);
+        cache.remove(id);
+    }
+
+    /**
+     * Devuelve un elemento del repositorio. Si no está en caché se carga de la base de datos
+     * y se registra el tiempo de carga en las estadísticas de la caché.
+     * Las peticiones simultáneas del mismo id comparten una única carga en curso y los ids que no existen
+     * se recuerdan durante unos segundos para no volver a consultarlos
      *
      * @param id Id del elemento a buscar
      * @return Optional del elemento encontrado
@@ -130,24 +402,183 @@ public class FunkoServiceImpl implements FunkoService<List<Funko>> {
             logger.debug("Funko encontrado en caché");
             return CompletableFuture.supplyAsync(() -> Optional.of(funko));
         }
+        Funko pending = writeBehind == null ? null : writeBehind.get(id);
+        if (pending != null) {
+            logger.debug("Funko encontrado en la cola de escritura diferida");
+            return CompletableFuture.completedFuture(Optional.of(pending));
+        }
+        if (isKnownMissing(id)) {
+            logger.debug("Funko marcado como inexistente, no se consulta la base de datos");
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        CompletableFuture<Optional<Funko>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<Funko>> current = inFlight.putIfAbsent(id, load);
+        if (current != null) {
+            logger.debug("Funko no encontrado en caché, esperando a la carga en curso");
+            return current.copy();
+        }
         logger.debug("Funko no encontrado en caché, buscando en base de datos");
-        return funkoRepository.findById(id).thenApplyAsync(r -> {
-            r.ifPresent(value -> cache.put(id, value));
-            return r;
+        long start = System.nanoTime();
+        funkoRepository.findById(id).whenCompleteAsync((r, e) -> {
+            boolean stillCurrent = inFlight.remove(id, load);
+            if (e != null) {
+                load.completeExceptionally(e);
+                return;
+            }
+            cache.recordLoad(System.nanoTime() - start);
+            if (stillCurrent) {
+                r.ifPresentOrElse(value -> cache.put(id, value), () -> rememberMissing(id));
+            }
+            load.complete(r);
         });
+        return load.copy();
     }
 
     /**
-     * Guarda un elemento en el repositorio
+     * Descarta la carga en curso de un id para que su resultado, que puede estar desactualizado,
+     * no se guarde en la caché, y olvida si se había marcado como inexistente
+     *
+     * @param id Id del elemento modificado
+     */
+    private void discardLoad(String id) {
+        inFlight.remove(id);
+        missingIds.remove(id);
+    }
+
+    /**
+     * Devuelve el resultado de una consulta desde la caché de consultas si sigue vigente o lo consulta y lo guarda.
+     * La versión se lee antes de consultar, así que un resultado que se cruce con una escritura queda ya caducado
+     *
+     * @param key   Consulta y parámetros
+     * @param query Consulta a la base de datos
+     * @return Lista de elementos encontrados
+     */
+    private CompletableFuture<List<Funko>> cachedQuery(String key, Supplier<CompletableFuture<List<Funko>>> query) {
+        long version = currentVersion();
+        QueryResult cached = queryCache.get(key);
+        if (cached != null && cached.version == version) {
+            String str = "Resultado de " + key + " encontrado en la caché de consultas";
+            logger.debug(str);
+            return CompletableFuture.completedFuture(new ArrayList<>(cached.funkos));
+        }
+        return query.get().thenApply(funkos -> {
+            if (queryCache.size() >= QUERY_CACHE_MAX_SIZE) {
+                queryCache.values().removeIf(result -> result.version != version);
+            }
+            if (queryCache.size() < QUERY_CACHE_MAX_SIZE || queryCache.containsKey(key)) {
+                queryCache.put(key, new QueryResult(version, List.copyOf(funkos)));
+            }
+            return funkos;
+        });
+    }
+
+    /**
+     * Devuelve la versión actual de los datos: cambia con cada escritura confirmada en la base de datos,
+     * incluidas las de la escritura diferida
+     *
+     * @return Versión de los datos
+     */
+    private long currentVersion() {
+        return dataVersion.get() + (writeBehind == null ? 0 : writeBehind.getWriteCount());
+    }
+
+    /**
+     * Caduca todos los resultados de la caché de consultas
+     */
+    private void invalidateQueries() {
+        dataVersion.incrementAndGet();
+    }
+
+    /**
+     * Caduca la caché de consultas tras confirmar una escritura y devuelve su resultado
+     *
+     * @param result Resultado de la escritura
+     * @return Resultado de la escritura
+     */
+    private Optional<Funko> afterWrite(Optional<Funko> result) {
+        invalidateQueries();
+        return result;
+    }
+
+    /**
+     * Indica si el id se ha buscado hace poco sin encontrarse. Las marcas caducadas se eliminan al consultarlas
+     *
+     * @param id Id del elemento
+     * @return ¿Se sabe que no existe?
+     */
+    private boolean isKnownMissing(String id) {
+        Long expiresAt = missingIds.get(id);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiresAt < 0) {
+            return true;
+        }
+        missingIds.remove(id, expiresAt);
+        return false;
+    }
+
+    /**
+     * Recuerda que un id no existe. Si se alcanza el tamaño máximo se eliminan las marcas caducadas
+     * y, si sigue lleno, no se recuerda
+     *
+     * @param id Id del elemento
+     */
+    private void rememberMissing(String id) {
+        long now = System.nanoTime();
+        if (missingIds.size() >= MISSING_MAX_SIZE) {
+            missingIds.values().removeIf(expiresAt -> now - expiresAt >= 0);
+            if (missingIds.size() >= MISSING_MAX_SIZE) {
+                return;
+            }
+        }
+        missingIds.put(id, now + MISSING_TTL_NANOS);
+    }
+
+    /**
+     * Guarda un elemento en el repositorio. Si no se ha podido guardar sale de la caché, para que no se sirva
+     * un Funko que no está en la base de datos
      *
      * @param funko Elemento a guardar
-     * @return Optional del elemento guardado
+     * @return Optional del elemento guardado, vacío si no se ha podido guardar
      */
     @Override
     public CompletableFuture<Optional<Funko>> save(Funko funko) {
         logger.debug("Guardando Funko");
-        cache.put(funko.getCod().toString(), funko);
-        return funkoRepository.save(funko);
+        String id = funko.getCod().toString();
+        discardLoad(id);
+        cache.put(id, funko);
+        if (writeBehind != null) {
+            funko.setUpdateAt(LocalDateTime.now());
+            writeBehind.save(funko);
+            return CompletableFuture.completedFuture(Optional.of(funko));
+        }
+        return funkoRepository.save(funko).thenApply(result -> {
+            if (result.isEmpty()) {
+                evict(id);
+            }
+            return afterWrite(result);
+        });
+    }
+
+    /**
+     * Guarda una lista de elementos en el repositorio mediante una carga por lotes.
+     * No se añaden a la caché para que una carga masiva no desplace a los Funkos más consultados,
+     * pero dejan de estar marcados como inexistentes
+     *
+     * @param funkos Elementos a guardar
+     * @return Lista de elementos guardados
+     */
+    @Override
+    public CompletableFuture<List<Funko>> saveAll(List<Funko> funkos) {
+        logger.debug("Guardando " + funkos.size() + " Funkos por lotes");
+        funkos.forEach(funko -> discardLoad(funko.getCod().toString()));
+        return funkoRepository.saveAll(funkos).thenApply(saved -> {
+            if (!saved.isEmpty()) {
+                invalidateQueries();
+            }
+            return saved;
+        });
     }
 
     /**
@@ -160,12 +591,19 @@ public class FunkoServiceImpl implements FunkoService<List<Funko>> {
     @Override
     public CompletableFuture<Optional<Funko>> update(String funkoId, Funko newFunko) throws SQLException, FunkoNotValidException {
         logger.debug("Actualizando Funko");
+        discardLoad(newFunko.getCod().toString());
         cache.put(newFunko.getCod().toString(), newFunko);
-        return funkoRepository.update(funkoId, newFunko);
+        if (writeBehind != null) {
+            newFunko.setUpdateAt(LocalDateTime.now());
+            writeBehind.update(funkoId, newFunko);
+            return CompletableFuture.completedFuture(Optional.of(newFunko));
+        }
+        return funkoRepository.update(funkoId, newFunko).thenApply(this::afterWrite);
     }
 
     /**
-     * Borra un elemento del repositorio
+     * Borra un elemento del repositorio. Con escritura diferida se escriben antes las escrituras pendientes
+     * para que un alta o modificación encolada no vuelva a crear el Funko tras borrarlo
      *
      * @param id Id del elemento a borrar
      * @return ¿Borrado?
@@ -173,18 +611,191 @@ public class FunkoServiceImpl implements FunkoService<List<Funko>> {
     @Override
     public CompletableFuture<Boolean> delete(String id) throws SQLException, FunkoNotRemovedException {
         logger.debug("Eliminando Funko");
+        if (writeBehind != null) {
+            return flush().thenComposeAsync(v -> {
+                try {
+                    return deleteFromRepository(id);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        }
+        return deleteFromRepository(id);
+    }
+
+    /**
+     * Borra un elemento del repositorio y lo saca de la caché
+     *
+     * @param id Id del elemento a borrar
+     * @return ¿Borrado?
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    private CompletableFuture<Boolean> deleteFromRepository(String id) throws SQLException {
         return funkoRepository.delete(id).thenApplyAsync(a -> {
             if (Boolean.TRUE.equals(a)) {
+                discardLoad(id);
                 cache.remove(id);
+                invalidateQueries();
             }
             return a;
         });
     }
 
     /**
-     * Cierra el caché
+     * Devuelve las estadísticas de la caché
+     *
+     * @return Estadísticas de la caché
+     */
+    public CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    /**
+     * Resultado de una consulta guardado en la caché de consultas con la versión de los datos en que se leyó
+     */
+    private static final class QueryResult {
+        private final long version;
+        private final List<Funko> funkos;
+
+        /**
+         * Constructor de la clase
+         *
+         * @param version Versión de los datos
+         * @param funkos  Elementos encontrados
+         */
+        private QueryResult(long version, List<Funko> funkos) {
+            this.version = version;
+            this.funkos = funkos;
+        }
+    }
+
+    /**
+     * Escribe en la base de datos los cambios pendientes de la escritura diferida.
+     * Sin escritura diferida se completa al momento
+     *
+     * @return Future que se completa cuando los cambios anteriores son duraderos
+     */
+    public CompletableFuture<Void> flush() {
+        return writeBehind == null ? CompletableFuture.completedFuture(null) : writeBehind.flush();
+    }
+
+    /**
+     * Precarga en segundo plano la caché con los Funkos de la instantánea guardada en el último cierre y recuerda
+     * el fichero para guardar en él la nueva instantánea al cerrar. Los Funkos se leen de la base de datos por
+     * lotes, de más a menos usado, hasta agotar el tiempo indicado. Cada Funko del lote se registra como carga
+     * en curso igual que en findById: si se escribe mientras se lee no se guarda en caché, para no pisar
+     * la escritura con datos anteriores a ella, y las búsquedas simultáneas del mismo id esperan a la precarga.
+     * Los que tienen una escritura diferida pendiente no se precargan
+     *
+     * @param snapshotFile Fichero de la instantánea
+     * @param maxKeys      Número máximo de Funkos a precargar y a guardar al cerrar
+     * @param budget       Tiempo máximo de la precarga
+     * @return Número de Funkos precargados
+     */
+    public CompletableFuture<Integer> warmUpCache(Path snapshotFile, int maxKeys, Duration budget) {
+        this.cacheSnapshotFile = snapshotFile;
+        this.cacheSnapshotSize = maxKeys;
+        return CompletableFuture.supplyAsync(() -> {
+            long deadline = System.nanoTime() + budget.toNanos();
+            List<String> keys;
+            try {
+                keys = CacheSnapshot.read(snapshotFile);
+            } catch (IOException e) {
+                String str = "No se ha podido leer la instantánea de la caché: " + e;
+                logger.error(str);
+                return 0;
+            }
+            keys = keys.subList(0, Math.min(maxKeys, keys.size()));
+            int loaded = 0;
+            for (int from = 0; from < keys.size(); from += WARM_UP_BATCH_SIZE) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                Map<String, CompletableFuture<Optional<Funko>>> loads = new LinkedHashMap<>();
+                for (String id : keys.subList(from, Math.min(from + WARM_UP_BATCH_SIZE, keys.size()))) {
+                    if (writeBehind != null && writeBehind.get(id) != null) {
+                        continue;
+                    }
+                    CompletableFuture<Optional<Funko>> load = new CompletableFuture<>();
+                    if (inFlight.putIfAbsent(id, load) == null) {
+                        loads.put(id, load);
+                    }
+                }
+                if (loads.isEmpty()) {
+                    continue;
+                }
+                List<Funko> funkos;
+                try {
+                    funkos = funkoRepository.findAllById(new ArrayList<>(loads.keySet()))
+                            .get(remaining, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException | ExecutionException e) {
+                    abandonLoads(loads, e);
+                    break;
+                } catch (InterruptedException e) {
+                    abandonLoads(loads, e);
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                Map<String, Funko> found = new HashMap<>();
+                funkos.forEach(funko -> found.put(funko.getCod().toString(), funko));
+                for (Map.Entry<String, CompletableFuture<Optional<Funko>>> entry : loads.entrySet()) {
+                    Funko funko = found.get(entry.getKey());
+                    if (inFlight.remove(entry.getKey(), entry.getValue()) && funko != null) {
+                        cache.put(entry.getKey(), funko);
+                        loaded++;
+                    }
+                    entry.getValue().complete(Optional.ofNullable(funko));
+                }
+            }
+            String str = "Caché precargada con " + loaded + " de " + keys.size() + " Funkos de la instantánea";
+            logger.info(str);
+            return loaded;
+        });
+    }
+
+    /**
+     * Retira las cargas en curso de un lote de la precarga que no se ha podido leer. Las búsquedas que
+     * esperaban a alguna de ellas terminan con el error
+     *
+     * @param loads Cargas del lote por id
+     * @param error Error de la lectura
+     */
+    private void abandonLoads(Map<String, CompletableFuture<Optional<Funko>>> loads, Exception error) {
+        loads.forEach((id, load) -> {
+            inFlight.remove(id, load);
+            load.completeExceptionally(error instanceof ExecutionException && error.getCause() != null
+                    ? error.getCause() : error);
+        });
+    }
+
+    /**
+     * Guarda en el fichero de la instantánea las claves más usadas de la caché si se ha precargado desde uno
+     */
+    private void saveCacheSnapshot() {
+        Path file = cacheSnapshotFile;
+        if (file == null) {
+            return;
+        }
+        try {
+            List<String> keys = cache.hottestKeys(cacheSnapshotSize);
+            CacheSnapshot.write(file, keys);
+            String str = "Instantánea de la caché guardada con " + keys.size() + " Funkos";
+            logger.debug(str);
+        } catch (IOException | IllegalArgumentException e) {
+            String str = "No se ha podido guardar la instantánea de la caché: " + e;
+            logger.error(str);
+        }
+    }
+
+    /**
+     * Escribe los cambios pendientes, guarda la instantánea de la caché si está configurada y cierra el caché
      */
     public void shutdown() {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+        }
+        saveCacheSnapshot();
         cache.shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,311 @@
+package com.madirex.services.crud.funko;
+
+import com.madirex.exceptions.FunkoNotSavedException;
+import com.madirex.models.Funko;
+import com.madirex.repositories.funko.FunkoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Cola de escritura diferida (write-behind) de Funkos.
+ * Las altas y modificaciones se acumulan en memoria en orden de llegada, combinando las sucesivas del mismo cod,
+ * y un único hilo las escribe en la base de datos con lotes JDBC al alcanzar el tamaño de lote, al pasar el
+ * tiempo máximo de espera o al pedir un flush. Los cambios solo son duraderos cuando termina el flush; si falla
+ * la escritura se devuelven a la cola para el siguiente intento. Las escrituras que no se pueden aplicar nunca
+ * (datos no válidos, un alta de un cod que ya existe o la modificación de uno que no existe) se descartan
+ * y se avisan al oyente de descartes
+ */
+public class FunkoWriteBehind {
+    private static final int MAX_NAME_LENGTH = 255;
+    private static final double MAX_PRICE = 1e8;
+    private final Logger logger = LoggerFactory.getLogger(FunkoWriteBehind.class);
+    private final FunkoRepository repository;
+    private final int batchSize;
+    private final ScheduledExecutorService writer;
+    private final Object lock = new Object();
+    private final AtomicLong writeCount = new AtomicLong();
+    private LinkedHashMap<String, PendingWrite> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private volatile Consumer<String> rejectionListener = id -> {
+    };
+
+    /**
+     * Constructor de la clase
+     *
+     * @param repository Repositorio en el que se escriben los Funkos
+     * @param batchSize  Número de cods pendientes que provoca una escritura
+     * @param maxDelay   Tiempo máximo que una escritura puede esperar en la cola
+     */
+    public FunkoWriteBehind(FunkoRepository repository, int batchSize, Duration maxDelay) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.writer = Executors.newSingleThreadScheduledExecutor();
+        long delay = Math.max(1, maxDelay.toMillis());
+        writer.scheduleWithFixedDelay(this::writeQuietly, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Encola el alta de un Funko
+     *
+     * @param funko Funko a guardar
+     */
+    public void save(Funko funko) {
+        enqueue(funko.getCod().toString(), funko, true);
+    }
+
+    /**
+     * Encola la modificación de un Funko
+     *
+     * @param id    Cod de la fila a modificar
+     * @param funko Funko con los nuevos datos
+     */
+    public void update(String id, Funko funko) {
+        enqueue(id, funko, false);
+    }
+
+    /**
+     * Indica a quién avisar de los cods cuyas escrituras se descartan sin guardarse,
+     * por ejemplo para sacarlos de la caché
+     *
+     * @param listener Recibe el cod de cada escritura descartada
+     */
+    public void setRejectionListener(Consumer<String> listener) {
+        this.rejectionListener = listener;
+    }
+
+    /**
+     * Devuelve el Funko pendiente de escribir con el cod indicado
+     *
+     * @param id Cod del Funko
+     * @return Funko pendiente o null si no hay escrituras pendientes de ese cod
+     */
+    public Funko get(String id) {
+        synchronized (lock) {
+            PendingWrite write = pending.get(id);
+            return write == null ? null : write.funko;
+        }
+    }
+
+    /**
+     * Devuelve el número de cods con escrituras pendientes
+     *
+     * @return Número de cods pendientes
+     */
+    public int size() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Devuelve el número de lotes escritos en la base de datos. Aumenta tras confirmar cada escritura
+     *
+     * @return Número de lotes escritos
+     */
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    /**
+     * Escribe en la base de datos todas las escrituras encoladas hasta ahora.
+     * Las escrituras se ejecutan de una en una y en orden, así que al completarse también han terminado
+     * todas las anteriores
+     *
+     * @return Future que se completa al confirmar la escritura o con FunkoNotSavedException si falla
+     * o si la cola ya está detenida y quedan escrituras sin guardar
+     */
+    public CompletableFuture<Void> flush() {
+        try {
+            return CompletableFuture.runAsync(this::write, writer);
+        } catch (RejectedExecutionException e) {
+            int unsaved = size();
+            if (unsaved == 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return CompletableFuture.failedFuture(new FunkoNotSavedException("la cola de escritura diferida está " +
+                    "detenida y quedan " + unsaved + " Funkos sin escribir"));
+        }
+    }
+
+    /**
+     * Escribe las escrituras pendientes y detiene el hilo de escritura
+     */
+    public void shutdown() {
+        try {
+            flush().join();
+        } catch (CompletionException e) {
+            String str = "Escrituras diferidas sin guardar al cerrar: " + size() + " Funkos. " + e.getCause();
+            logger.error(str);
+        }
+        writer.shutdown();
+    }
+
+    /**
+     * Añade una escritura a la cola. Si el cod ya tenía una pendiente se sustituyen sus datos conservando
+     * su posición y si alguna de ellas era un alta se mantiene como alta
+     *
+     * @param id     Cod del Funko
+     * @param funko  Funko a escribir
+     * @param insert ¿Es un alta?
+     */
+    private void enqueue(String id, Funko funko, boolean insert) {
+        boolean full;
+        synchronized (lock) {
+            pending.merge(id, new PendingWrite(funko, insert), PendingWrite::combine);
+            full = pending.size() >= batchSize && !flushScheduled;
+            if (full) {
+                flushScheduled = true;
+            }
+        }
+        if (full) {
+            try {
+                writer.execute(this::writeQuietly);
+            } catch (RejectedExecutionException e) {
+                logger.error("Cola de escritura diferida detenida, la escritura queda pendiente");
+            }
+        }
+    }
+
+    /**
+     * Escribe las escrituras pendientes registrando el error en lugar de propagarlo,
+     * para que no se cancele la escritura periódica
+     */
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (CompletionException e) {
+            String str = "Error en la escritura diferida: " + e.getCause();
+            logger.error(str);
+        }
+    }
+
+    /**
+     * Saca de la cola las escrituras pendientes y las escribe en un único lote. Las altas se escriben con el cod
+     * de la cola, igual que las modificaciones. Las escrituras no válidas y las que el repositorio no aplica
+     * se descartan; si falla la transacción las demás se devuelven a la cola por delante de las que hayan
+     * llegado mientras tanto
+     */
+    private void write() {
+        LinkedHashMap<String, PendingWrite> batch;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        Map<String, Funko> inserts = new LinkedHashMap<>();
+        Map<String, Funko> updates = new LinkedHashMap<>();
+        List<String> rejected = new ArrayList<>();
+        batch.forEach((id, write) -> {
+            if (!isWritable(id, write.funko)) {
+                rejected.add(id);
+            } else if (write.insert) {
+                inserts.put(id, write.funko);
+            } else {
+                updates.put(id, write.funko);
+            }
+        });
+        batch.keySet().removeAll(rejected);
+        if (batch.isEmpty()) {
+            reject(rejected);
+            return;
+        }
+        String str = "Escribiendo " + inserts.size() + " altas y " + updates.size() + " modificaciones diferidas";
+        logger.debug(str);
+        try {
+            rejected.addAll(repository.writeAll(inserts, updates).join());
+            writeCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            reject(rejected);
+            int failed = batch.size();
+            synchronized (lock) {
+                pending.forEach((id, write) -> batch.merge(id, write, PendingWrite::combine));
+                pending = batch;
+            }
+            throw new CompletionException(new FunkoNotSavedException("no se han podido escribir " + failed
+                    + " Funkos de forma diferida (" + (e instanceof CompletionException && e.getCause() != null
+                    ? e.getCause() : e) + ")"));
+        }
+        reject(rejected);
+    }
+
+    /**
+     * Indica si una escritura se puede aplicar: el cod de la cola tiene que ser un UUID y el Funko tener
+     * los datos que se guardan en la base de datos dentro de los límites de sus columnas
+     *
+     * @param id    Cod de la cola
+     * @param funko Funko a escribir
+     * @return ¿Se puede escribir?
+     */
+    private static boolean isWritable(String id, Funko funko) {
+        try {
+            UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return funko.getName() != null && funko.getName().length() <= MAX_NAME_LENGTH
+                && funko.getModel() != null && funko.getReleaseDate() != null
+                && funko.getPrice() >= 0 && funko.getPrice() < MAX_PRICE;
+    }
+
+    /**
+     * Registra las escrituras descartadas y avisa al oyente de descartes
+     *
+     * @param ids Cods de las escrituras descartadas
+     */
+    private void reject(List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String str = "Escrituras diferidas descartadas sin guardar: " + ids;
+        logger.error(str);
+        ids.forEach(rejectionListener);
+    }
+
+    /**
+     * Escritura pendiente de un cod
+     */
+    private static final class PendingWrite {
+        private final Funko funko;
+        private final boolean insert;
+
+        /**
+         * Constructor de la clase
+         *
+         * @param funko  Funko a escribir
+         * @param insert ¿Es un alta?
+         */
+        private PendingWrite(Funko funko, boolean insert) {
+            this.funko = funko;
+            this.insert = insert;
+        }
+
+        /**
+         * Combina una escritura pendiente con otra posterior del mismo cod
+         *
+         * @param older Escritura anterior
+         * @param newer Escritura posterior
+         * @return Escritura combinada
+         */
+        private static PendingWrite combine(PendingWrite older, PendingWrite newer) {
+            return new PendingWrite(newer.funko, older.insert || newer.insert);
+        }
+    }
+}
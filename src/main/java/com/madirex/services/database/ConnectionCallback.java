@@ -0,0 +1,21 @@
+package com.madirex.services.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Interfaz funcional para ejecutar una unidad de trabajo sobre una conexión del pool
+ *
+ * @param <T> Tipo del resultado
+ */
+@FunctionalInterface
+public interface ConnectionCallback<T> {
+    /**
+     * Ejecuta la unidad de trabajo con la conexión prestada
+     *
+     * @param connection Conexión prestada por el pool
+     * @return Resultado de la operación
+     * @throws SQLException No se ha podido realizar la operación
+     */
+    T doInConnection(Connection connection) throws SQLException;
+}
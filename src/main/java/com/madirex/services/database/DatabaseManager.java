@@ -4,6 +4,7 @@ import com.madirex.utils.ApplicationProperties;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import io.github.cdimascio.dotenv.Dotenv;
+import lombok.Getter;
 import lombok.NonNull;
 import org.apache.ibatis.jdbc.ScriptRunner;
 import org.slf4j.Logger;
@@ -15,14 +16,22 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
 /**
  * Controlador de Bases de Datos
+ * Cada unidad de trabajo toma prestada una conexión del pool de Hikari y la devuelve al terminar,
+ * de forma que varias consultas pueden ejecutarse en paralelo
  */
 public class DatabaseManager {
+    private static final List<String> MIGRATIONS = List.of(
+            "migrations/V1__nombre_busqueda.sql",
+            "migrations/V2__indices_cod_modelo_fecha.sql",
+            "migrations/V3__funko_borrado.sql");
     private static DatabaseManager controller;
     private final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
     private String serverUrl;
@@ -31,10 +40,12 @@ public class DatabaseManager {
     private String password;
     private String driver;
     private String initScript;
-    private Connection connection;
-    private PreparedStatement preparedStatement;
+    private int poolSize;
+    private int statementCacheSize;
+    @Getter
+    private int batchSize;
     private String connectionUrl;
-    private boolean dataInitialized = false;
+    private volatile boolean dataInitialized = false;
     private final HikariDataSource dataSource;
 
     /**
@@ -46,6 +57,7 @@ public class DatabaseManager {
         config.setJdbcUrl(connectionUrl);
         config.setUsername(user);
         config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
         dataSource = new HikariDataSource(config);
     }
 
@@ -70,23 +82,40 @@ public class DatabaseManager {
         databaseName = properties.readProperty("db.name", "AppDatabase");
         driver = properties.readProperty("db.driver", "org.h2.Driver");
         initScript = properties.readProperty("db.init", "false");
+        poolSize = Integer.parseInt(properties.readProperty("db.poolSize", "10"));
+        statementCacheSize = Integer.parseInt(properties.readProperty("db.statementCacheSize", "16"));
+        batchSize = Integer.parseInt(properties.readProperty("db.batchSize", "500"));
         Dotenv dotenv = Dotenv.load();
         user = dotenv.get("DATABASE_USER");
         password = dotenv.get("DATABASE_PASSWORD");
-        connectionUrl = this.driver + ":" + this.serverUrl + File.separator + this.databaseName;
+        connectionUrl = this.driver + ":" + this.serverUrl + File.separator + this.databaseName
+                + statementCacheSettings();
         logger.debug("Configuración de acceso a la Base de Datos cargada");
     }
 
     /**
-     * Abre la conexión con el servidor  de base de datos
+     * Devuelve los parámetros de URL que activan la caché de sentencias preparadas del driver.
+     * H2 mantiene por sesión una caché LRU de consultas ya analizadas indexada por el SQL, por lo que
+     * cada conexión del pool reutiliza el plan al volver a preparar el mismo SQL
+     *
+     * @return Parámetros a añadir a la URL de conexión
+     */
+    private String statementCacheSettings() {
+        if (statementCacheSize <= 0 || !driver.startsWith("jdbc:h2")) {
+            return "";
+        }
+        return ";QUERY_CACHE_SIZE=" + statementCacheSize;
+    }
+
+    /**
+     * Prepara la base de datos para su uso, inicializando los datos si es necesario
      *
      * @throws SQLException Servidor no accesible por problemas de conexión o datos de acceso incorrectos
      */
-    public synchronized void open() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
+    public void open() throws SQLException {
+        if (dataInitialized) {
             return;
         }
-        connection = dataSource.getConnection();
         try {
             initData();
         } catch (IOException e) {
@@ -96,206 +125,389 @@ public class DatabaseManager {
 
     /**
      * Inicializa la base de datos con los datos del fichero data.sql
-     * Solo si el properties tiene la propiedad db.init en TRUE
+     * Solo si el properties tiene la propiedad db.init en TRUE.
+     * Después aplica las migraciones pendientes para actualizar bases de datos ya existentes
      */
     public synchronized void initData() throws SQLException, IOException {
-        if (!dataInitialized && initScript.equalsIgnoreCase("true")) {
-            String sql = new String(Objects.requireNonNull(getClass().getClassLoader()
-                    .getResourceAsStream("data.sql")).readAllBytes(), StandardCharsets.UTF_8);
-            try (PreparedStatement psTry = connection.prepareStatement(sql)) {
+        if (dataInitialized) {
+            return;
+        }
+        if (initScript.equalsIgnoreCase("true")) {
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement psTry = connection.prepareStatement(readResource("data.sql"))) {
                 psTry.execute();
             }
-            dataInitialized = true;
+        }
+        migrate();
+        dataInitialized = true;
+    }
+
+    /**
+     * Aplica las migraciones pendientes sobre una conexión del pool
+     *
+     * @throws SQLException No se ha podido aplicar alguna migración
+     * @throws IOException  No se ha podido leer algún script de migración
+     */
+    private void migrate() throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            migrate(connection);
+        }
+    }
+
+    /**
+     * Aplica en orden las migraciones de MIGRATIONS que aún no constan en la tabla schema_version de la base
+     * de datos de la conexión indicada. Las sentencias de cada script se ejecutan una a una y se registra en el log
+     * cuántas filas ha modificado cada una (por ejemplo, los Funkos con cod repetido que V2 mueve a funko_duplicado).
+     * H2 confirma implícitamente las sentencias DDL, así que si un script falla a medias solo se deshacen sus cambios
+     * de datos posteriores a la última sentencia DDL y la migración no se registra; los scripts usan IF NOT EXISTS
+     * para que se puedan volver a aplicar
+     *
+     * @param connection conexión con la base de datos a migrar
+     * @throws SQLException No se ha podido aplicar alguna migración
+     * @throws IOException  No se ha podido leer algún script de migración
+     */
+    public void migrate(@NonNull Connection connection) throws SQLException, IOException {
+        try (PreparedStatement ps = connection.prepareStatement("CREATE TABLE IF NOT EXISTS schema_version (" +
+                "version INT PRIMARY KEY, script VARCHAR(255), applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)")) {
+            ps.execute();
+        }
+        int current = select(connection, "SELECT COALESCE(MAX(version), 0) FROM schema_version", res -> {
+            res.next();
+            return res.getInt(1);
+        });
+        for (int version = current + 1; version <= MIGRATIONS.size(); version++) {
+            String script = MIGRATIONS.get(version - 1);
+            logger.debug("Aplicando migración " + version + ": " + script);
+            connection.setAutoCommit(false);
+            try {
+                for (String sql : readResource(script).split(";")) {
+                    if (sql.isBlank()) {
+                        continue;
+                    }
+                    try (PreparedStatement ps = connection.prepareStatement(sql.strip())) {
+                        ps.execute();
+                        int rows = ps.getUpdateCount();
+                        if (rows > 0) {
+                            String str = "Migración " + version + ": " + rows + " filas modificadas por " + sql.strip();
+                            logger.warn(str);
+                        }
+                    }
+                }
+                updateQuery(connection, "INSERT INTO schema_version (version, script) VALUES (?, ?)", version, script);
+                connection.commit();
+            } catch (SQLException e) {
+                rollback(connection, e);
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Lee un script SQL del classpath
+     *
+     * @param name Nombre del recurso
+     * @return Contenido del script
+     * @throws IOException No se ha podido leer el recurso
+     */
+    private String readResource(String name) throws IOException {
+        try (InputStream stream = Objects.requireNonNull(getClass().getClassLoader().getResourceAsStream(name))) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Cierra el pool de conexiones con el servidor de base de datos
+     */
+    public void close() {
+        dataSource.close();
+    }
+
+    /**
+     * Ejecuta una unidad de trabajo con una conexión prestada por el pool.
+     * La conexión se devuelve al pool al terminar, tanto si la operación tiene éxito como si falla
+     *
+     * @param callback unidad de trabajo a ejecutar
+     * @param <T>      tipo del resultado
+     * @return resultado de la unidad de trabajo
+     * @throws SQLException No se ha podido obtener la conexión o realizar la operación
+     */
+    public <T> T execute(@NonNull ConnectionCallback<T> callback) throws SQLException {
+        this.open();
+        try (Connection connection = dataSource.getConnection()) {
+            return callback.doInConnection(connection);
         }
     }
 
     /**
-     * Cierra la conexión con el servidor de base de datos
+     * Ejecuta una unidad de trabajo dentro de una transacción con una conexión dedicada del pool.
+     * Confirma los cambios si termina correctamente y los deshace si lanza cualquier excepción
+     *
+     * @param callback unidad de trabajo a ejecutar
+     * @param <T>      tipo del resultado
+     * @return resultado de la unidad de trabajo
+     * @throws SQLException No se ha podido realizar la operación (tras deshacer la transacción)
      */
-    public synchronized void close() {
+    public <T> T inTransaction(@NonNull ConnectionCallback<T> callback) throws SQLException {
+        return execute(connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                T result = callback.doInConnection(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                rollback(connection, e);
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    /**
+     * Rollback: Deshace los cambios realizados en la transacción de la conexión
+     *
+     * @param connection conexión con la transacción en curso
+     * @param cause      excepción que ha provocado el rollback
+     */
+    private void rollback(Connection connection, Exception cause) {
+        logger.debug("Deshaciendo transacción por: " + cause);
         try {
-            preparedStatement.close();
-            connection.close();
+            connection.rollback();
         } catch (SQLException e) {
-            throw new RuntimeException(e);
+            cause.addSuppressed(e);
         }
     }
 
     /**
-     * Realiza una consulta a la base de datos de manera "preparada" obteniendo los
-     * parámetros opcionales si son necesarios
+     * Prepara una sentencia y asigna los parámetros de la consulta parametrizada
      *
-     * @param querySQL consulta SQL de tipo select
-     * @param params   parámetros de la consulta parametrizada
-     * @return ResultSet de la consulta
-     * @throws SQLException No se ha podido realizar la consulta o la tabla no existe
+     * @param connection conexión sobre la que se prepara la sentencia
+     * @param sql        consulta SQL
+     * @param keys       indica si se deben devolver las claves generadas
+     * @param params     parámetros de la consulta parametrizada
+     * @return sentencia preparada
+     * @throws SQLException No se ha podido preparar la sentencia
      */
-    private synchronized ResultSet executeQuery(@NonNull String querySQL, Object... params) throws SQLException {
-        this.open();
+    private PreparedStatement prepare(Connection connection, String sql, boolean keys, Object... params) throws SQLException {
         var strParams = Arrays.toString(params);
-        logger.debug("Ejecutando consulta: " + querySQL + " con parámetros: " + strParams);
-        preparedStatement = connection.prepareStatement(querySQL);
+        logger.debug("Ejecutando consulta: " + sql + " con parámetros: " + strParams);
+        PreparedStatement preparedStatement = keys
+                ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(sql);
         for (int i = 0; i < params.length; i++) {
             preparedStatement.setObject(i + 1, params[i]);
         }
-        return preparedStatement.executeQuery();
+        return preparedStatement;
     }
 
     /**
-     * Realiza una consulta select a la base de datos de manera "preparada" obteniendo los
-     * parámetros opcionales si son necesarios
+     * Realiza una consulta select sobre la conexión indicada de manera "preparada" obteniendo los
+     * parámetros opcionales si son necesarios. El ResultSet se cierra al terminar el handler
      *
-     * @param querySQL consulta SQL de tipo select
-     * @param params   parámetros de la consulta parametrizada
-     * @return ResultSet de la consulta
+     * @param connection conexión sobre la que se realiza la consulta
+     * @param querySQL   consulta SQL de tipo select
+     * @param handler    transforma el ResultSet en el resultado
+     * @param params     parámetros de la consulta parametrizada
+     * @param <T>        tipo del resultado
+     * @return resultado del handler
      * @throws SQLException No se ha podido realizar la consulta o la tabla no existe
      */
-    public synchronized Optional<ResultSet> select(@NonNull String querySQL, Object... params) throws SQLException {
-        return Optional.of(executeQuery(querySQL, params));
+    public <T> T select(@NonNull Connection connection, @NonNull String querySQL,
+                        @NonNull ResultSetHandler<T> handler, Object... params) throws SQLException {
+        try (PreparedStatement preparedStatement = prepare(connection, querySQL, false, params);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            return handler.handle(resultSet);
+        }
     }
 
     /**
-     * Realiza una consulta select a la base de datos de manera "preparada" obteniendo los
-     * parámetros opcionales si son necesarios
+     * Realiza una consulta select con una conexión prestada por el pool
      *
      * @param querySQL consulta SQL de tipo select
-     * @param limit    número de registros de la página
-     * @param offset   desplazamiento de registros o número de registros ignorados para comenzar la devolución
+     * @param handler  transforma el ResultSet en el resultado
      * @param params   parámetros de la consulta parametrizada
-     * @return ResultSet de la consulta
+     * @param <T>      tipo del resultado
+     * @return resultado del handler
+     * @throws SQLException No se ha podido realizar la consulta o la tabla no existe
+     */
+    public <T> T select(@NonNull String querySQL, @NonNull ResultSetHandler<T> handler, Object... params) throws SQLException {
+        return execute(connection -> select(connection, querySQL, handler, params));
+    }
+
+    /**
+     * Realiza una consulta select paginada sobre la conexión indicada
+     *
+     * @param connection conexión sobre la que se realiza la consulta
+     * @param querySQL   consulta SQL de tipo select
+     * @param limit      número de registros de la página
+     * @param offset     desplazamiento de registros o número de registros ignorados para comenzar la devolución
+     * @param handler    transforma el ResultSet en el resultado
+     * @param params     parámetros de la consulta parametrizada
+     * @param <T>        tipo del resultado
+     * @return resultado del handler
      * @throws SQLException No se ha podido realizar la consulta o la tabla no existe o el desplazamiento
      *                      es mayor que el número de registros
      */
-    public synchronized Optional<ResultSet> select(@NonNull String querySQL, int limit, int offset, Object... params) throws SQLException {
+    public <T> T selectPage(@NonNull Connection connection, @NonNull String querySQL, int limit, int offset,
+                            @NonNull ResultSetHandler<T> handler, Object... params) throws SQLException {
         String query = querySQL + " LIMIT " + limit + " OFFSET " + offset;
-        return Optional.of(executeQuery(query, params));
+        return select(connection, query, handler, params);
     }
 
     /**
-     * Realiza una consulta de tipo insert de manera "preparada" con los
-     * parámetros opcionales si son necesarios
+     * Realiza una consulta de tipo insert sobre la conexión indicada y devuelve la clave generada
      *
-     * @param insertSQL consulta SQL de tipo insert
-     * @param params    parámetros de la consulta parametrizada
+     * @param connection conexión sobre la que se realiza la consulta
+     * @param insertSQL  consulta SQL de tipo insert
+     * @param params     parámetros de la consulta parametrizada
      * @return Clave del registro insertado
      * @throws SQLException tabla no existe o no se ha podido realizar la operación
      */
-    public synchronized Optional<ResultSet> insertAndGetKey(@NonNull String insertSQL, Object... params) throws SQLException {
-        this.open();
-        var strParams = Arrays.toString(params);
-        logger.debug("Ejecutando consulta " + insertSQL + " con parámetros: " + strParams);
-        preparedStatement = connection.prepareStatement(insertSQL, preparedStatement.RETURN_GENERATED_KEYS);
-        for (int i = 0; i < params.length; i++) {
-            preparedStatement.setObject(i + 1, params[i]);
+    public Optional<Long> insertAndGetKey(@NonNull Connection connection, @NonNull String insertSQL,
+                                          Object... params) throws SQLException {
+        try (PreparedStatement preparedStatement = prepare(connection, insertSQL, true, params)) {
+            preparedStatement.executeUpdate();
+            try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                return keys.next() ? Optional.of(keys.getLong(1)) : Optional.empty();
+            }
         }
-        preparedStatement.executeUpdate();
-        return Optional.of(preparedStatement.getGeneratedKeys());
     }
 
     /**
-     * Realiza una consulta de tipo insert de manera "preparada" con los
-     * parámetros opcionales si son necesarios
+     * Realiza una consulta de tipo insert sobre la conexión indicada
      *
-     * @param insertSQL consulta SQL de tipo insert
-     * @param params    parámetros de la consulta parametrizada
+     * @param connection conexión sobre la que se realiza la consulta
+     * @param insertSQL  consulta SQL de tipo insert
+     * @param params     parámetros de la consulta parametrizada
      * @return número de registros insertados
      * @throws SQLException tabla no existe o no se ha podido realizar la operación
      */
-    public synchronized int insert(@NonNull String insertSQL, Object... params) throws SQLException {
-        return updateQuery(insertSQL, params);
+    public int insert(@NonNull Connection connection, @NonNull String insertSQL, Object... params) throws SQLException {
+        return updateQuery(connection, insertSQL, params);
     }
 
     /**
-     * Realiza una consulta de tipo update de manera "preparada" con los
-     * parámetros opcionales si son necesarios
+     * Realiza una consulta de tipo update sobre la conexión indicada
      *
-     * @param updateSQL consulta SQL de tipo update
-     * @param params    parámetros de la consulta parametrizada
+     * @param connection conexión sobre la que se realiza la consulta
+     * @param updateSQL  consulta SQL de tipo update
+     * @param params     parámetros de la consulta parametrizada
      * @return número de registros actualizados
      * @throws SQLException tabla no existe o no se ha podido realizar la operación
      */
-    public synchronized int update(@NonNull String updateSQL, Object... params) throws SQLException {
-        return updateQuery(updateSQL, params);
+    public int update(@NonNull Connection connection, @NonNull String updateSQL, Object... params) throws SQLException {
+        return updateQuery(connection, updateSQL, params);
     }
 
     /**
-     * Realiza una consulta de tipo delete de manera "preparada" con los
-     * parámetros opcionales si son necesarios
+     * Realiza una consulta de tipo delete sobre la conexión indicada
      *
-     * @param deleteSQL consulta SQL de tipo delete
-     * @param params    parámetros de la consulta parametrizada
+     * @param connection conexión sobre la que se realiza la consulta
+     * @param deleteSQL  consulta SQL de tipo delete
+     * @param params     parámetros de la consulta parametrizada
      * @return número de registros eliminados
      * @throws SQLException tabla no existe o no se ha podido realizar la operación
      */
-    public synchronized int delete(@NonNull String deleteSQL, Object... params) throws SQLException {
-        return updateQuery(deleteSQL, params);
+    public int delete(@NonNull Connection connection, @NonNull String deleteSQL, Object... params) throws SQLException {
+        return updateQuery(connection, deleteSQL, params);
     }
 
     /**
-     * Realiza una consulta de tipo update. Es decir, modifica los datos de manera "preparada" con los
-     * parámetros opcionales si son necesarios
+     * Ejecuta la misma sentencia para cada conjunto de parámetros agrupándolos en lotes JDBC
+     * (addBatch/executeBatch) de como máximo batchSize filas
      *
-     * @param genericSQL consulta SQL de tipo update, delete, create, etc.. que modifica los datos
-     * @param params     parámetros de la consulta parametrizada
-     * @return número de registros aplicados
+     * @param connection conexión sobre la que se realiza la operación
+     * @param genericSQL consulta SQL de tipo insert, update o delete
+     * @param rows       parámetros de cada ejecución de la sentencia
+     * @param batchSize  número máximo de filas por lote
+     * @return número de registros aplicados por cada conjunto de parámetros, en el mismo orden
      * @throws SQLException no se ha podido realizar la operación
      */
-    private synchronized int updateQuery(@NonNull String genericSQL, Object... params) throws SQLException {
-        this.open();
-        var strParams = Arrays.toString(params);
-        logger.debug("Ejecutando consulta " + genericSQL + " con parámetros: " + strParams);
-        preparedStatement = connection.prepareStatement(genericSQL);
-        for (int i = 0; i < params.length; i++) {
-            preparedStatement.setObject(i + 1, params[i]);
+    public int[] batch(@NonNull Connection connection, @NonNull String genericSQL,
+                       @NonNull List<Object[]> rows, int batchSize) throws SQLException {
+        logger.debug("Ejecutando lote: " + genericSQL + " con " + rows.size() + " filas");
+        int[] applied = new int[rows.size()];
+        int done = 0;
+        try (PreparedStatement preparedStatement = connection.prepareStatement(genericSQL)) {
+            int pending = 0;
+            for (Object[] params : rows) {
+                for (int i = 0; i < params.length; i++) {
+                    preparedStatement.setObject(i + 1, params[i]);
+                }
+                preparedStatement.addBatch();
+                if (++pending == batchSize) {
+                    done = copyCounts(preparedStatement.executeBatch(), applied, done);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                copyCounts(preparedStatement.executeBatch(), applied, done);
+            }
         }
-        return preparedStatement.executeUpdate();
+        return applied;
     }
 
     /**
-     * Inicia la base de datos con el script pasado como parámetro
+     * Ejecuta la misma sentencia para cada conjunto de parámetros con el tamaño de lote configurado
      *
-     * @param genericSQL Script de inicio
-     * @return número de registros aplicados
+     * @param connection conexión sobre la que se realiza la operación
+     * @param genericSQL consulta SQL de tipo insert, update o delete
+     * @param rows       parámetros de cada ejecución de la sentencia
+     * @return número de registros aplicados por cada conjunto de parámetros, en el mismo orden
      * @throws SQLException no se ha podido realizar la operación
      */
-    public synchronized int initSQL(String genericSQL) throws SQLException {
-        logger.debug("Datos de inicio: " + genericSQL);
-        return updateQuery(genericSQL);
+    public int[] batch(@NonNull Connection connection, @NonNull String genericSQL,
+                       @NonNull List<Object[]> rows) throws SQLException {
+        return batch(connection, genericSQL, rows, batchSize);
     }
 
     /**
-     * Inicia una transacción
+     * Copia el resultado de un lote en el array de resultados.
+     * Statement.SUCCESS_NO_INFO se cuenta como un registro aplicado
      *
-     * @throws SQLException No se ha podido realizar la operación
+     * @param counts  resultado de executeBatch
+     * @param applied resultados acumulados
+     * @param from    posición desde la que copiar
+     * @return siguiente posición libre
      */
-    public synchronized void beginTransaction() throws SQLException {
-        if (connection == null) {
-            this.open();
+    private int copyCounts(int[] counts, int[] applied, int from) {
+        for (int count : counts) {
+            applied[from++] = count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
         }
-        connection.setAutoCommit(false);
+        return from;
     }
 
     /**
-     * Commit: Confirma los cambios realizados en la base de datos
+     * Realiza una consulta de tipo update. Es decir, modifica los datos de manera "preparada" con los
+     * parámetros opcionales si son necesarios
      *
-     * @throws SQLException No se ha podido realizar la operación
+     * @param connection conexión sobre la que se realiza la consulta
+     * @param genericSQL consulta SQL de tipo update, delete, create, etc.. que modifica los datos
+     * @param params     parámetros de la consulta parametrizada
+     * @return número de registros aplicados
+     * @throws SQLException no se ha podido realizar la operación
      */
-    public synchronized void commit() throws SQLException {
-        connection.commit();
-        connection.setAutoCommit(true);
+    private int updateQuery(Connection connection, String genericSQL, Object... params) throws SQLException {
+        try (PreparedStatement preparedStatement = prepare(connection, genericSQL, false, params)) {
+            return preparedStatement.executeUpdate();
+        }
     }
 
     /**
-     * Rollback: Deshace los cambios realizados en la base de datos
+     * Inicia la base de datos con el script pasado como parámetro
      *
-     * @throws SQLException No se ha podido realizar la operación
+     * @param genericSQL Script de inicio
+     * @return número de registros aplicados
+     * @throws SQLException no se ha podido realizar la operación
      */
-    private synchronized void rollback() throws SQLException {
-        connection.rollback();
-        connection.setAutoCommit(true);
+    public int initSQL(String genericSQL) throws SQLException {
+        logger.debug("Datos de inicio: " + genericSQL);
+        return execute(connection -> updateQuery(connection, genericSQL));
     }
 
-
     /**
      * Inicializa la base de datos con los datos del fichero data.sql
      *
@@ -304,11 +516,13 @@ public class DatabaseManager {
      * @throws FileNotFoundException No se ha encontrado el fichero
      * @throws SQLException          No se ha podido realizar la operación
      */
-    public synchronized void initData(@NonNull String sqlFile, boolean logWriter) throws FileNotFoundException, SQLException {
+    public void initData(@NonNull String sqlFile, boolean logWriter) throws FileNotFoundException, SQLException {
         logger.debug("Inicializando datos de fichero: " + sqlFile + " con logWriter: " + logWriter);
-        this.open();
-        var sr = new ScriptRunner(connection);
         var reader = new BufferedReader(new FileReader(sqlFile));
-        sr.runScript(reader);
+        execute(connection -> {
+            var sr = new ScriptRunner(connection);
+            sr.runScript(reader);
+            return null;
+        });
     }
-}
\ No newline at end of file
+}
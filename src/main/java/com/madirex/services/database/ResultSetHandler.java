@@ -0,0 +1,21 @@
+package com.madirex.services.database;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Interfaz funcional para transformar un ResultSet antes de cerrarlo
+ *
+ * @param <T> Tipo del resultado
+ */
+@FunctionalInterface
+public interface ResultSetHandler<T> {
+    /**
+     * Transforma el ResultSet en el resultado deseado
+     *
+     * @param resultSet ResultSet de la consulta
+     * @return Resultado de la transformación
+     * @throws SQLException No se ha podido leer el ResultSet
+     */
+    T handle(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,83 @@
+package com.madirex.services.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compresión de los ficheros de backup
+ */
+public enum BackupCompression {
+    /**
+     * JSON sin comprimir
+     */
+    NONE(""),
+    /**
+     * JSON comprimido en gzip. Se comprime por bloques en paralelo (ver ParallelGzipOutputStream) y el resultado
+     * es un gzip estándar que se puede leer con cualquier herramienta
+     */
+    GZIP(".gz");
+
+    private static final int GZIP_MAGIC_1 = 0x1f;
+    private static final int GZIP_MAGIC_2 = 0x8b;
+    private final String extension;
+
+    /**
+     * Constructor
+     *
+     * @param extension Extensión que se añade al nombre del fichero
+     */
+    BackupCompression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Devuelve la extensión de los ficheros con esta compresión
+     *
+     * @return Extensión (vacía si no se comprime)
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Elige la compresión según la extensión del nombre del fichero
+     *
+     * @param fileName Nombre del fichero
+     * @return GZIP si termina en .gz, NONE en otro caso
+     */
+    public static BackupCompression forFileName(String fileName) {
+        return fileName.endsWith(GZIP.extension) ? GZIP : NONE;
+    }
+
+    /**
+     * Envuelve un flujo de salida para escribir con esta compresión
+     *
+     * @param out Flujo de salida
+     * @return Flujo que comprime en out
+     */
+    public OutputStream wrap(OutputStream out) {
+        return this == GZIP ? new ParallelGzipOutputStream(out) : out;
+    }
+
+    /**
+     * Envuelve un flujo de entrada detectando la compresión por los primeros bytes (la cabecera de gzip),
+     * sin tener en cuenta el nombre del fichero
+     *
+     * @param in Flujo de entrada
+     * @return Flujo que descomprime in si está comprimido
+     * @throws IOException Si no se puede leer el flujo
+     */
+    public static InputStream detect(InputStream in) throws IOException {
+        BufferedInputStream buffered = in instanceof BufferedInputStream b ? b : new BufferedInputStream(in);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        return first == GZIP_MAGIC_1 && second == GZIP_MAGIC_2
+                ? new GZIPInputStream(buffered, ParallelGzipOutputStream.BLOCK_SIZE / 16)
+                : buffered;
+    }
+}
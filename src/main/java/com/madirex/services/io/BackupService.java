@@ -2,31 +2,68 @@ package com.madirex.services.io;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.madirex.exceptions.DirectoryException;
+import com.madirex.exceptions.ExportDataException;
+import com.madirex.exceptions.FunkoNotValidException;
 import com.madirex.exceptions.ImportDataException;
+import com.madirex.models.BackupManifest;
 import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
 import com.madirex.utils.LocalDateAdapter;
 import com.madirex.utils.LocalDateTimeAdapter;
-import com.madirex.utils.Utils;
+import com.madirex.validators.FunkoValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Clase BackupService
  */
 public class BackupService<T> {
 
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final String MANIFEST_SUFFIX = ".manifest.json";
     private static BackupService backupServiceInstance;
     private final Logger logger = LoggerFactory.getLogger(BackupService.class);
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .create();
 
     /**
      * Constructor de la clase
@@ -47,34 +84,345 @@ public class BackupService<T> {
     }
 
     /**
-     * Exportar los datos pasados por parámetro a un archivo JSON
+     * Exportar los datos pasados por parámetro a un archivo JSON compacto.
+     * Gson escribe directamente en el fichero, sin construir antes el JSON completo en un String
      *
      * @param path     Ruta del directorio donde se guardará el backup
      * @param fileName Nombre del archivo del backup
      * @param data     Datos a guardar
      */
     public CompletableFuture<Void> exportData(String path, String fileName, T data) {
-        CompletableFuture.runAsync(() -> {
-            File dataDir = new File(path);
-            if (dataDir.exists()) {
-                String dest = path + File.separator + fileName;
-                Gson gson = new GsonBuilder()
-                        .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
-                        .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                        .setPrettyPrinting()
-                        .create();
-                String json = gson.toJson(data);
-                Utils.getInstance().writeString(dest, json);
-                logger.debug("Backup realizado con éxito");
-            } else {
-                throw new CompletionException(new DirectoryException("No se creará el backup."));
-            }
-        }).join();
+        CompletableFuture.runAsync(() -> writeJson(path, fileName, false, BackupCompression.forFileName(fileName),
+                writer -> gson.toJson(data, data.getClass(), writer))).join();
         return CompletableFuture.completedFuture(null);
     }
 
     /**
-     * Importa los datos de un archivo JSON
+     * Exporta los Funkos a un archivo JSON compacto según se van leyendo del Stream, sin tenerlos todos en memoria.
+     * Se comprime en gzip si el nombre del fichero termina en .gz y se escribe en formato binario
+     * (ver FunkoBinaryFormat) si termina en .fkb. El Stream se cierra al terminar
+     *
+     * @param path     Ruta del directorio donde se guardará el backup
+     * @param fileName Nombre del archivo del backup
+     * @param funkos   Funkos a guardar
+     * @return CompletableFuture con el número de Funkos exportados
+     */
+    public CompletableFuture<Long> exportStream(String path, String fileName, Stream<Funko> funkos) {
+        return exportStream(path, fileName, funkos, false);
+    }
+
+    /**
+     * Exporta los Funkos a un archivo JSON según se van leyendo del Stream, sin tenerlos todos en memoria.
+     * Cada Funko se escribe con un JsonWriter sobre un canal de fichero con buffer; el fichero se escribe en uno
+     * temporal que sustituye al anterior al terminar, así que un fallo a medias no deja un backup incompleto.
+     * El Stream se cierra al terminar. Si el nombre del fichero termina en .fkb se exporta en formato binario
+     * y pretty no se tiene en cuenta
+     *
+     * @param path     Ruta del directorio donde se guardará el backup
+     * @param fileName Nombre del archivo del backup
+     * @param funkos   Funkos a guardar
+     * @param pretty   ¿Formatear el JSON con sangrado?
+     * @return CompletableFuture con el número de Funkos exportados
+     */
+    public CompletableFuture<Long> exportStream(String path, String fileName, Stream<Funko> funkos, boolean pretty) {
+        if (FunkoBinaryFormat.isBinaryName(fileName)) {
+            return exportBinary(path, fileName, funkos);
+        }
+        return exportStream(path, fileName, funkos, pretty, BackupCompression.forFileName(fileName));
+    }
+
+    /**
+     * Exporta los Funkos a un archivo JSON, con la compresión indicada, según se van leyendo del Stream
+     *
+     * @param path        Ruta del directorio donde se guardará el backup
+     * @param fileName    Nombre del archivo del backup
+     * @param funkos      Funkos a guardar
+     * @param pretty      ¿Formatear el JSON con sangrado?
+     * @param compression Compresión del fichero
+     * @return CompletableFuture con el número de Funkos exportados
+     */
+    public CompletableFuture<Long> exportStream(String path, String fileName, Stream<Funko> funkos, boolean pretty,
+                                                BackupCompression compression) {
+        return CompletableFuture.supplyAsync(() -> {
+            long[] count = {0};
+            try (funkos) {
+                writeJson(path, fileName, pretty, compression, writer -> {
+                    writer.beginArray();
+                    Iterator<Funko> iterator = funkos.iterator();
+                    while (iterator.hasNext()) {
+                        gson.toJson(iterator.next(), Funko.class, writer);
+                        count[0]++;
+                    }
+                    writer.endArray();
+                });
+            }
+            String str = "Backup realizado con éxito: " + count[0] + " Funkos";
+            logger.debug(str);
+            return count[0];
+        });
+    }
+
+    /**
+     * Exporta los Funkos al formato binario compacto (ver FunkoBinaryFormat) según se van leyendo del Stream.
+     * Ocupa menos que el JSON y se restaura mapeando el fichero en memoria. El Stream se cierra al terminar
+     *
+     * @param path     Ruta del directorio donde se guardará el backup
+     * @param fileName Nombre del archivo del backup
+     * @param funkos   Funkos a guardar
+     * @return CompletableFuture con el número de Funkos exportados
+     */
+    public CompletableFuture<Long> exportBinary(String path, String fileName, Stream<Funko> funkos) {
+        return CompletableFuture.supplyAsync(() -> {
+            long[] count = {0};
+            try (funkos) {
+                writeBackup(path, fileName, out -> {
+                    try (FunkoBinaryFormat.Writer writer = FunkoBinaryFormat.writer(out)) {
+                        Iterator<Funko> iterator = funkos.iterator();
+                        while (iterator.hasNext()) {
+                            writer.write(iterator.next());
+                        }
+                        count[0] = writer.finish();
+                    }
+                });
+            }
+            String str = "Backup binario realizado con éxito: " + count[0] + " Funkos";
+            logger.debug(str);
+            return count[0];
+        });
+    }
+
+    /**
+     * Convierte un backup entre JSON y el formato binario. El formato del origen se detecta por su contenido y el
+     * del destino por su nombre (.fkb binario, .gz JSON comprimido y JSON en otro caso). Los Funkos se copian
+     * uno a uno, sin tenerlos todos en memoria
+     *
+     * @param path           Ruta del directorio de los backups
+     * @param sourceFileName Nombre del backup de origen
+     * @param targetFileName Nombre del backup de destino
+     * @return CompletableFuture con el número de Funkos convertidos
+     */
+    public CompletableFuture<Long> convertBackup(String path, String sourceFileName, String targetFileName) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return openBackup(Path.of(path, sourceFileName));
+            } catch (IOException | RuntimeException e) {
+                throw new CompletionException(new ImportDataException(e.getMessage()));
+            }
+        }).thenCompose(funkos -> exportStream(path, targetFileName, funkos));
+    }
+
+    /**
+     * Devuelve el nombre del manifiesto de la cadena de backups incrementales de un backup:
+     * backup.json.gz -> backup.manifest.json
+     *
+     * @param fileName Nombre del backup completo
+     * @return Nombre del manifiesto
+     */
+    public static String manifestFileName(String fileName) {
+        return baseName(fileName) + MANIFEST_SUFFIX;
+    }
+
+    /**
+     * Devuelve el nombre del incremento indicado de un backup, con su misma extensión (y así su mismo formato):
+     * backup.json.gz -> backup-inc-0001.json.gz
+     *
+     * @param fileName Nombre del backup completo
+     * @param number   Número del incremento (desde 1)
+     * @return Nombre del incremento
+     */
+    public static String incrementFileName(String fileName, int number) {
+        return baseName(fileName) + String.format("-inc-%04d", number) + fileName.substring(baseName(fileName).length());
+    }
+
+    /**
+     * Devuelve el nombre de un fichero hasta el primer punto
+     *
+     * @param fileName Nombre del fichero
+     * @return Nombre sin extensiones
+     */
+    private static String baseName(String fileName) {
+        int dot = fileName.indexOf('.');
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    /**
+     * Lee el manifiesto de una cadena de backups incrementales
+     *
+     * @param path         Ruta del directorio de los backups
+     * @param manifestName Nombre del manifiesto
+     * @return CompletableFuture con el manifiesto o vacío si no existe
+     */
+    public CompletableFuture<Optional<BackupManifest>> readManifest(String path, String manifestName) {
+        return CompletableFuture.supplyAsync(() -> {
+            Path file = Path.of(path, manifestName);
+            if (!Files.exists(file)) {
+                return Optional.empty();
+            }
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return Optional.ofNullable(gson.fromJson(reader, BackupManifest.class));
+            } catch (IOException | JsonParseException e) {
+                throw new CompletionException(new ImportDataException(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Guarda el manifiesto de una cadena de backups incrementales. Como los backups, se escribe en un fichero
+     * temporal que sustituye al anterior, así que el manifiesto nunca queda a medias
+     *
+     * @param path         Ruta del directorio de los backups
+     * @param manifestName Nombre del manifiesto
+     * @param manifest     Manifiesto
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> writeManifest(String path, String manifestName, BackupManifest manifest) {
+        return CompletableFuture.runAsync(() -> writeJson(path, manifestName, true, BackupCompression.NONE,
+                writer -> gson.toJson(manifest, BackupManifest.class, writer)));
+    }
+
+    /**
+     * Escribe un backup JSON con un JsonWriter sobre el fichero del backup
+     *
+     * @param path        Ruta del directorio donde se guardará el backup
+     * @param fileName    Nombre del archivo del backup
+     * @param pretty      ¿Formatear el JSON con sangrado?
+     * @param compression Compresión del fichero
+     * @param body        Escritura del contenido del backup
+     */
+    private void writeJson(String path, String fileName, boolean pretty, BackupCompression compression, JsonBody body) {
+        writeBackup(path, fileName, out -> {
+            try (JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(
+                    compression.wrap(out), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE))) {
+                if (pretty) {
+                    writer.setIndent("  ");
+                }
+                body.write(writer);
+            }
+        });
+    }
+
+    /**
+     * Escribe un backup sobre un canal de fichero. Se escribe en un fichero temporal del mismo directorio que
+     * sustituye al backup anterior al terminar
+     *
+     * @param path     Ruta del directorio donde se guardará el backup
+     * @param fileName Nombre del archivo del backup
+     * @param body     Escritura del contenido del backup
+     */
+    private void writeBackup(String path, String fileName, OutputBody body) {
+        File dataDir = new File(path);
+        if (!dataDir.exists()) {
+            throw new CompletionException(new DirectoryException("No se creará el backup."));
+        }
+        Path dest = Path.of(path, fileName);
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(dataDir.toPath(), fileName, ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 OutputStream out = Channels.newOutputStream(channel)) {
+                body.write(out);
+            }
+            Files.move(tmp, dest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.debug("Backup realizado con éxito");
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(tmp);
+            if (e instanceof CompletionException completionException) {
+                throw completionException;
+            }
+            throw new CompletionException(new ExportDataException(e.getMessage()));
+        }
+    }
+
+    /**
+     * Borra un fichero temporal si existe, registrando el error si no se puede borrar
+     *
+     * @param tmp Fichero temporal o null
+     */
+    private void deleteQuietly(Path tmp) {
+        if (tmp == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tmp);
+        } catch (IOException e) {
+            String str = "No se ha podido borrar el fichero temporal del backup: " + e;
+            logger.error(str);
+        }
+    }
+
+    /**
+     * Escritura del contenido de un backup JSON
+     */
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    /**
+     * Escritura del contenido de un backup en su fichero
+     */
+    @FunctionalInterface
+    private interface OutputBody {
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Abre un backup como un Stream de Funkos que se leen según se consumen. Los backups binarios se leen mapeando
+     * el fichero en memoria y los JSON token a token con un JsonReader, descomprimiéndolos si están en gzip.
+     * El formato se detecta por los primeros bytes del fichero. El Stream se debe cerrar para liberar el fichero
+     *
+     * @param file Fichero del backup
+     * @return Stream de Funkos
+     * @throws IOException Si no se puede abrir el fichero
+     */
+    private Stream<Funko> openBackup(Path file) throws IOException {
+        if (FunkoBinaryFormat.isBinary(file)) {
+            return FunkoBinaryFormat.read(file);
+        }
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(BackupCompression.detect(
+                Files.newInputStream(file)), StandardCharsets.UTF_8), READ_BUFFER_SIZE));
+        try {
+            reader.beginArray();
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        Iterator<Funko> iterator = new Iterator<>() {
+            private boolean ended;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    if (!ended && !reader.hasNext()) {
+                        reader.endArray();
+                        ended = true;
+                    }
+                    return !ended;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public Funko next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return gson.fromJson(reader, Funko.class);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Importa los datos de un backup JSON o binario. Si el archivo está comprimido en gzip se descomprime al leerlo
      *
      * @param path     Ruta del archivo JSON
      * @param fileName Nombre del archivo JSON
@@ -86,17 +434,106 @@ public class BackupService<T> {
             if (!folder.exists()) {
                 throw new CompletionException(new DirectoryException("No se creará el backup."));
             }
-            File dataFile = new File(path + File.separator + fileName);
-            String json = new String(Utils.getInstance().getFileBytes(dataFile));
-            Type listType = new TypeToken<List<Funko>>() {
-            }.getType();
-            Gson gson = new GsonBuilder()
-                    .registerTypeAdapter(LocalDate.class, new LocalDateAdapter())
-                    .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                    .create();
-            return (List<Funko>) gson.fromJson(json, listType);
+            try (Stream<Funko> funkos = openBackup(Path.of(path, fileName))) {
+                return funkos.collect(Collectors.toList());
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
         }).exceptionally(ex -> {
             throw new CompletionException(new ImportDataException(ex.getMessage()));
         });
     }
+
+    /**
+     * Restaura un backup leyéndolo en streaming: el JSON se analiza token a token con un JsonReader, el binario se
+     * lee de memoria mapeada, y los Funkos se envían a batchWriter en lotes de batchSize, así que la memoria usada
+     * no depende del tamaño del backup. El formato y la compresión se detectan por los primeros bytes del fichero.
+     * Los Funkos no válidos o de un lote que no se ha podido guardar se cuentan como rechazados
+     *
+     * @param path        Ruta del directorio del backup
+     * @param fileName    Nombre del archivo del backup
+     * @param batchSize   Número de Funkos por lote
+     * @param batchWriter Función que guarda un lote y devuelve los Funkos guardados
+     * @param progress    Se llama tras cada lote con el resumen acumulado (puede ser null)
+     * @return CompletableFuture con el resumen de la restauración
+     */
+    public CompletableFuture<ImportReport> importStream(String path, String fileName, int batchSize,
+                                                        Function<List<Funko>, CompletableFuture<List<Funko>>> batchWriter,
+                                                        Consumer<ImportReport> progress) {
+        return CompletableFuture.supplyAsync(() -> {
+            File folder = new File(path + File.separator);
+            if (!folder.exists()) {
+                throw new CompletionException(new DirectoryException("No se restaurará el backup."));
+            }
+            long start = System.currentTimeMillis();
+            long[] counts = new long[3];
+            List<Funko> batch = new ArrayList<>(batchSize);
+            try (Stream<Funko> funkos = openBackup(Path.of(path, fileName))) {
+                Iterator<Funko> iterator = funkos.iterator();
+                while (iterator.hasNext()) {
+                    Funko funko = iterator.next();
+                    counts[0]++;
+                    try {
+                        FunkoValidator.validate(funko);
+                        batch.add(funko);
+                    } catch (RuntimeException | FunkoNotValidException e) {
+                        counts[2]++;
+                        String str = "Funko rechazado: " + funko + " -> " + e.getMessage();
+                        logger.debug(str);
+                    }
+                    if (batch.size() == batchSize) {
+                        writeBatch(batch, batchWriter, counts, start, progress);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    writeBatch(batch, batchWriter, counts, start, progress);
+                }
+            } catch (IOException | UncheckedIOException | JsonParseException | IllegalStateException e) {
+                throw new CompletionException(new ImportDataException(e.getMessage()));
+            }
+            return report(counts, start);
+        });
+    }
+
+    /**
+     * Guarda un lote de la restauración, actualiza los contadores y avisa del progreso
+     *
+     * @param batch       Lote a guardar
+     * @param batchWriter Función que guarda un lote y devuelve los Funkos guardados
+     * @param counts      Contadores de leídos, importados y rechazados
+     * @param start       Instante de inicio en milisegundos
+     * @param progress    Se llama con el resumen acumulado (puede ser null)
+     */
+    private void writeBatch(List<Funko> batch, Function<List<Funko>, CompletableFuture<List<Funko>>> batchWriter,
+                            long[] counts, long start, Consumer<ImportReport> progress) {
+        try {
+            int saved = batchWriter.apply(batch).join().size();
+            counts[1] += saved;
+            counts[2] += batch.size() - saved;
+        } catch (RuntimeException e) {
+            counts[2] += batch.size();
+            String str = "Lote rechazado: " + e.getMessage();
+            logger.error(str);
+        }
+        if (progress != null) {
+            progress.accept(report(counts, start));
+        }
+    }
+
+    /**
+     * Construye el resumen de una restauración
+     *
+     * @param counts Contadores de leídos, importados y rechazados
+     * @param start  Instante de inicio en milisegundos
+     * @return Resumen
+     */
+    private ImportReport report(long[] counts, long start) {
+        return ImportReport.builder()
+                .rowsRead(counts[0])
+                .rowsImported(counts[1])
+                .rowsRejected(counts[2])
+                .elapsedMillis(System.currentTimeMillis() - start)
+                .build();
+    }
 }
@@ -0,0 +1,185 @@
+package com.madirex.services.io;
+
+import com.madirex.exceptions.FunkoNotValidException;
+import com.madirex.exceptions.ReadCSVFailException;
+import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
+import com.madirex.validators.FunkoValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Importación en streaming de un CSV de Funkos a la base de datos.
+ * Las filas leídas pasan por colas acotadas hacia varios escritores que las guardan por lotes,
+ * por lo que la memoria usada no depende del tamaño del fichero y la lectura se solapa con las inserciones.
+ * Cada fila se envía siempre al mismo escritor según su cod, de modo que dos transacciones concurrentes
+ * nunca escriben el mismo cod y no se bloquean entre sí
+ */
+public class CsvImportPipeline {
+    private static final Funko END_OF_FILE = Funko.builder().build();
+    private final Logger logger = LoggerFactory.getLogger(CsvImportPipeline.class);
+    private final Function<List<Funko>, CompletableFuture<List<Funko>>> batchWriter;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final int writers;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param batchWriter   función que guarda un lote y devuelve los Funkos guardados
+     * @param queueCapacity número máximo de filas leídas pendientes de escribir (repartido entre los escritores)
+     * @param batchSize     número de filas por lote
+     * @param writers       número de escritores concurrentes
+     */
+    public CsvImportPipeline(Function<List<Funko>, CompletableFuture<List<Funko>>> batchWriter,
+                             int queueCapacity, int batchSize, int writers) {
+        this.batchWriter = batchWriter;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.writers = writers;
+    }
+
+    /**
+     * Importa el CSV indicado. Las filas que no se pueden leer, no son válidas o pertenecen
+     * a un lote que no se ha podido guardar se cuentan como rechazadas
+     *
+     * @param path Ruta del archivo CSV
+     * @return CompletableFuture con el resumen de la importación
+     */
+    public CompletableFuture<ImportReport> importFile(String path) {
+        List<BlockingQueue<Funko>> queues = new ArrayList<>(writers);
+        for (int i = 0; i < writers; i++) {
+            queues.add(new ArrayBlockingQueue<>(Math.max(1, queueCapacity / writers)));
+        }
+        AtomicLong read = new AtomicLong();
+        AtomicLong imported = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 1);
+        long start = System.currentTimeMillis();
+
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        tasks.add(CompletableFuture.runAsync(() -> produce(path, queues, read, rejected), executor));
+        for (BlockingQueue<Funko> queue : queues) {
+            tasks.add(CompletableFuture.runAsync(() -> consume(queue, imported, rejected), executor));
+        }
+        return CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new))
+                .thenApply(v -> ImportReport.builder()
+                        .rowsRead(read.get())
+                        .rowsImported(imported.get())
+                        .rowsRejected(rejected.get())
+                        .elapsedMillis(System.currentTimeMillis() - start)
+                        .build())
+                .whenComplete((report, ex) -> executor.shutdown());
+    }
+
+    /**
+     * Lee el CSV línea a línea y encola los Funkos válidos en la cola del escritor que
+     * corresponde a su cod. Se bloquea si la cola está llena
+     *
+     * @param path     Ruta del archivo CSV
+     * @param queues   Colas hacia los escritores
+     * @param read     Contador de filas leídas
+     * @param rejected Contador de filas rechazadas
+     */
+    private void produce(String path, List<BlockingQueue<Funko>> queues, AtomicLong read, AtomicLong rejected) {
+        CsvManager csvManager = CsvManager.getInstance();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                read.incrementAndGet();
+                try {
+                    Funko funko = csvManager.lineToFunko(line);
+                    FunkoValidator.validate(funko);
+                    queues.get(Math.floorMod(funko.getCod().hashCode(), writers)).put(funko);
+                } catch (RuntimeException | FunkoNotValidException e) {
+                    rejected.incrementAndGet();
+                    String str = "Fila rechazada: " + line + " -> " + e.getMessage();
+                    logger.debug(str);
+                }
+            }
+        } catch (IOException e) {
+            throw new CompletionException(new ReadCSVFailException(e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } finally {
+            signalEndOfFile(queues);
+        }
+    }
+
+    /**
+     * Avisa a todos los escritores de que no hay más filas
+     *
+     * @param queues Colas hacia los escritores
+     */
+    private void signalEndOfFile(List<BlockingQueue<Funko>> queues) {
+        try {
+            for (BlockingQueue<Funko> queue : queues) {
+                queue.put(END_OF_FILE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Toma Funkos de la cola y los escribe por lotes hasta recibir el fin de fichero
+     *
+     * @param queue    Cola de Funkos leídos
+     * @param imported Contador de filas importadas
+     * @param rejected Contador de filas rechazadas
+     */
+    private void consume(BlockingQueue<Funko> queue, AtomicLong imported, AtomicLong rejected) {
+        List<Funko> batch = new ArrayList<>(batchSize);
+        try {
+            Funko funko;
+            while ((funko = queue.take()) != END_OF_FILE) {
+                batch.add(funko);
+                if (batch.size() == batchSize) {
+                    write(batch, imported, rejected);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch, imported, rejected);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Escribe un lote y actualiza los contadores
+     *
+     * @param batch    Lote a escribir
+     * @param imported Contador de filas importadas
+     * @param rejected Contador de filas rechazadas
+     */
+    private void write(List<Funko> batch, AtomicLong imported, AtomicLong rejected) {
+        try {
+            int saved = batchWriter.apply(batch).join().size();
+            imported.addAndGet(saved);
+            rejected.addAndGet((long) batch.size() - saved);
+        } catch (RuntimeException e) {
+            rejected.addAndGet(batch.size());
+            String str = "Lote rechazado: " + e.getMessage();
+            logger.error(str);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.madirex.services.io;
 import com.madirex.exceptions.CreateFolderException;
 import com.madirex.exceptions.ReadCSVFailException;
 import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
 import com.madirex.models.Model;
 
 import java.io.BufferedReader;
@@ -17,13 +18,18 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 /**
  * Clase CsvManager que administra la exportación e importación de datos CSV
  */
 public class CsvManager {
 
+    private static final int PARALLEL_CHUNK_SIZE = 8 * 1024 * 1024;
     private static CsvManager csvManagerInstance;
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     /**
      * Constructor privado para evitar la creación de instancia
@@ -54,21 +60,11 @@ public class CsvManager {
      */
     public CompletableFuture<Optional<List<Funko>>> fileToFunkoList(String path) throws ReadCSVFailException {
         CompletableFuture<Optional<List<Funko>>> future = new CompletableFuture<>();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         CompletableFuture.runAsync(() -> {
                     try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
                         future.complete(Optional.of(reader.lines()
-                                .map(line -> line.split(","))
                                 .skip(1)
-                                .map(values -> Funko.builder()
-                                        .cod(UUID.fromString(values[0].chars().limit(36).collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
-                                                .toString()))
-                                        .name(values[1])
-                                        .model(Model.valueOf(values[2]))
-                                        .price(Double.parseDouble(values[3]))
-                                        .releaseDate(LocalDate.parse(values[4], formatter))
-                                        .build()
-                                )
+                                .map(this::lineToFunko)
                                 .toList()));
                     } catch (IOException e) {
                         future.completeExceptionally(new ReadCSVFailException(e.getMessage()));
@@ -78,6 +74,69 @@ public class CsvManager {
         return future;
     }
 
+    /**
+     * Lee un archivo CSV mapeándolo en memoria y analizando trozos del fichero en paralelo
+     * en el ForkJoinPool común. Pensado para ficheros de gran tamaño.
+     * Cualquier error al leer el fichero termina el futuro con ReadCSVFailException
+     *
+     * @param path Ruta del archivo CSV
+     * @return CompletableFuture de Optional de la lista de Funko
+     */
+    public CompletableFuture<Optional<List<Funko>>> fileToFunkoListParallel(String path) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return Optional.of(new MappedCsvParser(ForkJoinPool.commonPool(), PARALLEL_CHUNK_SIZE)
+                        .parse(Paths.get(path)));
+            } catch (IOException | RuntimeException e) {
+                throw new CompletionException(new ReadCSVFailException(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Importa un archivo CSV analizando trozos del fichero en paralelo en el ForkJoinPool común y guardando
+     * los Funkos válidos por lotes a medida que se analizan, sin cargar el fichero entero en memoria.
+     * Si no se puede leer el fichero el futuro termina con ReadCSVFailException
+     *
+     * @param path        Ruta del archivo CSV
+     * @param batchSize   Número máximo de Funkos por lote
+     * @param batchWriter Guarda un lote y devuelve los Funkos guardados
+     * @return CompletableFuture con el resumen de la importación
+     */
+    public CompletableFuture<ImportReport> importFileParallel(String path, int batchSize,
+                                                              Function<List<Funko>, CompletableFuture<List<Funko>>> batchWriter) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new MappedCsvParser(ForkJoinPool.commonPool(), PARALLEL_CHUNK_SIZE)
+                        .parse(Paths.get(path), batchSize, batchWriter);
+            } catch (IOException | RuntimeException e) {
+                throw new CompletionException(new ReadCSVFailException(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Convierte una línea del CSV (COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO) en un Funko
+     *
+     * @param line Línea del CSV sin cabecera
+     * @return Funko de la línea
+     * @throws IllegalArgumentException Si la línea no tiene un formato válido
+     */
+    public Funko lineToFunko(String line) {
+        String[] values = line.split(",");
+        if (values.length < 5) {
+            throw new IllegalArgumentException("Número de columnas incorrecto: " + line);
+        }
+        return Funko.builder()
+                .cod(UUID.fromString(values[0].chars().limit(36).collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+                        .toString()))
+                .name(values[1])
+                .model(Model.valueOf(values[2]))
+                .price(Double.parseDouble(values[3]))
+                .releaseDate(LocalDate.parse(values[4], formatter))
+                .build();
+    }
+
     /**
      * Crea la carpeta out si no existe
      *
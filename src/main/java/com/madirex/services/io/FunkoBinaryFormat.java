@@ -0,0 +1,360 @@
+package com.madirex.services.io;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Formato binario compacto y versionado para backups de Funkos (extensión .fkb).
+ * Cabecera: "FKB1" y la versión (int). Cada Funko es un registro que empieza por el byte 1: cod como dos long,
+ * myId (long), modelo como ordinal (byte), precio en céntimos (long, como la columna DECIMAL(10, 2)), fecha de
+ * lanzamiento en días desde 1970 (int), fecha de modificación en microsegundos desde 1970 en UTC (long, la
+ * precisión de TIMESTAMP) y el nombre en UTF-8 precedido de su longitud (int). Los nulos se guardan como el
+ * mínimo de su tipo (o -1 en modelo y longitud del nombre). Termina con el byte 0 y el número de registros,
+ * así que un fichero truncado se detecta al leerlo.
+ * Todos los números están en big-endian y los registros no tienen relleno, de modo que el fichero se lee
+ * directamente de memoria mapeada sin copiarlo al heap
+ */
+public final class FunkoBinaryFormat {
+    public static final String EXTENSION = ".fkb";
+    public static final int VERSION = 1;
+    private static final int MAGIC = 0x464B4231;
+    private static final byte RECORD = 1;
+    private static final byte END = 0;
+    private static final int MAX_NAME_BYTES = 4096;
+    private static final int MAX_RECORD_SIZE = 1 + 16 + 8 + 1 + 8 + 4 + 8 + 4 + MAX_NAME_BYTES;
+    private static final long MAP_WINDOW = 64L << 20;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Constructor privado: clase de utilidades
+     */
+    private FunkoBinaryFormat() {
+    }
+
+    /**
+     * Indica si un nombre de fichero corresponde al formato binario por su extensión
+     *
+     * @param fileName Nombre del fichero
+     * @return ¿Termina en .fkb?
+     */
+    public static boolean isBinaryName(String fileName) {
+        return fileName.endsWith(EXTENSION);
+    }
+
+    /**
+     * Indica si un fichero está en formato binario por su cabecera, sin tener en cuenta su nombre
+     *
+     * @param file Fichero
+     * @return ¿Empieza por "FKB1"?
+     * @throws IOException Si no se puede leer el fichero
+     */
+    public static boolean isBinary(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] header = in.readNBytes(4);
+            return header.length == 4
+                    && ((header[0] & 0xff) << 24 | (header[1] & 0xff) << 16 | (header[2] & 0xff) << 8 | header[3] & 0xff) == MAGIC;
+        }
+    }
+
+    /**
+     * Crea un escritor de Funkos en formato binario. Escribe la cabecera al crearse
+     *
+     * @param out Flujo de salida
+     * @return Escritor
+     * @throws IOException Si no se puede escribir la cabecera
+     */
+    public static Writer writer(OutputStream out) throws IOException {
+        return new Writer(out);
+    }
+
+    /**
+     * Lee los Funkos de un fichero en formato binario mapeándolo en memoria por ventanas de 64 MiB.
+     * El Stream se debe cerrar para liberar el fichero; los errores de lectura se lanzan como UncheckedIOException
+     *
+     * @param file Fichero
+     * @return Stream de Funkos en el orden en que se escribieron
+     * @throws IOException Si no se puede abrir el fichero o no está en formato binario
+     */
+    public static Stream<Funko> read(Path file) throws IOException {
+        MappedReader reader = new MappedReader(file);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(reader::closeQuietly);
+    }
+
+    /**
+     * Escritor de Funkos en formato binario. Hay que llamar a finish para escribir el final del fichero:
+     * cerrar sin llamarlo deja un fichero que se rechaza al leerlo
+     */
+    public static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private long count;
+
+        /**
+         * Constructor. Escribe la cabecera
+         *
+         * @param out Flujo de salida
+         * @throws IOException Si no se puede escribir la cabecera
+         */
+        private Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out, WRITE_BUFFER_SIZE));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+        }
+
+        /**
+         * Escribe un Funko
+         *
+         * @param funko Funko
+         * @throws IOException Si no se puede escribir o el nombre supera los 4096 bytes en UTF-8
+         */
+        public void write(Funko funko) throws IOException {
+            byte[] name = funko.getName() == null ? null : funko.getName().getBytes(StandardCharsets.UTF_8);
+            if (name != null && name.length > MAX_NAME_BYTES) {
+                throw new IOException("Nombre demasiado largo para el formato binario: " + funko.getCod());
+            }
+            out.writeByte(RECORD);
+            out.writeLong(funko.getCod().getMostSignificantBits());
+            out.writeLong(funko.getCod().getLeastSignificantBits());
+            out.writeLong(funko.getMyId() == null ? Long.MIN_VALUE : funko.getMyId());
+            out.writeByte(funko.getModel() == null ? -1 : funko.getModel().ordinal());
+            out.writeLong(Math.round(funko.getPrice() * 100));
+            out.writeInt(funko.getReleaseDate() == null ? Integer.MIN_VALUE
+                    : Math.toIntExact(funko.getReleaseDate().toEpochDay()));
+            out.writeLong(funko.getUpdateAt() == null ? Long.MIN_VALUE : toEpochMicros(funko.getUpdateAt()));
+            out.writeInt(name == null ? -1 : name.length);
+            if (name != null) {
+                out.write(name);
+            }
+            count++;
+        }
+
+        /**
+         * Escribe el final del fichero con el número de registros y vacía el buffer
+         *
+         * @return Número de Funkos escritos
+         * @throws IOException Si no se puede escribir
+         */
+        public long finish() throws IOException {
+            out.writeByte(END);
+            out.writeLong(count);
+            out.flush();
+            return count;
+        }
+
+        /**
+         * Cierra el flujo de salida
+         *
+         * @throws IOException Si no se puede cerrar
+         */
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Lector de Funkos sobre el fichero mapeado en memoria. Solo tiene mapeada una ventana del fichero y la
+     * desplaza cuando lo que queda de ella puede no contener un registro completo
+     */
+    private static final class MappedReader implements Iterator<Funko> {
+        private final Path file;
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer buffer;
+        private long read;
+        private Funko next;
+        private boolean done;
+
+        /**
+         * Constructor. Mapea la primera ventana y comprueba la cabecera
+         *
+         * @param file Fichero
+         * @throws IOException Si no se puede abrir el fichero o no está en formato binario
+         */
+        private MappedReader(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                this.size = channel.size();
+                map(0);
+                if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                    throw new IOException("El fichero no es un backup binario de Funkos: " + file);
+                }
+                int version = buffer.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Versión de backup binario no soportada: " + version);
+                }
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Indica si quedan Funkos por leer
+         *
+         * @return ¿Quedan Funkos?
+         */
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                try {
+                    next = readRecord();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        /**
+         * Devuelve el siguiente Funko
+         *
+         * @return Funko
+         */
+        @Override
+        public Funko next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Funko funko = next;
+            next = null;
+            return funko;
+        }
+
+        /**
+         * Lee el siguiente registro
+         *
+         * @return Funko o null si se ha llegado al final del fichero
+         * @throws IOException Si el fichero está truncado o dañado
+         */
+        private Funko readRecord() throws IOException {
+            try {
+                ensureRecordMapped();
+                byte tag = buffer.get();
+                if (tag == END) {
+                    long expected = buffer.getLong();
+                    if (expected != read) {
+                        throw new IOException("Backup binario dañado: " + read + " registros de " + expected);
+                    }
+                    done = true;
+                    return null;
+                }
+                if (tag != RECORD) {
+                    throw new IOException("Backup binario dañado en la posición " + (windowStart + buffer.position() - 1));
+                }
+                UUID cod = new UUID(buffer.getLong(), buffer.getLong());
+                long myId = buffer.getLong();
+                byte model = buffer.get();
+                long priceCents = buffer.getLong();
+                int releaseDate = buffer.getInt();
+                long updateAt = buffer.getLong();
+                int nameLength = buffer.getInt();
+                if (nameLength > MAX_NAME_BYTES) {
+                    throw new IOException("Backup binario dañado: nombre de " + nameLength + " bytes");
+                }
+                String name = null;
+                if (nameLength >= 0) {
+                    byte[] bytes = new byte[nameLength];
+                    buffer.get(bytes);
+                    name = new String(bytes, StandardCharsets.UTF_8);
+                }
+                read++;
+                return Funko.builder()
+                        .cod(cod)
+                        .myId(myId == Long.MIN_VALUE ? null : myId)
+                        .name(name)
+                        .model(model < 0 ? null : Model.values()[model])
+                        .price(priceCents / 100.0)
+                        .releaseDate(releaseDate == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(releaseDate))
+                        .updateAt(updateAt == Long.MIN_VALUE ? null : fromEpochMicros(updateAt))
+                        .build();
+            } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException("Backup binario truncado o dañado: " + file);
+            }
+        }
+
+        /**
+         * Desplaza la ventana mapeada si lo que queda de ella puede no contener un registro completo
+         * y no es el final del fichero
+         *
+         * @throws IOException Si no se puede mapear el fichero
+         */
+        private void ensureRecordMapped() throws IOException {
+            long position = windowStart + buffer.position();
+            if (buffer.remaining() < MAX_RECORD_SIZE && windowStart + buffer.limit() < size) {
+                map(position);
+            }
+        }
+
+        /**
+         * Mapea la ventana del fichero que empieza en la posición indicada
+         *
+         * @param start Posición en el fichero
+         * @throws IOException Si no se puede mapear el fichero
+         */
+        private void map(long start) throws IOException {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW, size - start));
+            windowStart = start;
+        }
+
+        /**
+         * Cierra el fichero. La memoria mapeada se libera cuando se recoge el buffer
+         */
+        private void closeQuietly() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Convierte una fecha a microsegundos desde 1970 en UTC
+     *
+     * @param dateTime Fecha
+     * @return Microsegundos
+     */
+    private static long toEpochMicros(LocalDateTime dateTime) {
+        return Math.addExact(Math.multiplyExact(dateTime.toEpochSecond(ZoneOffset.UTC), 1_000_000L),
+                dateTime.getNano() / 1_000);
+    }
+
+    /**
+     * Convierte microsegundos desde 1970 en UTC a fecha
+     *
+     * @param micros Microsegundos
+     * @return Fecha
+     */
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
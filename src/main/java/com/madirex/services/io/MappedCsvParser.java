@@ -0,0 +1,445 @@
+package com.madirex.services.io;
+
+import com.madirex.exceptions.FunkoNotValidException;
+import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
+import com.madirex.models.Model;
+import com.madirex.validators.FunkoValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Lector de CSV de Funkos (COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO) sobre ficheros mapeados en memoria.
+ * El fichero se divide en trozos alineados a fin de línea que se analizan en paralelo en un ForkJoinPool
+ * con un escáner de campos propio, sin split por expresiones regulares ni Strings intermedios para
+ * el código, el modelo, el precio o la fecha
+ */
+public class MappedCsvParser {
+    private static final byte[][] MODEL_NAMES = modelNames();
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private final Logger logger = LoggerFactory.getLogger(MappedCsvParser.class);
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param pool      pool en el que se analizan los trozos
+     * @param chunkSize tamaño aproximado en bytes de cada trozo
+     */
+    public MappedCsvParser(ForkJoinPool pool, int chunkSize) {
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Analiza el fichero completo respetando el orden de las filas. Las filas mal formadas o que no pasan
+     * la validación de FunkoValidator se descartan
+     *
+     * @param path Ruta del archivo CSV
+     * @return Lista de Funkos
+     * @throws IOException Si no se puede leer el fichero
+     */
+    public List<Funko> parse(Path path) throws IOException {
+        List<Funko> result = new ArrayList<>();
+        ImportReport report = parse(path, Integer.MAX_VALUE, batch -> {
+            result.addAll(batch);
+            return CompletableFuture.completedFuture(batch);
+        });
+        if (report.getRowsRejected() > 0) {
+            String str = "Filas descartadas al leer " + path + ": " + report.getRowsRejected();
+            logger.warn(str);
+        }
+        return result;
+    }
+
+    /**
+     * Analiza el fichero en paralelo y entrega los Funkos válidos, en el orden del fichero, a batchWriter
+     * en lotes de como mucho batchSize. Solo se analizan por adelantado tantos trozos como hilos tiene el pool,
+     * así que la memoria usada no depende del tamaño del fichero. Las filas mal formadas, las que no pasan
+     * la validación y las de un lote que no se ha podido guardar se cuentan como rechazadas
+     *
+     * @param path        Ruta del archivo CSV
+     * @param batchSize   Número máximo de Funkos por lote
+     * @param batchWriter Guarda un lote y devuelve los Funkos guardados
+     * @return Resumen de la importación
+     * @throws IOException Si no se puede leer el fichero
+     */
+    public ImportReport parse(Path path, int batchSize, Function<List<Funko>, CompletableFuture<List<Funko>>> batchWriter)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        AtomicLong read = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        long imported = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            List<long[]> chunks = split(channel);
+            int window = Math.max(1, pool.getParallelism());
+            Deque<ForkJoinTask<List<Funko>>> tasks = new ArrayDeque<>(window);
+            int next = 0;
+            while (next < chunks.size() || !tasks.isEmpty()) {
+                while (next < chunks.size() && tasks.size() < window) {
+                    long[] chunk = chunks.get(next++);
+                    tasks.add(pool.submit(() -> parseChunk(channel.map(FileChannel.MapMode.READ_ONLY,
+                            chunk[0], chunk[1] - chunk[0]), read, rejected)));
+                }
+                List<Funko> funkos = tasks.poll().join();
+                for (int from = 0; from < funkos.size(); from += batchSize) {
+                    imported += write(funkos.subList(from, (int) Math.min((long) from + batchSize, funkos.size())),
+                            batchWriter, rejected);
+                }
+            }
+        }
+        return ImportReport.builder()
+                .rowsRead(read.get())
+                .rowsImported(imported)
+                .rowsRejected(rejected.get())
+                .elapsedMillis(System.currentTimeMillis() - start)
+                .build();
+    }
+
+    /**
+     * Escribe un lote y cuenta como rechazados los Funkos que no se han guardado
+     *
+     * @param batch       Lote a escribir
+     * @param batchWriter Guarda un lote y devuelve los Funkos guardados
+     * @param rejected    Contador de filas rechazadas
+     * @return Número de Funkos guardados
+     */
+    private long write(List<Funko> batch, Function<List<Funko>, CompletableFuture<List<Funko>>> batchWriter,
+                       AtomicLong rejected) {
+        try {
+            int saved = batchWriter.apply(new ArrayList<>(batch)).join().size();
+            rejected.addAndGet((long) batch.size() - saved);
+            return saved;
+        } catch (RuntimeException e) {
+            rejected.addAndGet(batch.size());
+            String str = "Lote rechazado: " + e.getMessage();
+            logger.error(str);
+            return 0;
+        }
+    }
+
+    /**
+     * Divide el fichero en trozos [inicio, fin) que empiezan y terminan en límite de línea,
+     * omitiendo la cabecera
+     *
+     * @param channel Canal del fichero
+     * @return Lista de trozos
+     * @throws IOException Si no se puede leer el fichero
+     */
+    private List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<long[]> chunks = new ArrayList<>();
+        long start = nextLine(channel, 0, size);
+        while (start < size) {
+            long end = start + chunkSize >= size ? size : nextLine(channel, start + chunkSize, size);
+            chunks.add(new long[]{start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    /**
+     * Devuelve la posición siguiente al primer salto de línea desde la posición indicada
+     *
+     * @param channel Canal del fichero
+     * @param from    Posición desde la que buscar
+     * @param size    Tamaño del fichero
+     * @return Posición de inicio de la siguiente línea o el tamaño del fichero
+     * @throws IOException Si no se puede leer el fichero
+     */
+    private long nextLine(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Analiza y valida todas las líneas de un trozo
+     *
+     * @param buffer   Trozo mapeado en memoria
+     * @param read     Contador de filas leídas
+     * @param rejected Contador de filas descartadas
+     * @return Funkos válidos del trozo
+     */
+    private List<Funko> parseChunk(MappedByteBuffer buffer, AtomicLong read, AtomicLong rejected) {
+        List<Funko> funkos = new ArrayList<>();
+        byte[] scratch = new byte[256];
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > lineStart) {
+                read.incrementAndGet();
+                try {
+                    Funko funko = parseLine(buffer, lineStart, contentEnd, scratch);
+                    FunkoValidator.validate(funko);
+                    funkos.add(funko);
+                } catch (IllegalArgumentException | DateTimeException | FunkoNotValidException e) {
+                    rejected.incrementAndGet();
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+        return funkos;
+    }
+
+    /**
+     * Analiza una línea del CSV
+     *
+     * @param buffer  Trozo mapeado en memoria
+     * @param start   Inicio de la línea
+     * @param end     Fin de la línea (sin salto de línea)
+     * @param scratch Buffer auxiliar para el nombre
+     * @return Funko de la línea
+     */
+    private Funko parseLine(ByteBuffer buffer, int start, int end, byte[] scratch) {
+        int[] fields = new int[6];
+        int count = 0;
+        fields[count++] = start;
+        for (int i = start; i < end && count < 6; i++) {
+            if (buffer.get(i) == ',') {
+                fields[count++] = i + 1;
+            }
+        }
+        if (count < 5) {
+            throw new IllegalArgumentException("Número de columnas incorrecto");
+        }
+        int dateEnd = count == 6 ? fields[5] - 1 : end;
+        return Funko.builder()
+                .cod(parseUuid(buffer, fields[0], fields[1] - 1))
+                .name(parseString(buffer, fields[1], fields[2] - 1, scratch))
+                .model(parseModel(buffer, fields[2], fields[3] - 1))
+                .price(parsePrice(buffer, fields[3], fields[4] - 1))
+                .releaseDate(parseDate(buffer, fields[4], dateEnd))
+                .build();
+    }
+
+    /**
+     * Analiza un UUID con los mismos criterios que UUID.fromString sobre los 36 primeros caracteres
+     *
+     * @param buffer Trozo mapeado en memoria
+     * @param start  Inicio del campo
+     * @param end    Fin del campo
+     * @return UUID del campo
+     */
+    private UUID parseUuid(ByteBuffer buffer, int start, int end) {
+        end = Math.min(end, start + 36);
+        long[] groups = new long[5];
+        int group = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '-') {
+                if (digits == 0 || ++group > 4) {
+                    throw new IllegalArgumentException("UUID no válido");
+                }
+                digits = 0;
+                continue;
+            }
+            int value = Character.digit(b, 16);
+            if (value < 0 || ++digits > 16) {
+                throw new IllegalArgumentException("UUID no válido");
+            }
+            groups[group] = (groups[group] << 4) | value;
+        }
+        if (group != 4 || digits == 0) {
+            throw new IllegalArgumentException("UUID no válido");
+        }
+        long most = (groups[0] & 0xffffffffL) << 32 | (groups[1] & 0xffffL) << 16 | (groups[2] & 0xffffL);
+        long least = (groups[3] & 0xffffL) << 48 | (groups[4] & 0xffffffffffffL);
+        return new UUID(most, least);
+    }
+
+    /**
+     * Decodifica un campo de texto UTF-8
+     *
+     * @param buffer  Trozo mapeado en memoria
+     * @param start   Inicio del campo
+     * @param end     Fin del campo
+     * @param scratch Buffer auxiliar
+     * @return Texto del campo
+     */
+    private String parseString(ByteBuffer buffer, int start, int end, byte[] scratch) {
+        int length = end - start;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(start, bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Busca el modelo comparando directamente los bytes con los nombres del enumerado
+     *
+     * @param buffer Trozo mapeado en memoria
+     * @param start  Inicio del campo
+     * @param end    Fin del campo
+     * @return Modelo del campo
+     */
+    private Model parseModel(ByteBuffer buffer, int start, int end) {
+        Model[] models = Model.values();
+        for (int m = 0; m < models.length; m++) {
+            byte[] name = MODEL_NAMES[m];
+            if (name.length == end - start && matches(buffer, start, name)) {
+                return models[m];
+            }
+        }
+        throw new IllegalArgumentException("Modelo no válido");
+    }
+
+    /**
+     * Compara los bytes del buffer con el nombre indicado
+     *
+     * @param buffer Trozo mapeado en memoria
+     * @param start  Inicio del campo
+     * @param name   Nombre a comparar
+     * @return ¿Coinciden?
+     */
+    private boolean matches(ByteBuffer buffer, int start, byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (buffer.get(start + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Analiza un precio decimal. Si el valor no es representable de forma exacta con el método rápido
+     * se recurre a Double.parseDouble
+     *
+     * @param buffer Trozo mapeado en memoria
+     * @param start  Inicio del campo
+     * @param end    Fin del campo
+     * @return Precio del campo
+     */
+    private double parsePrice(ByteBuffer buffer, int start, int end) {
+        boolean negative = start < end && buffer.get(start) == '-';
+        long mantissa = 0;
+        int decimals = 0;
+        int digits = 0;
+        boolean dot = false;
+        for (int i = negative ? start + 1 : start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && !dot) {
+                dot = true;
+            } else if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (dot) {
+                    decimals++;
+                }
+            } else {
+                return Double.parseDouble(new String(bufferBytes(buffer, start, end), StandardCharsets.US_ASCII));
+            }
+        }
+        if (digits == 0) {
+            throw new IllegalArgumentException("Precio no válido");
+        }
+        if (digits > 15 || decimals >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(new String(bufferBytes(buffer, start, end), StandardCharsets.US_ASCII));
+        }
+        double value = mantissa / POWERS_OF_TEN[decimals];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Copia los bytes de un campo
+     *
+     * @param buffer Trozo mapeado en memoria
+     * @param start  Inicio del campo
+     * @param end    Fin del campo
+     * @return Bytes del campo
+     */
+    private byte[] bufferBytes(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return bytes;
+    }
+
+    /**
+     * Analiza una fecha con formato yyyy-MM-dd
+     *
+     * @param buffer Trozo mapeado en memoria
+     * @param start  Inicio del campo
+     * @param end    Fin del campo
+     * @return Fecha del campo
+     */
+    private LocalDate parseDate(ByteBuffer buffer, int start, int end) {
+        if (end - start != 10 || buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-') {
+            throw new IllegalArgumentException("Fecha no válida");
+        }
+        return LocalDate.of(digits(buffer, start, 4), digits(buffer, start + 5, 2), digits(buffer, start + 8, 2));
+    }
+
+    /**
+     * Convierte una secuencia de dígitos en un entero
+     *
+     * @param buffer Trozo mapeado en memoria
+     * @param start  Inicio de los dígitos
+     * @param length Número de dígitos
+     * @return Valor entero
+     */
+    private int digits(ByteBuffer buffer, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Número no válido");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Devuelve los nombres de los modelos en bytes
+     *
+     * @return Nombres de los modelos
+     */
+    private static byte[][] modelNames() {
+        Model[] models = Model.values();
+        byte[][] names = new byte[models.length][];
+        for (int i = 0; i < models.length; i++) {
+            names[i] = models[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
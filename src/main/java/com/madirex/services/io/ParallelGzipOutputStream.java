@@ -0,0 +1,202 @@
+package com.madirex.services.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Flujo de salida gzip que comprime en paralelo. Los datos se cortan en bloques de BLOCK_SIZE bytes y cada
+ * bloque se comprime en un hilo distinto como un miembro gzip independiente; los miembros se escriben en orden.
+ * Un fichero con varios miembros concatenados es un gzip válido (RFC 1952) que GZIPInputStream y gzip leen
+ * enteros. Como mucho hay 2 bloques por núcleo pendientes de escribir, así que la memoria usada está acotada.
+ * No es seguro entre hilos
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+    public static final int BLOCK_SIZE = 1 << 20;
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxPending;
+    private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int count;
+    private boolean submitted;
+    private boolean closed;
+
+    /**
+     * Constructor de la clase. Usa un hilo por núcleo
+     *
+     * @param out Flujo donde se escribe el gzip
+     */
+    public ParallelGzipOutputStream(OutputStream out) {
+        this(out, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor de la clase
+     *
+     * @param out     Flujo donde se escribe el gzip
+     * @param threads Número de hilos de compresión
+     */
+    public ParallelGzipOutputStream(OutputStream out, int threads) {
+        this.out = out;
+        int workers = Math.max(1, threads);
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "backup-gzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxPending = workers * 2;
+    }
+
+    /**
+     * Escribe un byte
+     *
+     * @param b Byte
+     * @throws IOException Si falla la compresión o la escritura de un bloque anterior
+     */
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[count++] = (byte) b;
+        if (count == BLOCK_SIZE) {
+            submitBlock();
+        }
+    }
+
+    /**
+     * Escribe un rango de bytes
+     *
+     * @param b   Bytes
+     * @param off Posición inicial
+     * @param len Número de bytes
+     * @throws IOException Si falla la compresión o la escritura de un bloque anterior
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while (len > 0) {
+            int n = Math.min(len, BLOCK_SIZE - count);
+            System.arraycopy(b, off, block, count, n);
+            count += n;
+            off += n;
+            len -= n;
+            if (count == BLOCK_SIZE) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Comprime el bloque en curso y escribe todos los bloques pendientes. Cortar un bloque antes de llenarlo
+     * solo empeora un poco la compresión
+     *
+     * @throws IOException Si falla la compresión o la escritura
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0) {
+            submitBlock();
+        }
+        while (!pending.isEmpty()) {
+            writeOldest();
+        }
+        out.flush();
+    }
+
+    /**
+     * Escribe los bloques pendientes, detiene los hilos de compresión y cierra el flujo de salida.
+     * Si no se ha escrito nada se escribe un miembro gzip vacío para que el fichero siga siendo un gzip
+     *
+     * @throws IOException Si falla la compresión o la escritura
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (count > 0 || !submitted) {
+                submitBlock();
+            }
+            while (!pending.isEmpty()) {
+                writeOldest();
+            }
+        } finally {
+            closed = true;
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    /**
+     * Envía el bloque en curso a comprimir. Si hay demasiados bloques pendientes escribe antes el más antiguo
+     *
+     * @throws IOException Si falla la compresión o la escritura de un bloque anterior
+     */
+    private void submitBlock() throws IOException {
+        if (pending.size() >= maxPending) {
+            writeOldest();
+        }
+        byte[] data = block;
+        int length = count;
+        pending.addLast(CompletableFuture.supplyAsync(() -> compress(data, length), executor));
+        block = new byte[BLOCK_SIZE];
+        count = 0;
+        submitted = true;
+    }
+
+    /**
+     * Espera al bloque pendiente más antiguo y lo escribe
+     *
+     * @throws IOException Si falla la compresión o la escritura
+     */
+    private void writeOldest() throws IOException {
+        try {
+            out.write(pending.removeFirst().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Compresión interrumpida");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException unchecked ? unchecked.getCause() : e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause);
+        }
+    }
+
+    /**
+     * Comprime un bloque como un miembro gzip independiente
+     *
+     * @param data   Bloque
+     * @param length Bytes usados del bloque
+     * @return Miembro gzip
+     */
+    private static byte[] compress(byte[] data, int length) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 64 * 1024)) {
+            gzip.write(data, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Comprueba que el flujo no se ha cerrado
+     *
+     * @throws IOException Si el flujo está cerrado
+     */
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("El flujo está cerrado");
+        }
+    }
+}
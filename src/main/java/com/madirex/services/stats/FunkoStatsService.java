@@ -0,0 +1,29 @@
+package com.madirex.services.stats;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.ModelCount;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Interfaz que define las consultas estadísticas de FunkoStatsService
+ */
+public interface FunkoStatsService {
+    CompletableFuture<Optional<Funko>> findMostExpensive();
+
+    CompletableFuture<Optional<Double>> findAveragePrice();
+
+    CompletableFuture<Map<Model, List<Funko>>> findGroupedByModel();
+
+    CompletableFuture<List<ModelCount>> countByModel();
+
+    CompletableFuture<List<Funko>> findReleasedIn(int year);
+
+    CompletableFuture<Long> countByNameStartingWith(String prefix);
+
+    CompletableFuture<List<Funko>> findByNameStartingWith(String prefix);
+}
@@ -0,0 +1,124 @@
+package com.madirex.services.stats;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.ModelCount;
+import com.madirex.repositories.funko.FunkoStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Implementación de la interfaz FunkoStatsService
+ */
+public class FunkoStatsServiceImpl implements FunkoStatsService {
+    private static FunkoStatsServiceImpl funkoStatsServiceImplInstance;
+    private final Logger logger = LoggerFactory.getLogger(FunkoStatsServiceImpl.class);
+    private final FunkoStatsRepository statsRepository;
+
+    /**
+     * Constructor de la clase
+     *
+     * @param statsRepository Instancia de la clase FunkoStatsRepository
+     */
+    private FunkoStatsServiceImpl(FunkoStatsRepository statsRepository) {
+        this.statsRepository = statsRepository;
+    }
+
+    /**
+     * Devuelve la instancia de la clase
+     *
+     * @param statsRepository Instancia de la clase FunkoStatsRepository
+     * @return Instancia de la clase
+     */
+    public static synchronized FunkoStatsServiceImpl getInstance(FunkoStatsRepository statsRepository) {
+        if (funkoStatsServiceImplInstance == null) {
+            funkoStatsServiceImplInstance = new FunkoStatsServiceImpl(statsRepository);
+        }
+        return funkoStatsServiceImplInstance;
+    }
+
+    /**
+     * Devuelve el Funko de mayor precio
+     *
+     * @return Optional del Funko más caro
+     */
+    @Override
+    public CompletableFuture<Optional<Funko>> findMostExpensive() {
+        logger.debug("Obteniendo el Funko más caro");
+        return statsRepository.findMostExpensive();
+    }
+
+    /**
+     * Devuelve el precio medio de los Funkos
+     *
+     * @return Optional del precio medio
+     */
+    @Override
+    public CompletableFuture<Optional<Double>> findAveragePrice() {
+        logger.debug("Obteniendo el precio medio de los Funkos");
+        return statsRepository.findAveragePrice();
+    }
+
+    /**
+     * Devuelve los Funkos agrupados por modelo
+     *
+     * @return Funkos de cada modelo
+     */
+    @Override
+    public CompletableFuture<Map<Model, List<Funko>>> findGroupedByModel() {
+        logger.debug("Obteniendo los Funkos agrupados por modelo");
+        return statsRepository.findGroupedByModel();
+    }
+
+    /**
+     * Devuelve el número de Funkos de cada modelo
+     *
+     * @return Número de Funkos por modelo
+     */
+    @Override
+    public CompletableFuture<List<ModelCount>> countByModel() {
+        logger.debug("Obteniendo el número de Funkos por modelo");
+        return statsRepository.countByModel();
+    }
+
+    /**
+     * Devuelve los Funkos lanzados en el año indicado
+     *
+     * @param year Año de lanzamiento
+     * @return Funkos lanzados en ese año
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findReleasedIn(int year) {
+        logger.debug("Obteniendo los Funkos lanzados en " + year);
+        return statsRepository.findReleasedIn(year);
+    }
+
+    /**
+     * Devuelve el número de Funkos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix Prefijo del nombre
+     * @return Número de Funkos
+     */
+    @Override
+    public CompletableFuture<Long> countByNameStartingWith(String prefix) {
+        logger.debug("Contando los Funkos cuyo nombre empieza por: " + prefix);
+        return statsRepository.countByNameStartingWith(prefix);
+    }
+
+    /**
+     * Devuelve los Funkos cuyo nombre empieza por el prefijo indicado
+     *
+     * @param prefix Prefijo del nombre
+     * @return Funkos encontrados
+     */
+    @Override
+    public CompletableFuture<List<Funko>> findByNameStartingWith(String prefix) {
+        logger.debug("Obteniendo los Funkos cuyo nombre empieza por: " + prefix);
+        return statsRepository.findByNameStartingWith(prefix);
+    }
+}
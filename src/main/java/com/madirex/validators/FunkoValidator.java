@@ -14,6 +14,9 @@ public class FunkoValidator {
      * @throws FunkoNotValidException Excepción al validar el Funko
      */
     public static void validate(Funko funko) throws FunkoNotValidException {
+        if (funko.getCod() == null) {
+            throw new FunkoNotValidException("Tiene que tener un cod");
+        }
         if (funko.getName().isEmpty()) {
             throw new FunkoNotValidException("El nombre no puede estar vacío");
         }
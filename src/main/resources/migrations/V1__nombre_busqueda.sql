@@ -0,0 +1,2 @@
+ALTER TABLE funko ADD COLUMN IF NOT EXISTS nombre_busqueda VARCHAR(255) GENERATED ALWAYS AS (LOWER(nombre));
+CREATE INDEX IF NOT EXISTS idx_funko_nombre_busqueda ON funko (nombre_busqueda);
@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS funko_duplicado AS SELECT * FROM funko WHERE 1 = 0;
+INSERT INTO funko_duplicado SELECT * FROM funko WHERE id NOT IN (SELECT MIN(id) FROM funko GROUP BY cod);
+DELETE FROM funko WHERE id NOT IN (SELECT MIN(id) FROM funko GROUP BY cod);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_funko_cod ON funko (cod);
+CREATE INDEX IF NOT EXISTS idx_funko_modelo ON funko (modelo);
+CREATE INDEX IF NOT EXISTS idx_funko_fecha_lanzamiento ON funko (fecha_lanzamiento);
@@ -0,0 +1,6 @@
+CREATE TABLE IF NOT EXISTS funko_borrado (
+                         cod UUID PRIMARY KEY,
+                         deleted_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_funko_borrado_deleted_at ON funko_borrado (deleted_at);
+CREATE INDEX IF NOT EXISTS idx_funko_updated_at ON funko (updated_at, cod);
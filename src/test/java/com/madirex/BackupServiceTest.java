@@ -1,18 +1,32 @@
 package com.madirex;
 
+import com.madirex.exceptions.ExportDataException;
+import com.madirex.models.BackupIncrement;
+import com.madirex.models.BackupManifest;
 import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
 import com.madirex.models.Model;
 import com.madirex.services.io.BackupService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -58,6 +72,88 @@ public class BackupServiceTest {
 
 
 
+    /**
+     * Test para comprobar que se exportan en streaming los Funkos y que el backup se puede volver a importar
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede leer el backup
+     */
+    @Test
+    public void testExportStream(@TempDir Path dir) throws IOException {
+        List<Funko> funkos = IntStream.range(0, 1000)
+                .mapToObj(i -> Funko.builder()
+                        .myId((long) i)
+                        .model(Model.MARVEL)
+                        .name("Funko " + i)
+                        .price(i + 0.5)
+                        .releaseDate(LocalDate.of(2023, 1, 1).plusDays(i))
+                        .build())
+                .toList();
+
+        long count = backupService.exportStream(dir.toString(), "backup.json", funkos.stream()).join();
+        List<Funko> imported = backupService.importData(dir.toString(), "backup.json").join();
+
+        assertAll(
+                () -> assertEquals(1000, count),
+                () -> assertEquals(funkos, imported),
+                () -> assertFalse(Files.readString(dir.resolve("backup.json")).contains("\n")),
+                () -> assertEquals(List.of(dir.resolve("backup.json")), Files.list(dir).toList())
+        );
+    }
+
+    /**
+     * Test para comprobar que si falla la lectura de una página durante la exportación el futuro termina con error
+     * y el backup anterior se conserva
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede leer el backup
+     */
+    @Test
+    public void testExportStreamFailedPage(@TempDir Path dir) throws IOException {
+        Funko funko = Funko.builder().model(Model.DISNEY).name("Funko 1").releaseDate(LocalDate.now()).build();
+        backupService.exportStream(dir.toString(), "backup.json", Stream.of(funko)).join();
+        String previous = Files.readString(dir.resolve("backup.json"));
+        Stream<Funko> failing = Stream.concat(Stream.of(funko), Stream.<Funko>generate(() -> {
+            throw new IllegalStateException("Error en el streamAll");
+        }));
+
+        var exception = assertThrows(CompletionException.class,
+                () -> backupService.exportStream(dir.toString(), "backup.json", failing).join());
+
+        assertAll(
+                () -> assertInstanceOf(ExportDataException.class, exception.getCause()),
+                () -> assertEquals(previous, Files.readString(dir.resolve("backup.json"))),
+                () -> assertEquals(List.of(dir.resolve("backup.json")), Files.list(dir).toList())
+        );
+    }
+
+    /**
+     * Test para comprobar que la exportación en streaming puede formatear el JSON
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede leer el backup
+     */
+    @Test
+    public void testExportStreamPretty(@TempDir Path dir) throws IOException {
+        Funko funko = Funko.builder().model(Model.DISNEY).name("Funko 1").releaseDate(LocalDate.now()).build();
+
+        backupService.exportStream(dir.toString(), "backup.json", Stream.of(funko), true).join();
+
+        assertAll(
+                () -> assertTrue(Files.readString(dir.resolve("backup.json")).contains("\n  ")),
+                () -> assertEquals(List.of(funko), backupService.importData(dir.toString(), "backup.json").join())
+        );
+    }
+
+    /**
+     * Test para comprobar que la exportación en streaming falla si el directorio no existe
+     */
+    @Test
+    public void testExportStreamDirectoryException() {
+        assertThrows(CompletionException.class, () -> backupService.exportStream("ruta/inexistente",
+                "backup-test.json", List.of(Funko.builder().build()).stream()).join());
+    }
+
     /**
      * Test para comprobar que se lanza una excepción cuando no se puede crear el directorio
      */
@@ -95,6 +191,206 @@ public class BackupServiceTest {
         assertNotNull(importedData);
     }
 
+    /**
+     * Test para comprobar que un backup .gz se comprime y se detecta al importarlo
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede leer el backup
+     */
+    @Test
+    public void testExportStreamGzip(@TempDir Path dir) throws IOException {
+        List<Funko> funkos = IntStream.range(0, 20_000)
+                .mapToObj(i -> Funko.builder()
+                        .model(Model.ANIME)
+                        .name("Funko " + i)
+                        .price(i)
+                        .releaseDate(LocalDate.of(2023, 1, 1))
+                        .build())
+                .toList();
+
+        backupService.exportStream(dir.toString(), "backup.json.gz", funkos.stream()).join();
+        backupService.exportStream(dir.toString(), "backup.json", funkos.stream()).join();
+        List<Funko> restored = new ArrayList<>();
+        backupService.importStream(dir.toString(), "backup.json.gz", 1000, batch -> {
+            restored.addAll(batch);
+            return CompletableFuture.completedFuture(batch);
+        }, null).join();
+
+        byte[] compressed = Files.readAllBytes(dir.resolve("backup.json.gz"));
+        assertAll(
+                () -> assertEquals(0x1f, compressed[0] & 0xff),
+                () -> assertEquals(0x8b, compressed[1] & 0xff),
+                () -> assertTrue(compressed.length * 4L < Files.size(dir.resolve("backup.json")),
+                        "El backup comprimido no es más pequeño"),
+                () -> assertEquals(funkos, restored),
+                () -> assertEquals(funkos, backupService.importData(dir.toString(), "backup.json.gz").join())
+        );
+    }
+
+    /**
+     * Test para comprobar que un backup .fkb se exporta en formato binario, ocupa menos que el JSON, se restaura
+     * y se convierte a JSON y de vuelta a binario sin perder datos
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede leer el backup
+     */
+    @Test
+    public void testExportBinaryAndConvert(@TempDir Path dir) throws IOException {
+        List<Funko> funkos = IntStream.range(0, 5000)
+                .mapToObj(i -> Funko.builder()
+                        .myId((long) i)
+                        .model(Model.values()[i % Model.values().length])
+                        .name("Funko " + i)
+                        .price(i + 0.25)
+                        .releaseDate(LocalDate.of(2023, 1, 1).plusDays(i))
+                        .updateAt(LocalDateTime.of(2023, 10, 1, 12, 0).plusSeconds(i))
+                        .build())
+                .toList();
+
+        long count = backupService.exportStream(dir.toString(), "backup.fkb", funkos.stream()).join();
+        backupService.exportStream(dir.toString(), "backup.json", funkos.stream()).join();
+        List<Funko> restored = new ArrayList<>();
+        ImportReport report = backupService.importStream(dir.toString(), "backup.fkb", 1000, batch -> {
+            restored.addAll(batch);
+            return CompletableFuture.completedFuture(batch);
+        }, null).join();
+        long toJson = backupService.convertBackup(dir.toString(), "backup.fkb", "convertido.json").join();
+        long toBinary = backupService.convertBackup(dir.toString(), "convertido.json", "convertido.fkb").join();
+
+        assertAll(
+                () -> assertEquals(5000, count),
+                () -> assertTrue(Files.size(dir.resolve("backup.fkb")) * 2 < Files.size(dir.resolve("backup.json")),
+                        "El backup binario no es más pequeño"),
+                () -> assertEquals(funkos, restored),
+                () -> assertEquals(5000, report.getRowsImported()),
+                () -> assertEquals(5000, toJson),
+                () -> assertEquals(5000, toBinary),
+                () -> assertEquals(funkos, backupService.importData(dir.toString(), "convertido.json").join()),
+                () -> assertArrayEquals(Files.readAllBytes(dir.resolve("backup.fkb")),
+                        Files.readAllBytes(dir.resolve("convertido.fkb")))
+        );
+    }
+
+    /**
+     * Test para comprobar que la restauración falla si el backup binario está truncado
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede leer o escribir el backup
+     */
+    @Test
+    public void testImportStreamTruncatedBinary(@TempDir Path dir) throws IOException {
+        Funko funko = Funko.builder().model(Model.OTROS).name("Funko").releaseDate(LocalDate.now()).build();
+        backupService.exportStream(dir.toString(), "backup.fkb", Stream.of(funko, funko)).join();
+        byte[] bytes = Files.readAllBytes(dir.resolve("backup.fkb"));
+        Files.write(dir.resolve("backup.fkb"), Arrays.copyOf(bytes, bytes.length - 12));
+
+        assertThrows(CompletionException.class, () -> backupService.importStream(dir.toString(), "backup.fkb", 10,
+                CompletableFuture::completedFuture, null).join());
+    }
+
+    /**
+     * Test para comprobar que el manifiesto de los backups incrementales se guarda y se vuelve a leer,
+     * y los nombres de sus ficheros
+     *
+     * @param dir Directorio temporal
+     */
+    @Test
+    public void testManifest(@TempDir Path dir) {
+        BackupManifest manifest = BackupManifest.builder()
+                .fullBackup("backup.json.gz")
+                .fullRows(10)
+                .watermark(LocalDateTime.of(2023, 10, 1, 12, 0))
+                .increments(List.of(BackupIncrement.builder()
+                        .fileName("backup-inc-0001.json.gz")
+                        .since(LocalDateTime.of(2023, 10, 1, 11, 59, 30))
+                        .watermark(LocalDateTime.of(2023, 10, 1, 12, 0))
+                        .rows(3)
+                        .deleted(List.of(UUID.randomUUID().toString()))
+                        .build()))
+                .build();
+
+        assertTrue(backupService.readManifest(dir.toString(), "backup.manifest.json").join().isEmpty());
+        backupService.writeManifest(dir.toString(), "backup.manifest.json", manifest).join();
+
+        assertAll(
+                () -> assertEquals(Optional.of(manifest), backupService.readManifest(dir.toString(), "backup.manifest.json").join()),
+                () -> assertEquals("backup.manifest.json", BackupService.manifestFileName("backup.json.gz")),
+                () -> assertEquals("backup-inc-0002.json.gz", BackupService.incrementFileName("backup.json.gz", 2)),
+                () -> assertEquals("backup-inc-0001.fkb", BackupService.incrementFileName("backup.fkb", 1))
+        );
+    }
+
+    /**
+     * Test para comprobar que la restauración en streaming envía los Funkos por lotes, avisa del progreso
+     * y rechaza los Funkos no válidos
+     *
+     * @param dir Directorio temporal
+     */
+    @Test
+    public void testImportStream(@TempDir Path dir) {
+        List<Funko> funkos = IntStream.range(0, 250)
+                .mapToObj(i -> Funko.builder()
+                        .model(Model.OTROS)
+                        .name(i == 7 ? "" : "Funko " + i)
+                        .price(i)
+                        .releaseDate(LocalDate.of(2023, 1, 1))
+                        .build())
+                .toList();
+        backupService.exportStream(dir.toString(), "backup.json", funkos.stream()).join();
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Funko> restored = new ArrayList<>();
+        List<ImportReport> progress = new ArrayList<>();
+
+        ImportReport report = backupService.importStream(dir.toString(), "backup.json", 100, batch -> {
+            batchSizes.add(batch.size());
+            restored.addAll(batch);
+            return CompletableFuture.completedFuture(batch);
+        }, progress::add).join();
+
+        assertAll(
+                () -> assertEquals(List.of(100, 100, 49), batchSizes),
+                () -> assertEquals(funkos.stream().filter(f -> !f.getName().isEmpty()).toList(), restored),
+                () -> assertEquals(3, progress.size()),
+                () -> assertEquals(200, progress.get(1).getRowsImported()),
+                () -> assertEquals(250, report.getRowsRead()),
+                () -> assertEquals(249, report.getRowsImported()),
+                () -> assertEquals(1, report.getRowsRejected())
+        );
+    }
+
+    /**
+     * Test para comprobar que los lotes que no se pueden guardar se cuentan como rechazados
+     *
+     * @param dir Directorio temporal
+     */
+    @Test
+    public void testImportStreamFailedBatch(@TempDir Path dir) {
+        Funko funko = Funko.builder().model(Model.OTROS).name("Funko").releaseDate(LocalDate.now()).build();
+        backupService.exportStream(dir.toString(), "backup.json", Stream.of(funko)).join();
+
+        ImportReport report = backupService.importStream(dir.toString(), "backup.json", 10,
+                batch -> CompletableFuture.failedFuture(new IllegalStateException("fallo")), null).join();
+
+        assertAll(
+                () -> assertEquals(0, report.getRowsImported()),
+                () -> assertEquals(1, report.getRowsRejected())
+        );
+    }
+
+    /**
+     * Test para comprobar que la restauración falla si el backup no es un JSON válido
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede escribir el fichero
+     */
+    @Test
+    public void testImportStreamInvalidJson(@TempDir Path dir) throws IOException {
+        Files.writeString(dir.resolve("backup.json"), "[{\"name\": ");
+
+        assertThrows(CompletionException.class, () -> backupService.importStream(dir.toString(), "backup.json", 10,
+                CompletableFuture::completedFuture, null).join());
+    }
+
     /**
      * Test para comprobar que se lanza una excepción cuando no se puede leer el archivo
      */
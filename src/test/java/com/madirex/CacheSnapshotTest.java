@@ -0,0 +1,60 @@
+package com.madirex;
+
+import com.madirex.services.cache.CacheSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo para la clase CacheSnapshot
+ */
+class CacheSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Test de escritura y lectura: se conservan las claves y su orden en 16 bytes por clave
+     *
+     * @throws IOException Si hay un error al escribir o leer el fichero
+     */
+    @Test
+    void testWriteAndRead() throws IOException {
+        Path file = dir.resolve("cache.snapshot");
+        List<String> keys = List.of(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                UUID.randomUUID().toString());
+        CacheSnapshot.write(file, keys);
+        assertAll("snapshot",
+                () -> assertEquals(keys, CacheSnapshot.read(file), "Las claves leídas no son las escritas"),
+                () -> assertEquals(8 + 16 * keys.size(), Files.size(file), "El tamaño del fichero no es el esperado")
+        );
+    }
+
+    /**
+     * Test de lectura de un fichero que no existe: no hay claves que precargar
+     *
+     * @throws IOException Si hay un error al leer el fichero
+     */
+    @Test
+    void testReadMissingFile() throws IOException {
+        assertTrue(CacheSnapshot.read(dir.resolve("missing.snapshot")).isEmpty());
+    }
+
+    /**
+     * Test de lectura de un fichero que no es una instantánea
+     *
+     * @throws IOException Si hay un error al escribir el fichero
+     */
+    @Test
+    void testReadInvalidFile() throws IOException {
+        Path file = Files.writeString(dir.resolve("invalid.snapshot"), "no es una instantánea");
+        assertThrows(IOException.class, () -> CacheSnapshot.read(file));
+    }
+}
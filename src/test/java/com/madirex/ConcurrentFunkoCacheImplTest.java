@@ -0,0 +1,385 @@
+package com.madirex;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.madirex.models.CacheStats;
+import com.madirex.models.Funko;
+import com.madirex.services.cache.Cache;
+import com.madirex.services.cache.ConcurrentFunkoCacheImpl;
+import com.madirex.services.cache.EvictionPolicy;
+import com.madirex.services.cache.FunkoCacheStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de test para la clase ConcurrentFunkoCacheImpl
+ */
+class ConcurrentFunkoCacheImplTest {
+
+    private ConcurrentFunkoCacheImpl cache;
+    private final long secondsToClear = 1;
+
+    /**
+     * Inicializa la caché antes de cada test
+     */
+    @BeforeEach
+    void setUp() {
+        cache = new ConcurrentFunkoCacheImpl(10, secondsToClear);
+    }
+
+    /**
+     * Detiene la limpieza periódica después de cada test
+     */
+    @AfterEach
+    void tearDown() {
+        cache.shutdown();
+    }
+
+    /**
+     * Test put and get
+     */
+    @Test
+    void testPutAndGet() {
+        Funko funko = Funko.builder().build();
+        cache.put("1", funko);
+        assertEquals(funko, cache.get("1"));
+    }
+
+    /**
+     * Test remove
+     */
+    @Test
+    void testRemove() {
+        Funko funko = Funko.builder().build();
+        cache.put("2", funko);
+        cache.remove("2");
+        assertNull(cache.get("2"));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Test clear
+     *
+     * @throws InterruptedException si hay un error en el hilo
+     */
+    @Test
+    void testClear() throws InterruptedException {
+        Funko funko = Funko.builder().build();
+        cache.put("1", funko);
+        Thread.sleep(secondsToClear * 1000);
+        cache.clear();
+        assertNull(cache.get("1"));
+    }
+
+    /**
+     * Test caducidad por escritura: la lectura descarta el Funko caducado sin esperar a la limpieza
+     *
+     * @throws InterruptedException si hay un error en el hilo
+     */
+    @Test
+    void testExpiresAfterWriteOnRead() throws InterruptedException {
+        ConcurrentFunkoCacheImpl writeCache = new ConcurrentFunkoCacheImpl(10, Duration.ofMillis(200), null);
+        writeCache.put("1", Funko.builder().build());
+        writeCache.get("1");
+        Thread.sleep(250);
+        assertAll("escritura",
+                () -> assertNull(writeCache.get("1"), "El Funko no ha caducado"),
+                () -> assertEquals(0, writeCache.size(), "El Funko caducado sigue en la caché")
+        );
+        writeCache.shutdown();
+    }
+
+    /**
+     * Test caducidad por acceso: cada lectura alarga la vida del Funko
+     *
+     * @throws InterruptedException si hay un error en el hilo
+     */
+    @Test
+    void testExpiresAfterAccess() throws InterruptedException {
+        ConcurrentFunkoCacheImpl accessCache = new ConcurrentFunkoCacheImpl(10, null, Duration.ofMillis(400));
+        accessCache.put("1", Funko.builder().build());
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(150);
+            assertNotNull(accessCache.get("1"), "El Funko ha caducado aunque se ha consultado");
+        }
+        Thread.sleep(500);
+        assertNull(accessCache.get("1"), "El Funko no ha caducado");
+        accessCache.shutdown();
+    }
+
+    /**
+     * Test limpieza: solo se eliminan los Funkos caducados, la caducidad no depende de updateAt
+     *
+     * @throws InterruptedException si hay un error en el hilo
+     */
+    @Test
+    void testClearRemovesOnlyExpired() throws InterruptedException {
+        ConcurrentFunkoCacheImpl writeCache = new ConcurrentFunkoCacheImpl(10, Duration.ofMillis(300), null);
+        writeCache.put("old", Funko.builder().build());
+        Thread.sleep(350);
+        writeCache.put("new", Funko.builder().updateAt(LocalDateTime.now().minusYears(1)).build());
+        writeCache.clear();
+        assertAll("limpieza",
+                () -> assertEquals(1, writeCache.size(), "No se ha eliminado solo el Funko caducado"),
+                () -> assertNotNull(writeCache.get("new"), "Se ha eliminado un Funko vigente")
+        );
+        writeCache.shutdown();
+    }
+
+    /**
+     * Test estadísticas: aciertos, fallos, inserciones, desalojos por motivo, cargas y tamaño
+     *
+     * @throws InterruptedException si hay un error en el hilo
+     */
+    @Test
+    void testStats() throws InterruptedException {
+        ConcurrentFunkoCacheImpl statsCache = new ConcurrentFunkoCacheImpl(2, Duration.ofMillis(200), null);
+        statsCache.put("1", Funko.builder().build());
+        statsCache.put("2", Funko.builder().build());
+        statsCache.put("3", Funko.builder().build());
+        statsCache.get("3");
+        statsCache.get("1");
+        statsCache.recordLoad(2_000_000);
+        Thread.sleep(250);
+        statsCache.get("2");
+        CacheStats stats = statsCache.getStats();
+        assertAll("estadísticas",
+                () -> assertEquals(1, stats.getHitCount(), "Aciertos"),
+                () -> assertEquals(2, stats.getMissCount(), "Fallos"),
+                () -> assertEquals(3, stats.getPutCount(), "Inserciones"),
+                () -> assertEquals(1, stats.getSizeEvictionCount(), "Desalojos por tamaño"),
+                () -> assertEquals(1, stats.getExpiryEvictionCount(), "Desalojos por caducidad"),
+                () -> assertEquals(2.0, stats.getAverageLoadMillis(), 0.001, "Tiempo medio de carga"),
+                () -> assertEquals(1, stats.getSize(), "Tamaño"),
+                () -> assertEquals(2, stats.getMaxSize(), "Tamaño máximo")
+        );
+        statsCache.shutdown();
+    }
+
+    /**
+     * Test publicación de estadísticas por JMX
+     *
+     * @throws JMException si hay un error de JMX
+     */
+    @Test
+    void testStatsPublishedByJmx() throws JMException {
+        ObjectName name = FunkoCacheStats.register("test", cache);
+        cache.put("1", Funko.builder().build());
+        cache.get("1");
+        cache.get("2");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertAll("jmx",
+                () -> assertEquals(1L, server.getAttribute(name, "HitCount"), "Aciertos"),
+                () -> assertEquals(1L, server.getAttribute(name, "MissCount"), "Fallos"),
+                () -> assertEquals(0.5, (double) server.getAttribute(name, "HitRate"), 0.001, "Tasa de aciertos"),
+                () -> assertEquals(10L, server.getAttribute(name, "MaxSize"), "Tamaño máximo")
+        );
+        FunkoCacheStats.unregister("test");
+        assertFalse(server.isRegistered(name), "El MBean sigue registrado");
+    }
+
+    /**
+     * Test desalojo LRU: al superar el tamaño máximo sale el usado hace más tiempo
+     */
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        for (int i = 0; i < 10; i++) {
+            cache.put(String.valueOf(i), Funko.builder().name(String.valueOf(i)).build());
+        }
+        cache.get("0");
+        cache.put("10", Funko.builder().name("10").build());
+        assertAll("lru",
+                () -> assertEquals(10, cache.size(), "Se ha superado el tamaño máximo"),
+                () -> assertNotNull(cache.get("0"), "Se ha desalojado el Funko usado recientemente"),
+                () -> assertNull(cache.get("1"), "No se ha desalojado el Funko usado hace más tiempo")
+        );
+    }
+
+    /**
+     * Test de las claves más usadas: en LRU se devuelven de la usada más recientemente a la usada hace más tiempo
+     */
+    @Test
+    void testHottestKeys() {
+        for (int i = 0; i < 5; i++) {
+            cache.put(String.valueOf(i), Funko.builder().name(String.valueOf(i)).build());
+        }
+        cache.get("1");
+        cache.remove("3");
+        assertAll("hottestKeys",
+                () -> assertEquals(List.of("1", "4", "2", "0"), cache.hottestKeys(10), "El orden no es el esperado"),
+                () -> assertEquals(List.of("1", "4"), cache.hottestKeys(2), "No se respeta el límite")
+        );
+    }
+
+    /**
+     * Test de resistencia a recorridos: tras consultar varias veces un conjunto de Funkos populares se añaden
+     * muchos Funkos que solo se usan una vez. Con LRU los populares se desalojan; con W_TINY_LFU se mantienen
+     */
+    @Test
+    void testTinyLfuKeepsPopularEntriesDuringScan() {
+        ConcurrentFunkoCacheImpl lru = new ConcurrentFunkoCacheImpl(100, null, null, EvictionPolicy.LRU);
+        ConcurrentFunkoCacheImpl tinyLfu = new ConcurrentFunkoCacheImpl(100, null, null, EvictionPolicy.W_TINY_LFU);
+        try {
+            int lruHits = scanAndCountPopular(lru);
+            int tinyLfuHits = scanAndCountPopular(tinyLfu);
+            assertAll("scan",
+                    () -> assertEquals(100, tinyLfu.size(), "No se respeta el tamaño máximo"),
+                    () -> assertEquals(0, lruHits, "LRU ha conservado Funkos populares"),
+                    () -> assertTrue(tinyLfuHits >= 45, "W_TINY_LFU solo ha conservado " + tinyLfuHits + " de 50")
+            );
+        } finally {
+            lru.shutdown();
+            tinyLfu.shutdown();
+        }
+    }
+
+    /**
+     * Consulta 50 Funkos populares, añade 1000 de un solo uso y devuelve cuántos populares siguen en la caché
+     *
+     * @param target caché a probar
+     * @return número de Funkos populares en la caché
+     */
+    private static int scanAndCountPopular(ConcurrentFunkoCacheImpl target) {
+        for (int i = 0; i < 50; i++) {
+            target.put("hot-" + i, Funko.builder().name("hot-" + i).build());
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                target.get("hot-" + i);
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            target.put("scan-" + i, Funko.builder().name("scan-" + i).build());
+        }
+        return (int) IntStream.range(0, 50).filter(i -> target.get("hot-" + i) != null).count();
+    }
+
+    /**
+     * Test de estrés con la política W_TINY_LFU
+     *
+     * @throws InterruptedException si hay un error en el hilo
+     */
+    @Test
+    void testConcurrentStressTinyLfu() throws InterruptedException {
+        ConcurrentFunkoCacheImpl tinyLfu = new ConcurrentFunkoCacheImpl(10, Duration.ofSeconds(secondsToClear), null,
+                EvictionPolicy.W_TINY_LFU);
+        try {
+            List<Throwable> errors = stress(tinyLfu, 10, 8, 50_000, 64);
+            assertTrue(errors.isEmpty(), "Errores en los hilos: " + errors);
+        } finally {
+            tinyLfu.shutdown();
+        }
+    }
+
+    /**
+     * Test de estrés: varios hilos leen, escriben y borran a la vez claves que colisionan.
+     * Cada valor lleva su clave en el nombre, por lo que una lectura de otra clave, una excepción o superar
+     * el tamaño máximo indican que la estructura interna se ha corrompido
+     *
+     * @throws InterruptedException si hay un error en el hilo
+     */
+    @Test
+    void testConcurrentStress() throws InterruptedException {
+        List<Throwable> errors = stress(cache, 10, 8, 50_000, 64);
+        assertTrue(errors.isEmpty(), "Errores en los hilos: " + errors);
+    }
+
+    /**
+     * Ejecuta operaciones aleatorias de varios hilos sobre la caché y devuelve los errores detectados.
+     * Al terminar comprueba que la caché no contenga más elementos que su tamaño máximo.
+     * El log de depuración de la caché se silencia durante la prueba: escribir en consola serializa los hilos
+     * y oculta las condiciones de carrera
+     *
+     * @param target     caché a estresar
+     * @param maxSize    tamaño máximo de la caché
+     * @param threads    número de hilos
+     * @param operations operaciones por hilo
+     * @param keys       número de claves distintas
+     * @return errores detectados
+     * @throws InterruptedException si hay un error en el hilo
+     */
+    static List<Throwable> stress(Cache<String, Funko> target, int maxSize, int threads, int operations, int keys)
+            throws InterruptedException {
+        Logger logger = (Logger) LoggerFactory.getLogger(target.getClass());
+        Level level = logger.getLevel();
+        logger.setLevel(Level.INFO);
+        try {
+            List<Throwable> errors = runStress(target, threads, operations, keys);
+            long cached = IntStream.range(0, keys).filter(key -> target.get(String.valueOf(key)) != null).count();
+            if (cached > maxSize) {
+                errors.add(new AssertionError("Se ha superado el tamaño máximo: " + cached));
+            }
+            return errors;
+        } finally {
+            logger.setLevel(level);
+        }
+    }
+
+    /**
+     * Lanza los hilos de la prueba de estrés y espera a que terminen
+     *
+     * @param target     caché a estresar
+     * @param threads    número de hilos
+     * @param operations operaciones por hilo
+     * @param keys       número de claves distintas
+     * @return errores detectados
+     * @throws InterruptedException si hay un error en el hilo
+     */
+    private static List<Throwable> runStress(Cache<String, Funko> target, int threads, int operations, int keys)
+            throws InterruptedException {
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int i = 0; i < operations; i++) {
+                        String key = String.valueOf(random.nextInt(keys));
+                        int op = random.nextInt(10);
+                        if (op < 6) {
+                            Funko funko = target.get(key);
+                            if (funko != null && !key.equals(funko.getName())) {
+                                throw new AssertionError("Clave " + key + " devuelve " + funko.getName());
+                            }
+                        } else if (op < 9) {
+                            target.put(key, Funko.builder().name(key).build());
+                        } else {
+                            target.remove(key);
+                        }
+                    }
+                } catch (Throwable e) {
+                    errors.add(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+        start.countDown();
+        if (!done.await(30, TimeUnit.SECONDS)) {
+            errors.add(new AssertionError("Los hilos no han terminado: posible bucle infinito en la caché"));
+        }
+        return new ArrayList<>(errors);
+    }
+}
@@ -0,0 +1,103 @@
+package com.madirex;
+
+import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
+import com.madirex.services.io.CsvImportPipeline;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de test para la clase CsvImportPipeline
+ */
+public class CsvImportPipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Crea un CSV con filas válidas y filas erróneas
+     *
+     * @param valid   número de filas válidas
+     * @param invalid número de filas erróneas
+     * @return Ruta del CSV
+     * @throws IOException si no se puede escribir el fichero
+     */
+    private Path createCsv(int valid, int invalid) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO");
+        for (int i = 0; i < valid; i++) {
+            lines.add(UUID.randomUUID() + ",Funko " + i + ",MARVEL,10.5,2022-05-01");
+        }
+        for (int i = 0; i < invalid; i++) {
+            lines.add(UUID.randomUUID() + ",Funko malo " + i + ",NOEXISTE,10.5,2022-05-01");
+        }
+        Path csv = tempDir.resolve("funkos.csv");
+        Files.write(csv, lines);
+        return csv;
+    }
+
+    /**
+     * Test que comprueba que se importan todas las filas válidas por lotes
+     *
+     * @throws IOException si no se puede escribir el fichero
+     */
+    @Test
+    public void testImportFile() throws IOException {
+        Path csv = createCsv(1050, 3);
+        List<Funko> written = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        CsvImportPipeline pipeline = new CsvImportPipeline(batch -> {
+            batchSizes.add(batch.size());
+            written.addAll(batch);
+            return CompletableFuture.completedFuture(batch);
+        }, 10, 100, 2);
+
+        ImportReport report = pipeline.importFile(csv.toString()).join();
+
+        assertAll("report",
+                () -> assertEquals(1053, report.getRowsRead(), "Filas leídas"),
+                () -> assertEquals(1050, report.getRowsImported(), "Filas importadas"),
+                () -> assertEquals(3, report.getRowsRejected(), "Filas rechazadas"),
+                () -> assertEquals(1050, written.size(), "Funkos escritos"),
+                () -> assertTrue(batchSizes.stream().allMatch(size -> size <= 100), "Tamaño de lote")
+        );
+    }
+
+    /**
+     * Test que comprueba que un lote fallido se cuenta como rechazado
+     *
+     * @throws IOException si no se puede escribir el fichero
+     */
+    @Test
+    public void testImportFileFailedBatch() throws IOException {
+        Path csv = createCsv(20, 0);
+        CsvImportPipeline pipeline = new CsvImportPipeline(batch ->
+                CompletableFuture.failedFuture(new IllegalStateException("fallo")), 10, 5, 1);
+
+        ImportReport report = pipeline.importFile(csv.toString()).join();
+
+        assertEquals(0, report.getRowsImported());
+        assertEquals(20, report.getRowsRejected());
+    }
+
+    /**
+     * Test que comprueba que un fichero inexistente completa con excepción
+     */
+    @Test
+    public void testImportFileNotFound() {
+        CsvImportPipeline pipeline = new CsvImportPipeline(CompletableFuture::completedFuture, 10, 5, 1);
+        assertThrows(CompletionException.class, () -> pipeline.importFile("ruta/inexistente.csv").join());
+    }
+}
@@ -0,0 +1,132 @@
+package com.madirex;
+
+import com.madirex.services.database.DatabaseManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo para la clase DatabaseManager
+ */
+class DatabaseManagerTestDB {
+
+    private DatabaseManager database;
+
+    /**
+     * Método que se ejecuta antes de cada test
+     */
+    @BeforeEach
+    void setUp() {
+        database = DatabaseManager.getInstance();
+    }
+
+    /**
+     * Cuenta los Funkos con el código indicado
+     *
+     * @param cod Código del Funko
+     * @return Número de Funkos
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    private int countByCod(String cod) throws SQLException {
+        return database.select("SELECT COUNT(*) FROM funko WHERE cod = ?", res -> {
+            res.next();
+            return res.getInt(1);
+        }, cod);
+    }
+
+    /**
+     * Test para comprobar que una transacción fallida deshace los cambios
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testTransactionRollback() throws SQLException {
+        String cod = UUID.randomUUID().toString();
+        var sql = "INSERT INTO funko (cod, myId, nombre, modelo, precio, fecha_lanzamiento, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        assertThrows(SQLException.class, () -> database.inTransaction(connection -> {
+            database.insert(connection, sql, cod, 1, "Rollback", "OTROS", 1.0, LocalDate.now(),
+                    LocalDateTime.now(), LocalDateTime.now());
+            return database.insert(connection, sql, cod, 2, "Rollback", "NOEXISTE", 1.0, LocalDate.now(),
+                    LocalDateTime.now(), LocalDateTime.now());
+        }));
+        assertEquals(0, countByCod(cod), "La transacción fallida no debe dejar registros");
+    }
+
+    /**
+     * Test para comprobar que una transacción correcta confirma los cambios
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testTransactionCommit() throws SQLException {
+        String cod = UUID.randomUUID().toString();
+        var sql = "INSERT INTO funko (cod, myId, nombre, modelo, precio, fecha_lanzamiento, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        database.inTransaction(connection -> database.insert(connection, sql, cod, 1, "Commit", "OTROS", 1.0,
+                LocalDate.now(), LocalDateTime.now(), LocalDateTime.now()));
+        assertEquals(1, countByCod(cod), "La transacción correcta debe confirmar el registro");
+        database.inTransaction(connection -> database.delete(connection, "DELETE FROM funko WHERE cod = ?", cod));
+    }
+
+    /**
+     * Test para comprobar que las migraciones se aplican sobre una base de datos anterior a V2 con cods
+     * repetidos: se conserva la primera fila de cada cod, las demás se guardan en funko_duplicado y después
+     * se crea el índice único
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     * @throws IOException  Si no se puede leer algún script de migración
+     */
+    @Test
+    void testMigrateDeduplicatesCods() throws SQLException, IOException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:migracion_cods_repetidos")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE funko (id BIGINT PRIMARY KEY AUTO_INCREMENT, MyId BIGINT, " +
+                        "cod UUID DEFAULT RANDOM_UUID() NOT NULL, nombre VARCHAR(255), " +
+                        "modelo VARCHAR(6) CHECK (modelo IN ('MARVEL', 'DISNEY', 'ANIME', 'OTROS')), " +
+                        "precio DECIMAL(10, 2), fecha_lanzamiento DATE, " +
+                        "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            }
+            String cod = UUID.randomUUID().toString();
+            var sql = "INSERT INTO funko (cod, myId, nombre, modelo, precio, fecha_lanzamiento) VALUES (?, ?, ?, ?, ?, ?)";
+            database.insert(connection, sql, cod, 1, "Primero", "OTROS", 1.0, LocalDate.now());
+            database.insert(connection, sql, cod, 2, "Repetido", "OTROS", 1.0, LocalDate.now());
+            database.insert(connection, sql, UUID.randomUUID().toString(), 3, "Otro", "OTROS", 1.0, LocalDate.now());
+
+            database.migrate(connection);
+
+            List<String> names = database.select(connection, "SELECT nombre FROM funko ORDER BY id", res -> {
+                List<String> list = new ArrayList<>();
+                while (res.next()) {
+                    list.add(res.getString(1));
+                }
+                return list;
+            });
+            List<String> duplicated = database.select(connection, "SELECT nombre FROM funko_duplicado", res -> {
+                List<String> list = new ArrayList<>();
+                while (res.next()) {
+                    list.add(res.getString(1));
+                }
+                return list;
+            });
+            assertAll("migración",
+                    () -> assertEquals(List.of("Primero", "Otro"), names, "Solo debe quedar la primera fila de cada cod"),
+                    () -> assertEquals(List.of("Repetido"), duplicated, "Las filas repetidas se guardan en funko_duplicado"),
+                    () -> assertThrows(SQLException.class, () -> database.insert(connection, sql, cod, 4, "Nuevo",
+                            "OTROS", 1.0, LocalDate.now()), "El índice de cod debe ser único")
+            );
+        }
+    }
+}
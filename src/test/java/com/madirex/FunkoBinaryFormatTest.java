@@ -0,0 +1,127 @@
+package com.madirex;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.services.io.FunkoBinaryFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de test para la clase FunkoBinaryFormat
+ */
+class FunkoBinaryFormatTest {
+
+    /**
+     * Escribe los Funkos en un fichero en formato binario
+     *
+     * @param file   Fichero
+     * @param funkos Funkos
+     * @throws IOException Si no se puede escribir el fichero
+     */
+    private void write(Path file, List<Funko> funkos) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file);
+             FunkoBinaryFormat.Writer writer = FunkoBinaryFormat.writer(out)) {
+            for (Funko funko : funkos) {
+                writer.write(funko);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Lee los Funkos de un fichero en formato binario
+     *
+     * @param file Fichero
+     * @return Funkos
+     * @throws IOException Si no se puede leer el fichero
+     */
+    private List<Funko> read(Path file) throws IOException {
+        try (Stream<Funko> funkos = FunkoBinaryFormat.read(file)) {
+            return funkos.toList();
+        }
+    }
+
+    /**
+     * Test los Funkos se leen igual que se escribieron, también con campos nulos
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede leer o escribir el fichero
+     */
+    @Test
+    void testRoundTrip(@TempDir Path dir) throws IOException {
+        List<Funko> funkos = List.of(
+                Funko.builder()
+                        .myId(42L)
+                        .name("Spider-Man ñ 🕷")
+                        .model(Model.MARVEL)
+                        .price(19.99)
+                        .releaseDate(LocalDate.of(1969, 12, 31))
+                        .updateAt(LocalDateTime.of(2023, 10, 1, 12, 30, 15, 123456000))
+                        .build(),
+                Funko.builder().myId(null).updateAt(null).build());
+        Path file = dir.resolve("backup.fkb");
+
+        write(file, funkos);
+
+        assertAll(
+                () -> assertEquals(funkos, read(file)),
+                () -> assertTrue(FunkoBinaryFormat.isBinary(file)),
+                () -> assertTrue(FunkoBinaryFormat.isBinaryName("backup.fkb"))
+        );
+    }
+
+    /**
+     * Test un backup sin Funkos sigue siendo válido
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede leer o escribir el fichero
+     */
+    @Test
+    void testEmpty(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("backup.fkb");
+        write(file, List.of());
+        assertEquals(List.of(), read(file));
+    }
+
+    /**
+     * Test un fichero truncado o que no es binario se rechaza
+     *
+     * @param dir Directorio temporal
+     * @throws IOException Si no se puede leer o escribir el fichero
+     */
+    @Test
+    void testRejectsTruncatedAndForeignFiles(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("backup.fkb");
+        write(file, IntStream.range(0, 10)
+                .mapToObj(i -> Funko.builder().name("Funko " + i).model(Model.ANIME).build())
+                .toList());
+        byte[] bytes = Files.readAllBytes(file);
+        Path truncated = dir.resolve("truncado.fkb");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 20));
+        Path withoutEnd = dir.resolve("sin-final.fkb");
+        Files.write(withoutEnd, Arrays.copyOf(bytes, bytes.length - 9));
+        Path json = dir.resolve("backup.json");
+        Files.writeString(json, "[]");
+
+        assertAll(
+                () -> assertThrows(UncheckedIOException.class, () -> read(truncated)),
+                () -> assertThrows(UncheckedIOException.class, () -> read(withoutEnd)),
+                () -> assertFalse(FunkoBinaryFormat.isBinary(json)),
+                () -> assertThrows(IOException.class, () -> read(json))
+        );
+    }
+}
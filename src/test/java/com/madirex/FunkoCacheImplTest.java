@@ -44,6 +44,26 @@ public class FunkoCacheImplTest {
         assertNull(cache.get("2"));
     }
 
+    /**
+     * Test estadísticas
+     */
+    @Test
+    public void testStats() {
+        for (int i = 0; i < 11; i++) {
+            cache.put(String.valueOf(i), Funko.builder().build());
+        }
+        cache.get("0");
+        cache.get("10");
+        var stats = cache.getStats();
+        assertAll("estadísticas",
+                () -> assertEquals(1, stats.getHitCount()),
+                () -> assertEquals(1, stats.getMissCount()),
+                () -> assertEquals(11, stats.getPutCount()),
+                () -> assertEquals(1, stats.getSizeEvictionCount()),
+                () -> assertEquals(10, stats.getSize())
+        );
+    }
+
     /**
      * Test shutdown
      */
@@ -0,0 +1,129 @@
+package com.madirex;
+
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.models.ModelCount;
+import com.madirex.repositories.funko.FunkoRepositoryImpl;
+import com.madirex.repositories.funko.FunkoStatsRepository;
+import com.madirex.repositories.funko.FunkoStatsRepositoryImpl;
+import com.madirex.services.crud.funko.IdGenerator;
+import com.madirex.services.database.DatabaseManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de testeo para la clase FunkoStatsRepository
+ */
+class FunkoStatsRepositoryTestDB {
+
+    private FunkoStatsRepository statsRepository;
+    private final Funko stitch = Funko.builder().name("Stitch Surf").model(Model.DISNEY).price(30)
+            .releaseDate(LocalDate.of(2023, 3, 1)).build();
+    private final Funko stitchAngel = Funko.builder().name("Stitch y Angel").model(Model.DISNEY).price(10)
+            .releaseDate(LocalDate.of(2022, 12, 31)).build();
+    private final Funko lowerStitch = Funko.builder().name("stitch 100%").model(Model.OTROS).price(20)
+            .releaseDate(LocalDate.of(2023, 12, 31)).build();
+    private final Funko luffy = Funko.builder().name("One Piece Luffy").model(Model.ANIME).price(60)
+            .releaseDate(LocalDate.of(2024, 1, 1)).build();
+
+    /**
+     * Método que se ejecuta antes de cada test. Deja la tabla solo con los Funkos de prueba
+     *
+     * @throws SQLException         Si hay un error en la base de datos
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @BeforeEach
+    void setUp() throws SQLException, ExecutionException, InterruptedException {
+        DatabaseManager database = DatabaseManager.getInstance();
+        database.initSQL("DELETE FROM funko");
+        statsRepository = FunkoStatsRepositoryImpl.getInstance(database);
+        FunkoRepositoryImpl.getInstance(IdGenerator.getInstance(), database)
+                .saveAll(List.of(stitch, stitchAngel, lowerStitch, luffy)).get();
+    }
+
+    /**
+     * Método que se ejecuta después de cada test
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @AfterEach
+    void tearDown() throws SQLException {
+        DatabaseManager.getInstance().initSQL("DELETE FROM funko");
+    }
+
+    /**
+     * Test para comprobar el Funko más caro y el precio medio
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testPriceAggregates() throws ExecutionException, InterruptedException {
+        var mostExpensive = statsRepository.findMostExpensive().get();
+        var average = statsRepository.findAveragePrice().get();
+        assertAll("precios",
+                () -> assertEquals(luffy.getCod(), mostExpensive.orElseThrow().getCod(), "El Funko más caro no es el esperado"),
+                () -> assertEquals(30.0, average.orElseThrow(), 0.001, "El precio medio no es el esperado")
+        );
+    }
+
+    /**
+     * Test para comprobar los agregados por modelo
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testModelAggregates() throws ExecutionException, InterruptedException {
+        List<ModelCount> counts = statsRepository.countByModel().get();
+        Map<Model, List<Funko>> groups = statsRepository.findGroupedByModel().get();
+        assertAll("modelos",
+                () -> assertEquals(List.of(
+                        ModelCount.builder().model(Model.ANIME).count(1).build(),
+                        ModelCount.builder().model(Model.DISNEY).count(2).build(),
+                        ModelCount.builder().model(Model.OTROS).count(1).build()), counts, "El número por modelo no es el esperado"),
+                () -> assertEquals(3, groups.size(), "El número de grupos no es el esperado"),
+                () -> assertEquals(2, groups.get(Model.DISNEY).size(), "El grupo DISNEY no es el esperado"),
+                () -> assertNull(groups.get(Model.MARVEL), "No hay Funkos de MARVEL")
+        );
+    }
+
+    /**
+     * Test para comprobar los Funkos lanzados en un año (límites incluidos)
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFindReleasedIn() throws ExecutionException, InterruptedException {
+        var released = statsRepository.findReleasedIn(2023).get();
+        assertEquals(List.of(stitch.getCod(), lowerStitch.getCod()), released.stream().map(Funko::getCod).toList(),
+                "Los Funkos lanzados en 2023 no son los esperados");
+    }
+
+    /**
+     * Test para comprobar la búsqueda por prefijo de nombre, que distingue mayúsculas y minúsculas
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testNamePrefix() throws ExecutionException, InterruptedException {
+        assertAll("prefijo",
+                () -> assertEquals(2L, statsRepository.countByNameStartingWith("Stitch").get(), "El número no es el esperado"),
+                () -> assertEquals(2, statsRepository.findByNameStartingWith("Stitch").get().size(), "La lista no es la esperada"),
+                () -> assertEquals(1L, statsRepository.countByNameStartingWith("stitch 100%").get(), "El comodín no se ha escapado"),
+                () -> assertEquals(0L, statsRepository.countByNameStartingWith("Stitch_").get(), "El comodín no se ha escapado")
+        );
+    }
+}
@@ -0,0 +1,245 @@
+package com.madirex;
+
+import com.madirex.exceptions.FunkoNotSavedException;
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.repositories.funko.FunkoRepository;
+import com.madirex.services.crud.funko.FunkoWriteBehind;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+/**
+ * Clase de testeo para la clase FunkoWriteBehind
+ */
+@ExtendWith(MockitoExtension.class)
+class FunkoWriteBehindTest {
+
+    @Mock
+    FunkoRepository repository;
+    private FunkoWriteBehind writeBehind;
+
+    /**
+     * Detiene la cola después de cada test
+     */
+    @AfterEach
+    void tearDown() {
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+        }
+    }
+
+    /**
+     * Crea un Funko de prueba
+     *
+     * @param name Nombre del Funko
+     * @return Funko
+     */
+    private Funko funko(String name) {
+        return Funko.builder().name(name).price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+    }
+
+    /**
+     * Test de combinación: las escrituras sucesivas de un cod se escriben una sola vez con los últimos datos
+     * y un alta seguida de una modificación se sigue escribiendo como alta
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testCoalescesWritesToSameCod() throws ExecutionException, InterruptedException {
+        when(repository.writeAll(anyMap(), anyMap())).thenReturn(CompletableFuture.completedFuture(List.of()));
+        writeBehind = new FunkoWriteBehind(repository, 100, Duration.ofHours(1));
+        Funko saved = funko("saved");
+        Funko savedThenUpdated = Funko.builder().cod(saved.getCod()).name("saved v2").price(1)
+                .releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        Funko updated = funko("updated");
+        Funko updatedTwice = Funko.builder().cod(updated.getCod()).name("updated v2").price(2)
+                .releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        String updatedId = updated.getCod().toString();
+
+        writeBehind.save(saved);
+        writeBehind.update(saved.getCod().toString(), savedThenUpdated);
+        writeBehind.update(updatedId, updated);
+        writeBehind.update(updatedId, updatedTwice);
+        assertAll("pending",
+                () -> assertEquals(2, writeBehind.size(), "No se han combinado las escrituras del mismo cod"),
+                () -> assertEquals(updatedTwice, writeBehind.get(updatedId), "El Funko pendiente no es el último")
+        );
+        writeBehind.flush().get();
+
+        verify(repository, times(1)).writeAll(Map.of(saved.getCod().toString(), savedThenUpdated),
+                Map.of(updatedId, updatedTwice));
+        assertEquals(0, writeBehind.size(), "Quedan escrituras pendientes tras el flush");
+    }
+
+    /**
+     * Test de escritura al alcanzar el tamaño de lote sin esperar al tiempo máximo
+     */
+    @Test
+    void testWritesWhenBatchIsFull() {
+        when(repository.writeAll(anyMap(), anyMap())).thenReturn(CompletableFuture.completedFuture(List.of()));
+        writeBehind = new FunkoWriteBehind(repository, 2, Duration.ofHours(1));
+        writeBehind.save(funko("first"));
+        writeBehind.save(funko("second"));
+        verify(repository, timeout(5000).times(1)).writeAll(anyMap(), anyMap());
+    }
+
+    /**
+     * Test de escritura periódica al pasar el tiempo máximo de espera
+     */
+    @Test
+    void testWritesAfterMaxDelay() {
+        when(repository.writeAll(anyMap(), anyMap())).thenReturn(CompletableFuture.completedFuture(List.of()));
+        writeBehind = new FunkoWriteBehind(repository, 100, Duration.ofMillis(50));
+        writeBehind.save(funko("first"));
+        verify(repository, timeout(5000).times(1)).writeAll(anyMap(), anyMap());
+    }
+
+    /**
+     * Test de fallo: el flush termina con FunkoNotSavedException y las escrituras siguen pendientes
+     * hasta el siguiente intento
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFailedWriteIsKeptForRetry() throws ExecutionException, InterruptedException {
+        when(repository.writeAll(anyMap(), anyMap()))
+                .thenReturn(CompletableFuture.failedFuture(new CompletionException(new SQLException("bloqueo"))))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        writeBehind = new FunkoWriteBehind(repository, 100, Duration.ofHours(1));
+        Funko funko = funko("retry");
+        writeBehind.save(funko);
+
+        var failed = writeBehind.flush();
+        var exception = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(FunkoNotSavedException.class, exception.getCause());
+        assertEquals(funko, writeBehind.get(funko.getCod().toString()), "Se ha perdido la escritura fallida");
+
+        writeBehind.flush().get();
+        verify(repository, times(2)).writeAll(Map.of(funko.getCod().toString(), funko), Map.of());
+        assertEquals(0, writeBehind.size(), "Quedan escrituras pendientes tras el reintento");
+    }
+
+    /**
+     * Test de fallo con excepción: si el repositorio termina con una excepción las escrituras
+     * también siguen pendientes hasta el siguiente intento
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testExceptionalWriteIsKeptForRetry() throws ExecutionException, InterruptedException {
+        when(repository.writeAll(anyMap(), anyMap()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("conexión cerrada")))
+                .thenReturn(CompletableFuture.completedFuture(List.of()));
+        writeBehind = new FunkoWriteBehind(repository, 100, Duration.ofHours(1));
+        Funko funko = funko("exception");
+        writeBehind.save(funko);
+
+        var failed = writeBehind.flush();
+        var exception = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(FunkoNotSavedException.class, exception.getCause());
+        assertEquals(funko, writeBehind.get(funko.getCod().toString()), "Se ha perdido la escritura fallida");
+
+        writeBehind.flush().get();
+        verify(repository, times(2)).writeAll(Map.of(funko.getCod().toString(), funko), Map.of());
+        assertEquals(0, writeBehind.size(), "Quedan escrituras pendientes tras el reintento");
+    }
+
+    /**
+     * Test de cierre: se escriben las escrituras pendientes
+     */
+    @Test
+    void testShutdownFlushes() {
+        when(repository.writeAll(anyMap(), anyMap())).thenReturn(CompletableFuture.completedFuture(List.of()));
+        writeBehind = new FunkoWriteBehind(repository, 100, Duration.ofHours(1));
+        Funko funko = funko("shutdown");
+        writeBehind.save(funko);
+        writeBehind.shutdown();
+        verify(repository, times(1)).writeAll(Map.of(funko.getCod().toString(), funko), Map.of());
+        writeBehind = null;
+    }
+
+    /**
+     * Test de alta seguida de una modificación con otro cod: se da de alta con el cod de la cola
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testInsertUsesQueueCod() throws ExecutionException, InterruptedException {
+        when(repository.writeAll(anyMap(), anyMap())).thenReturn(CompletableFuture.completedFuture(List.of()));
+        writeBehind = new FunkoWriteBehind(repository, 100, Duration.ofHours(1));
+        Funko saved = funko("saved");
+        String id = saved.getCod().toString();
+        Funko otherCod = funko("other cod");
+        writeBehind.save(saved);
+        writeBehind.update(id, otherCod);
+        writeBehind.flush().get();
+        verify(repository, times(1)).writeAll(Map.of(id, otherCod), Map.of());
+    }
+
+    /**
+     * Test de escrituras que no se pueden aplicar: las no válidas no llegan al repositorio y, junto con las
+     * que el repositorio no aplica, se descartan avisando al oyente en lugar de volver a la cola
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testUnwritableWritesAreRejected() throws ExecutionException, InterruptedException {
+        writeBehind = new FunkoWriteBehind(repository, 100, Duration.ofHours(1));
+        List<String> rejected = new CopyOnWriteArrayList<>();
+        writeBehind.setRejectionListener(rejected::add);
+        Funko valid = funko("duplicated");
+        String validId = valid.getCod().toString();
+        Funko noModel = Funko.builder().name("no model").price(1).releaseDate(LocalDate.now()).build();
+        String invalidId = noModel.getCod().toString();
+        when(repository.writeAll(Map.of(validId, valid), Map.of()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(validId)));
+
+        writeBehind.save(valid);
+        writeBehind.save(noModel);
+        writeBehind.update("no es un cod", funko("bad cod"));
+        writeBehind.flush().get();
+
+        assertAll("rejected",
+                () -> assertEquals(List.of(invalidId, "no es un cod", validId), rejected, "Descartes inesperados"),
+                () -> assertEquals(0, writeBehind.size(), "Las escrituras descartadas siguen en la cola"));
+        verify(repository, times(1)).writeAll(anyMap(), anyMap());
+    }
+
+    /**
+     * Test de flush con la cola detenida: si quedan escrituras sin guardar el flush falla
+     */
+    @Test
+    void testFlushAfterShutdownFailsWithPendingWrites() {
+        writeBehind = new FunkoWriteBehind(repository, 100, Duration.ofHours(1));
+        writeBehind.shutdown();
+        assertDoesNotThrow(() -> writeBehind.flush().get(), "Sin escrituras pendientes el flush no falla");
+        writeBehind.save(funko("late"));
+
+        var exception = assertThrows(ExecutionException.class, () -> writeBehind.flush().get());
+        assertInstanceOf(FunkoNotSavedException.class, exception.getCause());
+        verify(repository, never()).writeAll(anyMap(), anyMap());
+        writeBehind = null;
+    }
+}
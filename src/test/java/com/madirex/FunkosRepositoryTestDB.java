@@ -12,10 +12,18 @@ import org.junit.jupiter.api.Test;
 
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -129,12 +137,8 @@ class FunkosRepositoryTestDB {
         Optional<Funko> savedFunko = savedFunkoFuture.join();
         assertTrue(savedFunko.isPresent(), "El Funko se guardó con éxito");
 
-        CompletableFuture<Optional<Funko>> saveFuture = funkoRepository.save(funko);
-
-        saveFuture.exceptionally(throwable -> {
-            assertTrue(throwable.getCause() instanceof SQLException, "Se lanzó una SQLException");
-            return Optional.empty();
-        }).join();
+        Optional<Funko> repeated = funkoRepository.save(funko).join();
+        assertTrue(repeated.isEmpty(), "No se puede guardar un Funko con un cod repetido");
     }
 
     /**
@@ -171,7 +175,7 @@ class FunkosRepositoryTestDB {
     }
 
     /**
-     * Test para comprobar que no se encuentra un Funko
+     * Test para comprobar que un error de la base de datos en findById hace fallar el futuro
      *
      * @throws SQLException Si hay un error en la base de datos
      */
@@ -191,10 +195,8 @@ class FunkosRepositoryTestDB {
 
         CompletableFuture<Optional<Funko>> findByIdFuture = funkoRepository.findById(id);
 
-        findByIdFuture.exceptionally(throwable -> {
-            assertTrue(throwable.getCause() instanceof SQLException, "Se lanzó una SQLException");
-            return Optional.empty();
-        }).join();
+        var exception = assertThrows(CompletionException.class, findByIdFuture::join);
+        assertInstanceOf(SQLException.class, exception.getCause(), "Se lanzó una SQLException");
     }
 
 
@@ -229,6 +231,230 @@ class FunkosRepositoryTestDB {
         assertEquals(2, allFunkos.size(), "El número de Funkos en el repositorio coincide con el esperado");
     }
 
+    /**
+     * Test para comprobar FindAll paginado por cod y StreamAll
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFindAllPagedAndStreamed() throws ExecutionException, InterruptedException {
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            funkos.add(Funko.builder().name("page" + i).model(Model.DISNEY).price(i).releaseDate(LocalDate.now()).build());
+        }
+        funkoRepository.saveAll(funkos).get();
+        List<String> expected = funkos.stream().map(f -> f.getCod().toString()).sorted().toList();
+
+        List<String> paged = new ArrayList<>();
+        String afterCod = null;
+        List<Funko> page;
+        do {
+            page = funkoRepository.findAll(afterCod, 10).get();
+            assertTrue(page.size() <= 10, "La página no supera el tamaño indicado");
+            page.forEach(f -> paged.add(f.getCod().toString()));
+            afterCod = page.isEmpty() ? afterCod : page.get(page.size() - 1).getCod().toString();
+        } while (page.size() == 10);
+
+        List<String> streamed;
+        try (Stream<Funko> stream = funkoRepository.streamAll(10)) {
+            streamed = stream.map(f -> f.getCod().toString()).toList();
+        }
+
+        assertAll("paginación",
+                () -> assertEquals(expected, paged, "Las páginas recorren todos los Funkos ordenados por cod"),
+                () -> assertEquals(expected, streamed, "El Stream recorre todos los Funkos ordenados por cod"),
+                () -> assertEquals(5, funkoRepository.streamAll(5).limit(5).count(), "El Stream se puede cortar"));
+    }
+
+    /**
+     * Test para comprobar SaveAll por lotes
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     * @throws SQLException         Si hay un error en la base de datos
+     */
+    @Test
+    void testSaveAllFunkos() throws ExecutionException, InterruptedException, SQLException {
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            funkos.add(Funko.builder()
+                    .name("batch" + i)
+                    .model(Model.MARVEL)
+                    .price(i)
+                    .releaseDate(LocalDate.now())
+                    .build());
+        }
+        List<Funko> saved = funkoRepository.saveAll(funkos).get();
+        assertEquals(funkos.size(), saved.size(), "Se han guardado todos los Funkos");
+        assertEquals(funkos.size(), funkoRepository.findAll().get().size(), "El repositorio contiene todos los Funkos");
+    }
+
+    /**
+     * Test para comprobar que SaveAll descarta los cod repetidos sin invalidar la carga
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     * @throws SQLException         Si hay un error en la base de datos
+     */
+    @Test
+    void testSaveAllDiscardsDuplicatedCod() throws ExecutionException, InterruptedException, SQLException {
+        Funko first = Funko.builder().name("first").model(Model.ANIME).price(1).releaseDate(LocalDate.now()).build();
+        Funko duplicated = Funko.builder().cod(first.getCod()).name("duplicated").model(Model.ANIME).price(2)
+                .releaseDate(LocalDate.now()).build();
+        Funko other = Funko.builder().name("other").model(Model.ANIME).price(3).releaseDate(LocalDate.now()).build();
+
+        List<Funko> saved = funkoRepository.saveAll(List.of(first, duplicated, other)).get();
+
+        assertEquals(List.of(first, other), saved, "Solo se guardan los cod no repetidos");
+        assertEquals("first", funkoRepository.findById(first.getCod().toString()).get().orElseThrow().getName());
+        assertEquals(2, funkoRepository.findAll().get().size());
+    }
+
+    /**
+     * Test para comprobar WriteAll: altas y modificaciones en una única transacción. Las altas de un cod existente
+     * y las modificaciones de uno inexistente se devuelven como no aplicadas
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     * @throws SQLException         Si hay un error en la base de datos
+     */
+    @Test
+    void testWriteAll() throws ExecutionException, InterruptedException, SQLException {
+        Funko existing = Funko.builder().name("existing").model(Model.ANIME).price(1).releaseDate(LocalDate.now()).build();
+        funkoRepository.save(existing).get();
+        Funko inserted = Funko.builder().name("inserted").model(Model.MARVEL).price(2).releaseDate(LocalDate.now()).build();
+        Funko modified = Funko.builder().cod(existing.getCod()).name("modified").model(Model.ANIME).price(3)
+                .releaseDate(LocalDate.now()).build();
+
+        String missing = UUID.randomUUID().toString();
+        List<String> notApplied = funkoRepository.writeAll(
+                Map.of(inserted.getCod().toString(), inserted, existing.getCod().toString(), inserted),
+                Map.of(existing.getCod().toString(), modified, missing, modified)).get();
+
+        assertAll("writeAll",
+                () -> assertEquals(Set.of(existing.getCod().toString(), missing), Set.copyOf(notApplied),
+                        "Las escrituras no aplicadas no son las esperadas"),
+                () -> assertEquals("inserted", funkoRepository.findById(inserted.getCod().toString()).get()
+                        .orElseThrow().getName(), "No se ha dado de alta el Funko"),
+                () -> assertEquals("modified", funkoRepository.findById(existing.getCod().toString()).get()
+                        .orElseThrow().getName(), "No se ha modificado el Funko"),
+                () -> assertEquals(2, funkoRepository.findAll().get().size(), "El número de Funkos no es el esperado")
+        );
+    }
+
+    /**
+     * Test para comprobar UpsertAll: los cods existentes se sobrescriben y el resto se dan de alta
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     * @throws SQLException         Si hay un error en la base de datos
+     */
+    @Test
+    void testUpsertAll() throws ExecutionException, InterruptedException, SQLException {
+        Funko existing = Funko.builder().name("existing").model(Model.ANIME).price(1).releaseDate(LocalDate.now()).build();
+        funkoRepository.save(existing).get();
+        Funko restored = Funko.builder().cod(existing.getCod()).myId(42L).name("restored").model(Model.DISNEY).price(3)
+                .releaseDate(LocalDate.now()).build();
+        Funko inserted = Funko.builder().myId(43L).name("inserted").model(Model.MARVEL).price(2)
+                .releaseDate(LocalDate.now()).build();
+
+        List<Funko> saved = funkoRepository.upsertAll(List.of(restored, inserted)).get();
+
+        Funko found = funkoRepository.findById(existing.getCod().toString()).get().orElseThrow();
+        assertAll("upsertAll",
+                () -> assertEquals(List.of(restored, inserted), saved, "No se han guardado todos los Funkos"),
+                () -> assertEquals("restored", found.getName(), "No se ha sobrescrito el Funko"),
+                () -> assertEquals(Model.DISNEY, found.getModel(), "No se ha sobrescrito el modelo"),
+                () -> assertEquals(42L, found.getMyId(), "No se ha conservado el myId del backup"),
+                () -> assertEquals("inserted", funkoRepository.findById(inserted.getCod().toString()).get()
+                        .orElseThrow().getName(), "No se ha dado de alta el Funko"),
+                () -> assertEquals(2, funkoRepository.findAll().get().size(), "El número de Funkos no es el esperado")
+        );
+    }
+
+    /**
+     * Test para comprobar streamUpdatedSince: solo se leen los Funkos modificados desde la fecha indicada,
+     * ordenados por fecha de modificación y cod, también con páginas de un Funko y fechas repetidas
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testStreamUpdatedSince() throws ExecutionException, InterruptedException {
+        LocalDateTime base = LocalDateTime.of(2020, 1, 1, 12, 0);
+        List<Funko> funkos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            funkos.add(Funko.builder().myId((long) i).name("funko " + i).model(Model.OTROS).price(i)
+                    .releaseDate(LocalDate.now()).updateAt(base.plusHours(Math.min(i, 2))).build());
+        }
+        funkoRepository.upsertAll(funkos).get();
+
+        List<Funko> sameTime = funkos.subList(1, 3).stream()
+                .sorted(Comparator.comparing(funko -> funko.getCod().toString())).toList();
+        try (Stream<Funko> stream = funkoRepository.streamUpdatedSince(base.plusHours(1), 1)) {
+            List<String> names = stream.map(Funko::getName).toList();
+            assertEquals(List.of(sameTime.get(0).getName(), sameTime.get(1).getName(), "funko 3"), names,
+                    "Los Funkos modificados no son los esperados");
+        }
+    }
+
+    /**
+     * Test para comprobar deleteAllById y findDeletedSince: los borrados dejan su cod como borrado hasta que
+     * el Funko se vuelve a dar de alta
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testDeleteAllByIdAndFindDeletedSince() throws ExecutionException, InterruptedException {
+        Funko first = Funko.builder().name("first").model(Model.ANIME).price(1).releaseDate(LocalDate.now()).build();
+        Funko second = Funko.builder().name("second").model(Model.ANIME).price(2).releaseDate(LocalDate.now()).build();
+        Funko kept = Funko.builder().name("kept").model(Model.ANIME).price(3).releaseDate(LocalDate.now()).build();
+        funkoRepository.saveAll(List.of(first, second, kept)).get();
+        LocalDateTime before = LocalDateTime.now().minusSeconds(1);
+
+        int deleted = funkoRepository.deleteAllById(List.of(first.getCod().toString(), second.getCod().toString(),
+                UUID.randomUUID().toString())).get();
+        List<String> tombstones = funkoRepository.findDeletedSince(before).get();
+        funkoRepository.upsertAll(List.of(first)).get();
+        List<String> afterRestore = funkoRepository.findDeletedSince(before).get();
+
+        assertAll("deleteAllById",
+                () -> assertEquals(2, deleted, "No se han borrado los Funkos existentes"),
+                () -> assertEquals(1, funkoRepository.findAll().get().size(), "El número de Funkos no es el esperado"),
+                () -> assertTrue(tombstones.containsAll(List.of(first.getCod().toString(), second.getCod().toString())),
+                        "No constan los Funkos borrados"),
+                () -> assertFalse(tombstones.contains(kept.getCod().toString()), "Consta como borrado un Funko que existe"),
+                () -> assertFalse(afterRestore.contains(first.getCod().toString()),
+                        "Consta como borrado un Funko dado de alta de nuevo"),
+                () -> assertTrue(afterRestore.contains(second.getCod().toString()), "No consta el Funko borrado")
+        );
+    }
+
+    /**
+     * Test para comprobar FindAllById: se devuelven los cods existentes y se omiten los que no existen
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFindAllById() throws ExecutionException, InterruptedException {
+        Funko first = Funko.builder().name("first").model(Model.ANIME).price(1).releaseDate(LocalDate.now()).build();
+        Funko second = Funko.builder().name("second").model(Model.ANIME).price(2).releaseDate(LocalDate.now()).build();
+        Funko other = Funko.builder().name("other").model(Model.ANIME).price(3).releaseDate(LocalDate.now()).build();
+        funkoRepository.saveAll(List.of(first, second, other)).get();
+
+        List<String> found = funkoRepository.findAllById(List.of(first.getCod().toString(),
+                        second.getCod().toString(), UUID.randomUUID().toString())).get()
+                .stream().map(Funko::getName).sorted().toList();
+
+        assertAll("findAllById",
+                () -> assertEquals(List.of("first", "second"), found, "Los Funkos encontrados no son los esperados"),
+                () -> assertTrue(funkoRepository.findAllById(List.of()).get().isEmpty(), "Sin cods no hay Funkos")
+        );
+    }
+
     /**
      * Test para comprobar FindByName
      *
@@ -275,6 +501,30 @@ class FunkosRepositoryTestDB {
         );
     }
 
+    /**
+     * Test para comprobar FindByName sin distinguir mayúsculas y las búsquedas por prefijo y contenido
+     *
+     * @throws SQLException         Si hay un error en la base de datos
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFindFunkosByNameVariants() throws SQLException, ExecutionException, InterruptedException {
+        List<Funko> funkos = List.of(
+                Funko.builder().name("Stitch Hula").model(Model.DISNEY).price(1).releaseDate(LocalDate.now()).build(),
+                Funko.builder().name("stitch 100%").model(Model.DISNEY).price(2).releaseDate(LocalDate.now()).build(),
+                Funko.builder().name("Angel & Stitch").model(Model.DISNEY).price(3).releaseDate(LocalDate.now()).build());
+        funkoRepository.saveAll(funkos).get();
+
+        assertAll("Búsquedas por nombre",
+                () -> assertEquals(1, funkoRepository.findByName("STITCH HULA").get().size(), "findByName"),
+                () -> assertEquals(2, funkoRepository.findByNameStartingWith("Stitch").get().size(), "Prefijo"),
+                () -> assertEquals(3, funkoRepository.findByNameContaining("STITCH").get().size(), "Contenido"),
+                () -> assertEquals(1, funkoRepository.findByNameContaining("100%").get().size(), "Comodín escapado"),
+                () -> assertEquals(0, funkoRepository.findByNameStartingWith("_").get().size(), "Comodín escapado")
+        );
+    }
+
     /**
      * Test para comprobar Update
      *
@@ -3,25 +3,37 @@ package com.madirex;
 import com.madirex.exceptions.FunkoNotFoundException;
 import com.madirex.exceptions.FunkoNotRemovedException;
 import com.madirex.exceptions.FunkoNotValidException;
+import com.madirex.models.BackupIncrement;
+import com.madirex.models.BackupManifest;
 import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
 import com.madirex.models.Model;
 import com.madirex.repositories.funko.FunkoRepositoryImpl;
+import com.madirex.services.cache.CacheSnapshot;
 import com.madirex.services.cache.FunkoCacheImpl;
 import com.madirex.services.crud.funko.FunkoServiceImpl;
 import com.madirex.services.io.BackupService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -65,6 +77,48 @@ class FunkosServiceImplTest {
         verify(repository, times(1)).findAll();
     }
 
+    /**
+     * Test para FindAll con la caché de consultas: se consulta la base de datos una vez hasta que se guarda un Funko
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFindAllCachedUntilSave() throws ExecutionException, InterruptedException {
+        var funko = Funko.builder().name("cuack").price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        when(repository.findAll()).thenReturn(CompletableFuture.completedFuture(List.of()))
+                .thenReturn(CompletableFuture.completedFuture(List.of(funko)));
+        when(repository.save(funko)).thenReturn(CompletableFuture.completedFuture(Optional.of(funko)));
+        assertTrue(service.findAll().get().isEmpty(), "La primera consulta no está vacía");
+        assertTrue(service.findAll().get().isEmpty(), "La consulta en caché no está vacía");
+        verify(repository, times(1)).findAll();
+        service.save(funko).get();
+        assertEquals(List.of(funko), service.findAll().get(), "La caché de consultas no se ha invalidado");
+        verify(repository, times(2)).findAll();
+    }
+
+    /**
+     * Test para FindByName con la caché de consultas: el nombre no distingue mayúsculas y un borrado la invalida
+     *
+     * @throws ExecutionException       Si hay un error en la ejecución
+     * @throws InterruptedException     Si hay un error en la ejecución
+     * @throws SQLException             Si hay un error en la base de datos
+     * @throws FunkoNotRemovedException Si no se puede borrar el Funko
+     */
+    @Test
+    void testFindByNameCachedUntilDelete() throws ExecutionException, InterruptedException, SQLException,
+            FunkoNotRemovedException {
+        var funkos = List.of(Funko.builder().name("cuack").price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build());
+        when(repository.findByName(anyString())).thenReturn(CompletableFuture.completedFuture(funkos));
+        when(repository.delete("id")).thenReturn(CompletableFuture.completedFuture(true));
+        assertEquals(funkos, service.findByName("cuack").get());
+        assertEquals(funkos, service.findByName("CUACK").get());
+        verify(repository, times(1)).findByName(anyString());
+        service.delete("id").get();
+        service.findByName("cuack").get();
+        verify(repository, times(2)).findByName(anyString());
+    }
+
     /**
      * Test para FindByName
      *
@@ -122,7 +176,7 @@ class FunkosServiceImplTest {
     }
 
     /**
-     * Test para exportData
+     * Test para exportData: los Funkos se leen página a página y se exportan en streaming
      *
      * @throws ExecutionException   Si hay un error en la ejecución
      * @throws InterruptedException Si hay un error en la ejecución
@@ -132,12 +186,161 @@ class FunkosServiceImplTest {
     void testExportData() throws ExecutionException, InterruptedException, SQLException {
         String path = "testPath";
         String fileName = "testFile";
-        List<Funko> testData = List.of(Funko.builder().build());
-        Mockito.when(service.findAll()).thenReturn(CompletableFuture.completedFuture(testData));
-        Mockito.when(backupService.exportData(path, fileName, testData)).thenReturn(CompletableFuture.completedFuture(null));
-        CompletableFuture<Void> result = service.exportData(path, fileName, testData);
+        Stream<Funko> testData = Stream.of(Funko.builder().build());
+        Mockito.when(repository.streamAll(anyInt())).thenReturn(testData);
+        Mockito.when(backupService.exportStream(path, fileName, testData)).thenReturn(CompletableFuture.completedFuture(1L));
+        CompletableFuture<Void> result = service.exportData(path, fileName);
         result.get();
-        Mockito.verify(backupService, Mockito.times(1)).exportData(path, fileName, testData);
+        Mockito.verify(backupService, Mockito.times(1)).exportStream(path, fileName, testData);
+        Mockito.verify(repository, never()).findAll();
+    }
+
+    /**
+     * Test para exportData: si falla la lectura de una página el futuro de la exportación termina con error
+     *
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    @Test
+    void testExportDataFailsOnFailedPage() throws SQLException {
+        String path = "testPath";
+        String fileName = "testFile";
+        Stream<Funko> failing = Stream.concat(Stream.of(Funko.builder().build()),
+                Stream.<Funko>generate(() -> {
+                    throw new IllegalStateException("Error en el streamAll");
+                }));
+        Mockito.when(repository.streamAll(anyInt())).thenReturn(failing);
+        Mockito.when(backupService.exportStream(path, fileName, failing))
+                .thenAnswer(invocation -> CompletableFuture.supplyAsync(failing::count));
+        CompletableFuture<Void> result = service.exportData(path, fileName);
+        var exception = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+    }
+
+    /**
+     * Test para restoreData: cada lote se guarda con upsertAll y sus Funkos salen de la caché
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRestoreData() throws ExecutionException, InterruptedException {
+        String path = "testPath";
+        String fileName = "testFile";
+        List<Funko> batch = List.of(Funko.builder().name("test").build());
+        when(repository.upsertAll(batch)).thenReturn(CompletableFuture.completedFuture(batch));
+        when(backupService.importStream(eq(path), eq(fileName), eq(100), any(), isNull())).thenAnswer(invocation -> {
+            Function<List<Funko>, CompletableFuture<List<Funko>>> writer = invocation.getArgument(3);
+            int saved = writer.apply(batch).join().size();
+            return CompletableFuture.completedFuture(ImportReport.builder().rowsRead(1).rowsImported(saved).build());
+        });
+
+        ImportReport report = service.restoreData(path, fileName, 100, null).get();
+
+        assertEquals(1, report.getRowsImported());
+        verify(repository, times(1)).upsertAll(batch);
+        verify(cache, times(2)).remove(batch.get(0).getCod().toString());
+    }
+
+    /**
+     * Test para exportIncremental sin manifiesto: se hace un backup completo y se empieza la cadena
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testExportIncrementalStartsWithFullBackup() throws ExecutionException, InterruptedException {
+        String path = "testPath";
+        Stream<Funko> testData = Stream.of(Funko.builder().build());
+        when(backupService.readManifest(path, "backup.manifest.json"))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(repository.streamAll(anyInt())).thenReturn(testData);
+        when(backupService.exportStream(path, "backup.json", testData)).thenReturn(CompletableFuture.completedFuture(1L));
+        when(backupService.writeManifest(eq(path), eq("backup.manifest.json"), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        BackupManifest manifest = service.exportIncremental(path, "backup.json", false).get();
+
+        assertAll("exportIncremental",
+                () -> assertEquals("backup.json", manifest.getFullBackup(), "El backup completo no es el esperado"),
+                () -> assertEquals(1, manifest.getFullRows(), "El número de Funkos no es el esperado"),
+                () -> assertTrue(manifest.getIncrements().isEmpty(), "No debería haber incrementos"),
+                () -> assertNotNull(manifest.getWatermark(), "No se ha guardado la marca de agua")
+        );
+        verify(repository, never()).streamUpdatedSince(any(), anyInt());
+        verify(backupService, times(1)).writeManifest(path, "backup.manifest.json", manifest);
+    }
+
+    /**
+     * Test para exportIncremental con manifiesto: se exportan los Funkos modificados y los borrados desde
+     * la marca de agua (menos el solapamiento) y se añade el incremento al manifiesto
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testExportIncremental() throws ExecutionException, InterruptedException {
+        String path = "testPath";
+        LocalDateTime watermark = LocalDateTime.of(2023, 10, 1, 12, 0);
+        LocalDateTime since = watermark.minusSeconds(30);
+        BackupManifest previous = BackupManifest.builder().fullBackup("backup.json.gz").watermark(watermark).build();
+        Stream<Funko> changed = Stream.of(Funko.builder().build(), Funko.builder().build());
+        when(backupService.readManifest(path, "backup.manifest.json"))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(previous)));
+        when(repository.findDeletedSince(since)).thenReturn(CompletableFuture.completedFuture(List.of("borrado")));
+        when(repository.streamUpdatedSince(eq(since), anyInt())).thenReturn(changed);
+        when(backupService.exportStream(path, "backup-inc-0001.json.gz", changed))
+                .thenReturn(CompletableFuture.completedFuture(2L));
+        when(backupService.writeManifest(eq(path), eq("backup.manifest.json"), any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        BackupManifest manifest = service.exportIncremental(path, "backup.json.gz", false).get();
+
+        BackupIncrement increment = manifest.getIncrements().get(0);
+        assertAll("exportIncremental",
+                () -> assertEquals(1, manifest.getIncrements().size(), "No se ha añadido el incremento"),
+                () -> assertEquals("backup-inc-0001.json.gz", increment.getFileName(), "El incremento no es el esperado"),
+                () -> assertEquals(2, increment.getRows(), "El número de Funkos modificados no es el esperado"),
+                () -> assertEquals(List.of("borrado"), increment.getDeleted(), "Los Funkos borrados no son los esperados"),
+                () -> assertEquals(since, increment.getSince(), "El inicio del incremento no es el esperado"),
+                () -> assertTrue(manifest.getWatermark().isAfter(watermark), "No se ha avanzado la marca de agua")
+        );
+        verify(repository, never()).streamAll(anyInt());
+    }
+
+    /**
+     * Test para restoreIncremental: se restaura el backup completo y después cada incremento, borrando antes
+     * sus Funkos borrados, y el resumen suma el de todos los ficheros
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testRestoreIncremental() throws ExecutionException, InterruptedException {
+        String path = "testPath";
+        BackupManifest manifest = BackupManifest.builder()
+                .fullBackup("backup.json")
+                .watermark(LocalDateTime.now())
+                .increments(List.of(BackupIncrement.builder().fileName("backup-inc-0001.json")
+                        .deleted(List.of("borrado")).build()))
+                .build();
+        when(backupService.readManifest(path, "backup.manifest.json"))
+                .thenReturn(CompletableFuture.completedFuture(Optional.of(manifest)));
+        when(backupService.importStream(eq(path), anyString(), eq(100), any(), isNull())).thenReturn(
+                CompletableFuture.completedFuture(ImportReport.builder().rowsRead(2).rowsImported(2).build()));
+        when(repository.deleteAllById(List.of("borrado"))).thenReturn(CompletableFuture.completedFuture(1));
+
+        ImportReport report = service.restoreIncremental(path, "backup.json", 100, null).get();
+
+        assertAll("restoreIncremental",
+                () -> assertEquals(4, report.getRowsRead(), "El número de Funkos leídos no es el esperado"),
+                () -> assertEquals(4, report.getRowsImported(), "El número de Funkos importados no es el esperado")
+        );
+        var inOrder = inOrder(backupService, repository);
+        inOrder.verify(backupService).importStream(eq(path), eq("backup.json"), eq(100), any(), isNull());
+        inOrder.verify(repository).deleteAllById(List.of("borrado"));
+        inOrder.verify(backupService).importStream(eq(path), eq("backup-inc-0001.json"), eq(100), any(), isNull());
+        verify(cache, times(2)).remove("borrado");
     }
 
     /**
@@ -161,6 +364,99 @@ class FunkosServiceImplTest {
                 () -> assertEquals(result.get().getModel(), funko.getModel(), "El modelo del Funko no es el esperado")
         );
         verify(repository, times(1)).findById(id);
+        verify(cache, times(1)).recordLoad(anyLong());
+    }
+
+    /**
+     * Test para FindById con peticiones simultáneas: comparten una única consulta a la base de datos
+     *
+     * @throws SQLException         Si hay un error en la base de datos
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFindByIdCoalescesConcurrentMisses() throws SQLException, ExecutionException, InterruptedException {
+        var funko = Funko.builder().name("cuack").price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        String id = funko.getCod().toString();
+        CompletableFuture<Optional<Funko>> pending = new CompletableFuture<>();
+        when(repository.findById(id)).thenReturn(pending);
+        var first = service.findById(id);
+        var second = service.findById(id);
+        assertFalse(first.isDone(), "La carga ha terminado antes de consultar la base de datos");
+        pending.complete(Optional.of(funko));
+        assertAll("findByIdCoalesced",
+                () -> assertEquals(funko, first.get().orElseThrow(), "El primer Funko no es el esperado"),
+                () -> assertEquals(funko, second.get().orElseThrow(), "El segundo Funko no es el esperado")
+        );
+        verify(repository, times(1)).findById(id);
+        verify(cache, times(1)).put(id, funko);
+        verify(cache, times(1)).recordLoad(anyLong());
+    }
+
+    /**
+     * Test para FindById cuando el Funko se actualiza durante la carga: el resultado antiguo no se guarda en caché
+     *
+     * @throws SQLException           Si hay un error en la base de datos
+     * @throws ExecutionException     Si hay un error en la ejecución
+     * @throws InterruptedException   Si hay un error en la ejecución
+     * @throws FunkoNotValidException Si el Funko no es válido
+     */
+    @Test
+    void testFindByIdDiscardsLoadOvertakenByUpdate() throws SQLException, ExecutionException, InterruptedException,
+            FunkoNotValidException {
+        var funko = Funko.builder().name("cuack").price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        String id = funko.getCod().toString();
+        var updated = Funko.builder().cod(funko.getCod()).name("cuack actualizado").price(12.42)
+                .releaseDate(funko.getReleaseDate()).model(Model.DISNEY).build();
+        CompletableFuture<Optional<Funko>> pending = new CompletableFuture<>();
+        when(repository.findById(id)).thenReturn(pending);
+        when(repository.update(id, updated)).thenReturn(CompletableFuture.completedFuture(Optional.of(updated)));
+        var load = service.findById(id);
+        service.update(id, updated).get();
+        pending.complete(Optional.of(funko));
+        assertEquals(funko, load.get().orElseThrow(), "El Funko cargado no es el esperado");
+        verify(cache, times(1)).put(id, updated);
+        verify(cache, never()).put(id, funko);
+    }
+
+    /**
+     * Test para FindById de un id inexistente: se recuerda hasta que se guarda un Funko con ese id
+     *
+     * @throws SQLException         Si hay un error en la base de datos
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFindByIdRemembersMissingUntilSave() throws SQLException, ExecutionException, InterruptedException {
+        var funko = Funko.builder().name("cuack").price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        String id = funko.getCod().toString();
+        when(repository.findById(id)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        when(repository.save(funko)).thenReturn(CompletableFuture.completedFuture(Optional.of(funko)));
+        assertTrue(service.findById(id).get().isEmpty(), "Se ha encontrado un Funko inexistente");
+        assertTrue(service.findById(id).get().isEmpty(), "Se ha encontrado un Funko inexistente");
+        verify(repository, times(1)).findById(id);
+        service.save(funko).get();
+        service.findById(id).get();
+        verify(repository, times(2)).findById(id);
+    }
+
+    /**
+     * Test para FindById con un error de la base de datos: el futuro falla y el id no se recuerda como inexistente
+     *
+     * @throws SQLException         Si hay un error en la base de datos
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFindByIdFailureIsNotRememberedAsMissing() throws SQLException, ExecutionException, InterruptedException {
+        String id = UUID.randomUUID().toString();
+        when(repository.findById(id))
+                .thenReturn(CompletableFuture.failedFuture(new SQLException("conexión cerrada")))
+                .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        var exception = assertThrows(ExecutionException.class, () -> service.findById(id).get());
+        assertInstanceOf(SQLException.class, exception.getCause());
+        assertTrue(service.findById(id).get().isEmpty(), "Se ha encontrado un Funko inexistente");
+        verify(repository, times(2)).findById(id);
     }
 
     /**
@@ -183,6 +479,67 @@ class FunkosServiceImplTest {
         assertTrue(foundFunko.isPresent());
         assertEquals("Cached Funko", foundFunko.get().getName());
         Mockito.verify(repository, Mockito.never()).findById(id);
+        Mockito.verify(cache, Mockito.never()).recordLoad(anyLong());
+    }
+
+    /**
+     * Test de precarga de la caché desde la instantánea y de su guardado al cerrar
+     *
+     * @param dir Directorio temporal
+     * @throws IOException          Si hay un error con el fichero de la instantánea
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testWarmUpCacheAndSaveSnapshotOnShutdown(@TempDir Path dir) throws IOException, ExecutionException,
+            InterruptedException {
+        var first = Funko.builder().name("first").price(1).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        var second = Funko.builder().name("second").price(2).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        List<String> keys = List.of(first.getCod().toString(), second.getCod().toString(), UUID.randomUUID().toString());
+        Path file = dir.resolve("cache.snapshot");
+        CacheSnapshot.write(file, keys);
+        when(repository.findAllById(keys.subList(0, 2))).thenReturn(CompletableFuture.completedFuture(List.of(first, second)));
+        when(cache.hottestKeys(2)).thenReturn(List.of(second.getCod().toString()));
+
+        assertEquals(2, service.warmUpCache(file, 2, Duration.ofSeconds(5)).get(), "No se han precargado 2 Funkos");
+        verify(cache, times(1)).put(first.getCod().toString(), first);
+        verify(cache, times(1)).put(second.getCod().toString(), second);
+
+        service.shutdown();
+        assertEquals(List.of(second.getCod().toString()), CacheSnapshot.read(file), "La instantánea no se ha guardado");
+    }
+
+    /**
+     * Test de precarga cuando un Funko se actualiza mientras se lee: el dato leído no pisa la actualización
+     *
+     * @param dir Directorio temporal
+     * @throws IOException            Si hay un error con el fichero de la instantánea
+     * @throws SQLException           Si hay un error en la base de datos
+     * @throws ExecutionException     Si hay un error en la ejecución
+     * @throws InterruptedException   Si hay un error en la ejecución
+     * @throws FunkoNotValidException Si el Funko no es válido
+     */
+    @Test
+    void testWarmUpCacheDiscardsLoadOvertakenByUpdate(@TempDir Path dir) throws IOException, SQLException,
+            ExecutionException, InterruptedException, FunkoNotValidException {
+        var funko = Funko.builder().name("cuack").price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        String id = funko.getCod().toString();
+        var updated = Funko.builder().cod(funko.getCod()).name("cuack actualizado").price(12.42)
+                .releaseDate(funko.getReleaseDate()).model(Model.DISNEY).build();
+        Path file = dir.resolve("cache.snapshot");
+        CacheSnapshot.write(file, List.of(id));
+        CompletableFuture<List<Funko>> pending = new CompletableFuture<>();
+        when(repository.findAllById(List.of(id))).thenReturn(pending);
+        when(repository.update(id, updated)).thenReturn(CompletableFuture.completedFuture(Optional.of(updated)));
+
+        var warmUp = service.warmUpCache(file, 1, Duration.ofSeconds(5));
+        verify(repository, timeout(5000)).findAllById(List.of(id));
+        service.update(id, updated).get();
+        pending.complete(List.of(funko));
+
+        assertEquals(0, warmUp.get(), "Se ha precargado un Funko anterior a la actualización");
+        verify(cache, times(1)).put(id, updated);
+        verify(cache, never()).put(id, funko);
     }
 
     /**
@@ -206,6 +563,64 @@ class FunkosServiceImplTest {
         verify(repository, times(1)).save(funko);
     }
 
+    /**
+     * Test para Save cuando el repositorio no lo guarda: el Funko sale de la caché
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testSaveNotSaved() throws ExecutionException, InterruptedException {
+        var funko = Funko.builder().name("cuack").price(12.42).releaseDate(LocalDate.now()).model(Model.DISNEY).build();
+        when(repository.save(funko)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+        var result = service.save(funko).get();
+        assertTrue(result.isEmpty(), "El Funko no se ha guardado");
+        verify(cache, times(1)).put(funko.getCod().toString(), funko);
+        verify(cache, times(1)).remove(funko.getCod().toString());
+    }
+
+    /**
+     * Test para SaveAll
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testSaveAll() throws ExecutionException, InterruptedException {
+        var funkos = List.of(
+                Funko.builder().name("test1").price(42.0).releaseDate(LocalDate.now()).model(Model.DISNEY).build(),
+                Funko.builder().name("test2").price(42.24).releaseDate(LocalDate.now()).model(Model.ANIME).build()
+        );
+        when(repository.saveAll(funkos)).thenReturn(CompletableFuture.completedFuture(funkos));
+        var result = service.saveAll(funkos).get();
+        assertEquals(2, result.size(), "No se han guardado 2 Funkos");
+        verify(repository, times(1)).saveAll(funkos);
+        verify(cache, never()).put(anyString(), any(Funko.class));
+    }
+
+    /**
+     * Test para FindAll paginado y StreamAll
+     *
+     * @throws ExecutionException   Si hay un error en la ejecución
+     * @throws InterruptedException Si hay un error en la ejecución
+     */
+    @Test
+    void testFindAllPaged() throws ExecutionException, InterruptedException {
+        var funkos = List.of(
+                Funko.builder().name("test1").price(42.0).build(),
+                Funko.builder().name("test2").price(42.24).build()
+        );
+        when(repository.findAll("cod", 2)).thenReturn(CompletableFuture.completedFuture(funkos));
+        when(repository.streamAll(2)).thenReturn(funkos.stream());
+        assertAll("findAllPaged",
+                () -> assertEquals(funkos, service.findAll("cod", 2).get(), "La página no es la esperada"),
+                () -> assertEquals(funkos, service.streamAll(2).toList(), "El Stream no es el esperado")
+        );
+        verify(repository, times(1)).findAll("cod", 2);
+        verify(repository, times(1)).streamAll(2);
+        verify(cache, never()).put(anyString(), any(Funko.class));
+    }
+
     /**
      * Test para Update
      *
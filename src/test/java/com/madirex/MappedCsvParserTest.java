@@ -0,0 +1,149 @@
+package com.madirex;
+
+import com.madirex.exceptions.ReadCSVFailException;
+import com.madirex.models.Funko;
+import com.madirex.models.ImportReport;
+import com.madirex.services.io.CsvManager;
+import com.madirex.services.io.MappedCsvParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de test para la clase MappedCsvParser
+ */
+public class MappedCsvParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Compara dos listas de Funkos campo a campo
+     *
+     * @param expected Funkos esperados
+     * @param actual   Funkos obtenidos
+     */
+    private void assertSameFunkos(List<Funko> expected, List<Funko> actual) {
+        assertEquals(expected.size(), actual.size(), "Número de Funkos");
+        for (int i = 0; i < expected.size(); i++) {
+            Funko e = expected.get(i);
+            Funko a = actual.get(i);
+            assertAll("Funko " + i,
+                    () -> assertEquals(e.getCod(), a.getCod()),
+                    () -> assertEquals(e.getName(), a.getName()),
+                    () -> assertEquals(e.getModel(), a.getModel()),
+                    () -> assertEquals(e.getPrice(), a.getPrice()),
+                    () -> assertEquals(e.getReleaseDate(), a.getReleaseDate()));
+        }
+    }
+
+    /**
+     * Test que comprueba que el resultado coincide con el lector línea a línea usando trozos pequeños
+     *
+     * @throws IOException si no se puede leer el fichero
+     */
+    @Test
+    public void testParseMatchesLineParser() throws IOException {
+        Path csv = Paths.get("data" + File.separator + "funkos.csv");
+        CsvManager csvManager = CsvManager.getInstance();
+        List<Funko> expected = Files.readAllLines(csv).stream().skip(1).map(csvManager::lineToFunko).toList();
+
+        List<Funko> actual = new MappedCsvParser(ForkJoinPool.commonPool(), 256).parse(csv);
+
+        assertSameFunkos(expected, actual);
+    }
+
+    /**
+     * Test que comprueba los saltos de línea CRLF y el descarte de filas mal formadas o no válidas
+     *
+     * @throws IOException si no se puede escribir el fichero
+     */
+    @Test
+    public void testParseCrlfAndRejectedRows() throws IOException {
+        Path csv = tempDir.resolve("funkos.csv");
+        Files.writeString(csv, "COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO\r\n" +
+                "3b6c6f58-79b9-434b-82ab-01a2d6e4434a,Spiderman Ñandú,MARVEL,15.99,2022-05-01\r\n" +
+                "zzzz,Malo,MARVEL,15.99,2022-05-01\r\n" +
+                "6b6c6f58-7c6b-434b-82ab-01b2d6e4434a,Sin modelo,NOEXISTE,1,2022-05-01\r\n" +
+                "6b6c6f58-7c6b-434b-82ab-01b2d6e4434a,Naruto,ANIME,-0.5,2022-08-01\r\n" +
+                "7b6c6f58-7c6b-434b-82ab-01b2d6e4434a,Goku,ANIME,0.5,2022-08-01");
+
+        List<Funko> funkos = new MappedCsvParser(ForkJoinPool.commonPool(), 64).parse(csv);
+
+        assertEquals(2, funkos.size());
+        assertEquals("Spiderman Ñandú", funkos.get(0).getName());
+        assertEquals(15.99, funkos.get(0).getPrice());
+        assertEquals("Goku", funkos.get(1).getName());
+        assertEquals(0.5, funkos.get(1).getPrice());
+    }
+
+    /**
+     * Test que comprueba la importación por lotes: los Funkos llegan en orden en lotes del tamaño indicado
+     * y se cuentan las filas rechazadas por el lector, por la validación y por los lotes que no se guardan
+     *
+     * @throws IOException si no se puede leer el fichero
+     */
+    @Test
+    public void testParseInBatches() throws IOException {
+        Path csv = Paths.get("data" + File.separator + "funkos.csv");
+        List<Funko> expected = new MappedCsvParser(ForkJoinPool.commonPool(), 256).parse(csv);
+        Path invalid = tempDir.resolve("invalid.csv");
+        Files.writeString(invalid, "COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO\n" +
+                "3b6c6f58-79b9-434b-82ab-01a2d6e4434a,Spiderman,MARVEL,15.99,2022-05-01\n" +
+                "6b6c6f58-7c6b-434b-82ab-01b2d6e4434a,Naruto,ANIME,-0.5,2022-08-01\n" +
+                "zzzz,Malo,MARVEL,15.99,2022-05-01\n");
+        List<List<Funko>> batches = new ArrayList<>();
+
+        ImportReport report = new MappedCsvParser(ForkJoinPool.commonPool(), 256).parse(csv, 7, batch -> {
+            batches.add(batch);
+            return CompletableFuture.completedFuture(batches.size() == 1 ? batch : batch.subList(1, batch.size()));
+        });
+        ImportReport invalidReport = new MappedCsvParser(ForkJoinPool.commonPool(), 256).parse(invalid, 7,
+                batch -> CompletableFuture.failedFuture(new IllegalStateException("lote fallido")));
+
+        assertSameFunkos(expected, batches.stream().flatMap(List::stream).toList());
+        assertAll(
+                () -> assertTrue(batches.stream().allMatch(batch -> batch.size() <= 7), "Lote demasiado grande"),
+                () -> assertEquals(expected.size(), report.getRowsRead()),
+                () -> assertEquals(expected.size() - batches.size() + 1, report.getRowsImported()),
+                () -> assertEquals(batches.size() - 1, report.getRowsRejected()),
+                () -> assertEquals(3, invalidReport.getRowsRead()),
+                () -> assertEquals(0, invalidReport.getRowsImported()),
+                () -> assertEquals(3, invalidReport.getRowsRejected()));
+    }
+
+    /**
+     * Test que comprueba que la lectura en paralelo de CsvManager devuelve los Funkos del fichero
+     * y que su futuro termina con ReadCSVFailException si no se puede leer
+     *
+     * @throws IOException si no se puede escribir el fichero
+     */
+    @Test
+    public void testFileToFunkoListParallel() throws IOException {
+        Path csv = tempDir.resolve("funkos.csv");
+        Files.writeString(csv, "COD,NOMBRE,MODELO,PRECIO,FECHA_LANZAMIENTO\n" +
+                "3b6c6f58-79b9-434b-82ab-01a2d6e4434a,Spiderman,MARVEL,15.99,2022-05-01\n");
+        CsvManager csvManager = CsvManager.getInstance();
+
+        List<Funko> funkos = csvManager.fileToFunkoListParallel(csv.toString()).join().orElseThrow();
+        var exception = assertThrows(CompletionException.class,
+                () -> csvManager.fileToFunkoListParallel(tempDir.resolve("noexiste.csv").toString()).join());
+
+        assertAll(
+                () -> assertEquals(1, funkos.size()),
+                () -> assertEquals("Spiderman", funkos.get(0).getName()),
+                () -> assertInstanceOf(ReadCSVFailException.class, exception.getCause()));
+    }
+}
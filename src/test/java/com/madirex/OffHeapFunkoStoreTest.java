@@ -0,0 +1,353 @@
+package com.madirex;
+
+import com.madirex.models.CacheStats;
+import com.madirex.models.Funko;
+import com.madirex.models.Model;
+import com.madirex.services.cache.ConcurrentFunkoCacheImpl;
+import com.madirex.services.cache.OffHeapFunkoStore;
+import com.madirex.services.cache.TieredFunkoCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de test para las clases OffHeapFunkoStore y TieredFunkoCache
+ */
+class OffHeapFunkoStoreTest {
+
+    private OffHeapFunkoStore store;
+
+    /**
+     * Inicializa el almacén antes de cada test
+     */
+    @BeforeEach
+    void setUp() {
+        store = new OffHeapFunkoStore(3, null);
+    }
+
+    /**
+     * Libera el almacén después de cada test
+     */
+    @AfterEach
+    void tearDown() {
+        store.shutdown();
+    }
+
+    /**
+     * Crea un Funko de prueba
+     *
+     * @param name Nombre
+     * @return Funko
+     */
+    private Funko funko(String name) {
+        return Funko.builder()
+                .myId(7L)
+                .name(name)
+                .model(Model.MARVEL)
+                .price(12.5)
+                .releaseDate(LocalDate.of(2023, 1, 15))
+                .updateAt(LocalDateTime.of(2023, 10, 1, 12, 30, 15, 123456789))
+                .build();
+    }
+
+    /**
+     * Test put and get: el Funko leído es una copia con los mismos datos
+     */
+    @Test
+    void testPutAndGet() {
+        Funko funko = funko("Spider-Man ñ");
+        store.put(funko.getCod().toString(), funko);
+        Funko read = store.get(funko.getCod().toString());
+        assertAll(
+                () -> assertEquals(funko, read),
+                () -> assertNotSame(funko, read),
+                () -> assertEquals(1, store.size())
+        );
+    }
+
+    /**
+     * Test put and get con campos nulos
+     */
+    @Test
+    void testPutAndGetNullFields() {
+        Funko funko = Funko.builder().myId(null).updateAt(null).build();
+        store.put(funko.getCod().toString(), funko);
+        assertEquals(funko, store.get(funko.getCod().toString()));
+    }
+
+    /**
+     * Test put sobrescribe el Funko sin ocupar otra ranura
+     */
+    @Test
+    void testPutOverwrites() {
+        Funko funko = funko("Hulk");
+        String key = funko.getCod().toString();
+        store.put(key, funko);
+        funko.setPrice(20.0);
+        store.put(key, funko);
+        assertAll(
+                () -> assertEquals(20.0, store.get(key).getPrice()),
+                () -> assertEquals(1, store.size())
+        );
+    }
+
+    /**
+     * Test remove
+     */
+    @Test
+    void testRemove() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Funko funko = funko("Funko " + i);
+            keys.add(funko.getCod().toString());
+            store.put(keys.get(i), funko);
+        }
+        store.remove(keys.get(0));
+        assertAll(
+                () -> assertNull(store.get(keys.get(0))),
+                () -> assertNotNull(store.get(keys.get(1))),
+                () -> assertNotNull(store.get(keys.get(2))),
+                () -> assertEquals(2, store.size())
+        );
+    }
+
+    /**
+     * Test desalojo: al llenarse sale un Funko no consultado desde la última vuelta del reloj
+     */
+    @Test
+    void testEvictsUnreferenced() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Funko funko = funko("Funko " + i);
+            keys.add(funko.getCod().toString());
+            store.put(keys.get(i), funko);
+            if (i == 0) {
+                store.get(keys.get(0));
+            }
+        }
+        CacheStats stats = store.getStats();
+        assertAll(
+                () -> assertNotNull(store.get(keys.get(0))),
+                () -> assertNull(store.get(keys.get(1))),
+                () -> assertNotNull(store.get(keys.get(3))),
+                () -> assertEquals(3, store.size()),
+                () -> assertEquals(1, stats.getSizeEvictionCount())
+        );
+    }
+
+    /**
+     * Test claves que no son cods y nombres que no caben no se guardan
+     */
+    @Test
+    void testRejected() {
+        store.put("1", funko("Thor"));
+        Funko longName = funko("x".repeat(OffHeapFunkoStore.MAX_NAME_BYTES + 1));
+        store.put(longName.getCod().toString(), longName);
+        assertAll(
+                () -> assertNull(store.get("1")),
+                () -> assertNull(store.get(longName.getCod().toString())),
+                () -> assertEquals(0, store.size()),
+                () -> assertEquals(2, store.getRejectedCount())
+        );
+    }
+
+    /**
+     * Test un Funko que deja de caber (nombre más largo) sale del almacén en lugar de quedarse la versión anterior
+     */
+    @Test
+    void testRejectedPutRemovesPreviousVersion() {
+        Funko funko = funko("Thor");
+        String key = funko.getCod().toString();
+        store.put(key, funko);
+        funko.setName("x".repeat(OffHeapFunkoStore.MAX_NAME_BYTES + 1));
+        store.put(key, funko);
+        assertAll(
+                () -> assertNull(store.get(key)),
+                () -> assertEquals(0, store.size()),
+                () -> assertEquals(1, store.getRejectedCount())
+        );
+    }
+
+    /**
+     * Test caducidad: el Funko consultado se libera al consultarlo y el resto al llamar a clear
+     *
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    @Test
+    void testExpireAfterWrite() throws InterruptedException {
+        OffHeapFunkoStore expiring = new OffHeapFunkoStore(3, Duration.ofMillis(50));
+        try {
+            Funko loki = funko("Loki");
+            Funko hela = funko("Hela");
+            expiring.put(loki.getCod().toString(), loki);
+            expiring.put(hela.getCod().toString(), hela);
+            Thread.sleep(100);
+            assertNull(expiring.get(loki.getCod().toString()));
+            assertAll(
+                    () -> assertEquals(1, expiring.size()),
+                    () -> assertEquals(1, expiring.getStats().getExpiryEvictionCount()),
+                    () -> assertTrue(expiring.keys(3).isEmpty())
+            );
+            expiring.clear();
+            assertAll(
+                    () -> assertEquals(0, expiring.size()),
+                    () -> assertEquals(2, expiring.getStats().getExpiryEvictionCount())
+            );
+        } finally {
+            expiring.shutdown();
+        }
+    }
+
+    /**
+     * Test al llenarse se desaloja antes un Funko caducado, aunque se haya consultado, que uno vigente
+     *
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    @Test
+    void testEvictsExpiredFirst() throws InterruptedException {
+        OffHeapFunkoStore expiring = new OffHeapFunkoStore(2, Duration.ofMillis(200));
+        try {
+            Funko loki = funko("Loki");
+            Funko hela = funko("Hela");
+            Funko odin = funko("Odin");
+            expiring.put(loki.getCod().toString(), loki);
+            expiring.get(loki.getCod().toString());
+            Thread.sleep(300);
+            expiring.put(hela.getCod().toString(), hela);
+            expiring.put(odin.getCod().toString(), odin);
+            CacheStats stats = expiring.getStats();
+            assertAll(
+                    () -> assertNotNull(expiring.get(hela.getCod().toString())),
+                    () -> assertNotNull(expiring.get(odin.getCod().toString())),
+                    () -> assertEquals(2, expiring.size()),
+                    () -> assertEquals(1, stats.getExpiryEvictionCount()),
+                    () -> assertEquals(0, stats.getSizeEvictionCount())
+            );
+        } finally {
+            expiring.shutdown();
+        }
+    }
+
+    /**
+     * Test el almacén puede crecer por encima de un bloque de memoria y reutiliza las ranuras liberadas
+     */
+    @Test
+    void testManyEntries() {
+        OffHeapFunkoStore large = new OffHeapFunkoStore(20_000, null);
+        try {
+            List<UUID> cods = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                Funko funko = funko("Funko " + i);
+                cods.add(funko.getCod());
+                large.put(funko.getCod().toString(), funko);
+            }
+            long bytes = large.offHeapBytes();
+            for (int i = 0; i < 10_000; i++) {
+                large.remove(cods.get(i).toString());
+            }
+            for (int i = 0; i < 10_000; i++) {
+                Funko funko = funko("Nuevo " + i);
+                large.put(funko.getCod().toString(), funko);
+            }
+            assertAll(
+                    () -> assertEquals(20_000, large.size()),
+                    () -> assertEquals(20_000L * OffHeapFunkoStore.SLOT_SIZE, bytes),
+                    () -> assertEquals(bytes, large.offHeapBytes()),
+                    () -> assertEquals("Funko 19999", large.get(cods.get(19_999).toString()).getName()),
+                    () -> assertNull(large.get(cods.get(0).toString())),
+                    () -> assertEquals(0, large.getStats().getSizeEvictionCount())
+            );
+        } finally {
+            large.shutdown();
+        }
+    }
+
+    /**
+     * Test la caché de dos niveles sube al primer nivel lo que este ha desalojado
+     */
+    @Test
+    void testTieredPromotesFromStore() {
+        ConcurrentFunkoCacheImpl front = new ConcurrentFunkoCacheImpl(1, Duration.ofMinutes(1), null);
+        TieredFunkoCache tiered = new TieredFunkoCache(front, new OffHeapFunkoStore(10, null));
+        try {
+            Funko first = funko("Iron Man");
+            Funko second = funko("Capitán América");
+            tiered.put(first.getCod().toString(), first);
+            tiered.put(second.getCod().toString(), second);
+            assertNull(front.get(first.getCod().toString()));
+            assertEquals(first, tiered.get(first.getCod().toString()));
+            CacheStats stats = tiered.getStats();
+            assertAll(
+                    () -> assertEquals(first, front.get(first.getCod().toString())),
+                    () -> assertNull(tiered.get(UUID.randomUUID().toString())),
+                    () -> assertEquals(1, stats.getHitCount()),
+                    () -> assertEquals(2, stats.getSize()),
+                    () -> assertEquals(10, stats.getMaxSize()),
+                    () -> assertEquals(List.of(first.getCod().toString()), tiered.hottestKeys(1))
+            );
+            tiered.remove(first.getCod().toString());
+            assertNull(tiered.get(first.getCod().toString()));
+        } finally {
+            tiered.shutdown();
+        }
+    }
+
+    /**
+     * Test una subida al primer nivel que se cruza con un remove no deja el Funko borrado en el primer nivel
+     *
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    @Test
+    void testTieredPromotionDoesNotResurrectRemoved() throws InterruptedException {
+        ConcurrentFunkoCacheImpl front = new ConcurrentFunkoCacheImpl(10, Duration.ofMinutes(1), null);
+        TieredFunkoCache tiered = new TieredFunkoCache(front, new OffHeapFunkoStore(10, null));
+        try {
+            for (int i = 0; i < 500; i++) {
+                Funko funko = funko("Funko " + i);
+                String key = funko.getCod().toString();
+                tiered.put(key, funko);
+                front.remove(key);
+                CountDownLatch start = new CountDownLatch(1);
+                Thread reader = new Thread(() -> {
+                    awaitQuietly(start);
+                    tiered.get(key);
+                });
+                Thread remover = new Thread(() -> {
+                    awaitQuietly(start);
+                    tiered.remove(key);
+                });
+                reader.start();
+                remover.start();
+                start.countDown();
+                reader.join();
+                remover.join();
+                assertNull(front.get(key), "El primer nivel conserva un Funko borrado");
+            }
+        } finally {
+            tiered.shutdown();
+        }
+    }
+
+    /**
+     * Espera a la señal de salida de un test concurrente
+     *
+     * @param latch Señal de salida
+     */
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
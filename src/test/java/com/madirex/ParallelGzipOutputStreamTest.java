@@ -0,0 +1,95 @@
+package com.madirex;
+
+import com.madirex.services.io.BackupCompression;
+import com.madirex.services.io.ParallelGzipOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Clase de test para las clases ParallelGzipOutputStream y BackupCompression
+ */
+class ParallelGzipOutputStreamTest {
+
+    /**
+     * Comprime los datos en paralelo
+     *
+     * @param data    Datos
+     * @param threads Hilos de compresión
+     * @return gzip
+     * @throws IOException Si falla la compresión
+     */
+    private byte[] compress(byte[] data, int threads) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream gzip = new ParallelGzipOutputStream(out, threads)) {
+            int off = 0;
+            while (off < data.length) {
+                int len = Math.min(10_000, data.length - off);
+                gzip.write(data, off, len);
+                off += len;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Test varios bloques comprimidos en paralelo se leen como un único gzip
+     *
+     * @throws IOException Si falla la compresión
+     */
+    @Test
+    void testRoundTripSeveralBlocks() throws IOException {
+        byte[] data = new byte[ParallelGzipOutputStream.BLOCK_SIZE * 3 + 12_345];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(8));
+        }
+
+        byte[] compressed = compress(data, 4);
+
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        assertTrue(compressed.length < data.length / 2, "Los datos no se han comprimido");
+    }
+
+    /**
+     * Test un flujo vacío produce un gzip válido
+     *
+     * @throws IOException Si falla la compresión
+     */
+    @Test
+    void testEmpty() throws IOException {
+        byte[] compressed = compress(new byte[0], 2);
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(0, in.readAllBytes().length);
+        }
+    }
+
+    /**
+     * Test la compresión se detecta por los primeros bytes y los datos sin comprimir se leen tal cual
+     *
+     * @throws IOException Si falla la lectura
+     */
+    @Test
+    void testDetect() throws IOException {
+        byte[] json = "[{\"name\":\"Funko\"}]".getBytes(StandardCharsets.UTF_8);
+        try (InputStream gzip = BackupCompression.detect(new ByteArrayInputStream(compress(json, 1)));
+             InputStream plain = BackupCompression.detect(new ByteArrayInputStream(json))) {
+            assertAll(
+                    () -> assertArrayEquals(json, gzip.readAllBytes()),
+                    () -> assertArrayEquals(json, plain.readAllBytes())
+            );
+        }
+        assertEquals(BackupCompression.GZIP, BackupCompression.forFileName("backup.json.gz"));
+        assertEquals(BackupCompression.NONE, BackupCompression.forFileName("backup.json"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.madirex.benchmarks;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Benchmark de la latencia de búsqueda por cod según el tamaño de la tabla, con y sin el índice idx_funko_cod.
+ * Usa una base de datos H2 en memoria independiente de la configuración de la aplicación.
+ * Ejecutar con: gradle benchmark
+ */
+public class FunkoLookupBenchmark {
+    private static final int[] TABLE_SIZES = {1_000, 10_000, 100_000};
+    private static final int LOOKUPS = 2_000;
+    private static final String CREATE_TABLE = "CREATE TABLE funko (" +
+            "id BIGINT PRIMARY KEY AUTO_INCREMENT, MyId BIGINT, cod UUID NOT NULL, nombre VARCHAR(255), " +
+            "modelo VARCHAR(6), precio DECIMAL(10, 2), fecha_lanzamiento DATE, " +
+            "created_at TIMESTAMP, updated_at TIMESTAMP)";
+
+    /**
+     * Constructor privado, solo se usa el método main
+     */
+    private FunkoLookupBenchmark() {
+    }
+
+    /**
+     * Ejecuta el benchmark e imprime una tabla con la latencia media por búsqueda
+     *
+     * @param args Argumentos (no se usan)
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    public static void main(String[] args) throws SQLException {
+        System.out.printf("%-10s %-12s %15s%n", "filas", "índice cod", "µs/búsqueda");
+        for (int size : TABLE_SIZES) {
+            for (boolean indexed : new boolean[]{false, true}) {
+                double micros = run(size, indexed);
+                System.out.printf("%-10d %-12s %15.2f%n", size, indexed ? "sí" : "no", micros);
+            }
+        }
+    }
+
+    /**
+     * Crea una tabla con el número de filas indicado y mide la latencia media de búsqueda por cod
+     *
+     * @param size    Número de filas
+     * @param indexed Si se crea el índice único sobre cod
+     * @return Latencia media en microsegundos
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    private static double run(int size, boolean indexed) throws SQLException {
+        String url = "jdbc:h2:mem:benchmark" + size + indexed;
+        try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_TABLE);
+                if (indexed) {
+                    statement.execute("CREATE UNIQUE INDEX idx_funko_cod ON funko (cod)");
+                }
+            }
+            List<UUID> cods = fill(connection, size);
+            Random random = new Random(42);
+            try (PreparedStatement ps = connection.prepareStatement("SELECT * FROM funko WHERE cod = ?")) {
+                for (int i = 0; i < LOOKUPS / 4; i++) {
+                    lookup(ps, cods.get(random.nextInt(size)));
+                }
+                long start = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    lookup(ps, cods.get(random.nextInt(size)));
+                }
+                return (System.nanoTime() - start) / 1_000.0 / LOOKUPS;
+            }
+        }
+    }
+
+    /**
+     * Inserta el número de filas indicado por lotes
+     *
+     * @param connection Conexión
+     * @param size       Número de filas
+     * @return Códigos insertados
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    private static List<UUID> fill(Connection connection, int size) throws SQLException {
+        List<UUID> cods = new ArrayList<>(size);
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO funko (cod, myId, nombre, modelo, " +
+                "precio, fecha_lanzamiento, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < size; i++) {
+                UUID cod = UUID.randomUUID();
+                cods.add(cod);
+                ps.setObject(1, cod);
+                ps.setLong(2, i);
+                ps.setString(3, "Funko " + i);
+                ps.setString(4, "MARVEL");
+                ps.setDouble(5, i % 100);
+                ps.setObject(6, LocalDate.now());
+                ps.setObject(7, LocalDateTime.now());
+                ps.setObject(8, LocalDateTime.now());
+                ps.addBatch();
+                if (i % 1_000 == 999) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+        return cods;
+    }
+
+    /**
+     * Busca un Funko por cod y recorre el resultado
+     *
+     * @param ps  Sentencia preparada
+     * @param cod Código a buscar
+     * @throws SQLException Si hay un error en la base de datos
+     */
+    private static void lookup(PreparedStatement ps, UUID cod) throws SQLException {
+        ps.setObject(1, cod);
+        try (ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                throw new IllegalStateException("No encontrado: " + cod);
+            }
+        }
+    }
+}
@@ -1,13 +1,24 @@
 DROP TABLE funko IF EXISTS;
+DROP TABLE funko_borrado IF EXISTS;
 CREATE TABLE IF NOT EXISTS funko (
                          id BIGINT PRIMARY KEY AUTO_INCREMENT,
                          MyId BIGINT,
                          cod UUID DEFAULT RANDOM_UUID() NOT NULL,
                          nombre VARCHAR(255),
+                         nombre_busqueda VARCHAR(255) GENERATED ALWAYS AS (LOWER(nombre)),
                          modelo VARCHAR(6) CHECK (modelo IN ('MARVEL', 'DISNEY', 'ANIME', 'OTROS')),
                          precio DECIMAL(10, 2),
                          fecha_lanzamiento DATE,
                          created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                          updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
-
+CREATE INDEX IF NOT EXISTS idx_funko_nombre_busqueda ON funko (nombre_busqueda);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_funko_cod ON funko (cod);
+CREATE INDEX IF NOT EXISTS idx_funko_modelo ON funko (modelo);
+CREATE INDEX IF NOT EXISTS idx_funko_fecha_lanzamiento ON funko (fecha_lanzamiento);
+CREATE INDEX IF NOT EXISTS idx_funko_updated_at ON funko (updated_at, cod);
+CREATE TABLE IF NOT EXISTS funko_borrado (
+                         cod UUID PRIMARY KEY,
+                         deleted_at TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_funko_borrado_deleted_at ON funko_borrado (deleted_at);